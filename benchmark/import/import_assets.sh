@@ -0,0 +1,24 @@
+#!/bin/sh
+# Bulk import benchmark: generates a CSV of N assets and posts it to /asset/import, printing the wall time.
+#
+#   TOKEN=<admin bearer token> sh benchmark/import/import_assets.sh [rows] [base url] [category code]
+#
+# The category must exist. Watch the heap of the server while it runs, it should stay flat whatever the row count.
+
+ROWS=${1:-100000}
+BASE_URL=${2:-http://localhost:9994/asset-management}
+CATEGORY=${3:-LA}
+FILE=${TMPDIR:-/tmp}/assets-$ROWS.csv
+
+awk -v rows="$ROWS" -v category="$CATEGORY" 'BEGIN {
+    print "assetName,categoryCode,specification,installDate,state"
+    for (i = 1; i <= rows; i++) {
+        printf "Imported asset %d,%s,\"Spec %d, bench\",2021-%02d-%02d,%d\n", i, category, i, 1 + i % 12, 1 + i % 28, 1 + i % 2
+    }
+}' > "$FILE"
+
+time curl -s -X POST "$BASE_URL/asset/import" \
+    -H "Authorization: Bearer $TOKEN" \
+    -H "Content-Type: text/csv" \
+    --data-binary "@$FILE" | head -c 400
+echo
@@ -0,0 +1,391 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+// Closed-loop load driver for the endpoints exercised by the dataset of dataset.sql. Each worker repeatedly picks
+// an endpoint by the weights of the mix file and a generated user of the right role, signs a JWT for that user the
+// way JwtUtils does and waits for the response. Throughput and latency percentiles are printed per endpoint at the
+// end, the warm up is left out.
+//
+//   cd benchmark/loadtest
+//   java LoadDriver.java --secret bezKoderSecretKey [--base-url http://localhost:9994/asset-management]
+//       [--mix mix.properties] [--concurrency 32] [--duration 120] [--warmup 30]
+//
+// Needs JDK 11 or later and nothing else; users.csv and assets.csv come from dataset.sql. --secret must be the
+// bezkoder.app.jwtSecret of the running application.
+public class LoadDriver {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        String baseUrl = options.getOrDefault("base-url", "http://localhost:9994/asset-management");
+        String secret = required(options, "secret");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+        long durationSeconds = Long.parseLong(options.getOrDefault("duration", "120"));
+        long warmupSeconds = Long.parseLong(options.getOrDefault("warmup", "30"));
+
+        Properties mix = new Properties();
+        try (InputStream in = Files.newInputStream(Paths.get(options.getOrDefault("mix", "mix.properties")))) {
+            mix.load(in);
+        }
+        Dataset dataset = Dataset.load(Paths.get(options.getOrDefault("users", "users.csv")),
+                Paths.get(options.getOrDefault("assets", "assets.csv")));
+        Tokens tokens = new Tokens(secret);
+
+        List<Scenario> scenarios = new ArrayList<>();
+        for (Scenario scenario : Scenario.all()) {
+            int weight = Integer.parseInt(mix.getProperty(scenario.name, "0").trim());
+            if (weight > 0) {
+                scenario.weight = weight;
+                scenarios.add(scenario);
+            }
+        }
+        if (scenarios.isEmpty()) {
+            throw new IllegalArgumentException("No endpoint has a weight in the mix file");
+        }
+        int totalWeight = scenarios.stream().mapToInt(scenario -> scenario.weight).sum();
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(4))
+                .build();
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        System.out.printf("%d workers, %ds warm up, %ds measured, %d users, %d assets%n", concurrency,
+                warmupSeconds, durationSeconds, dataset.userCount(), dataset.assetCount());
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int w = 0; w < concurrency; w++) {
+            workers.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < end) {
+                    Scenario scenario = pick(scenarios, random.nextInt(totalWeight));
+                    String[] user = dataset.user(scenario.admin, random);
+                    HttpRequest request = scenario.request(baseUrl, dataset, user, random)
+                            .header("Authorization", "Bearer " + tokens.sign(user))
+                            .timeout(Duration.ofSeconds(30))
+                            .build();
+                    long sent = System.nanoTime();
+                    boolean ok;
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        ok = response.statusCode() < 400;
+                    } catch (IOException e) {
+                        ok = false;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    long received = System.nanoTime();
+                    if (sent >= measureFrom && received <= end) {
+                        scenario.histogram.record(TimeUnit.NANOSECONDS.toMicros(received - sent), ok);
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(warmupSeconds + durationSeconds + 60, TimeUnit.SECONDS);
+
+        System.out.printf("%n%-24s %9s %7s %9s %9s %9s %9s %9s%n", "endpoint", "requests", "errors", "req/s",
+                "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Scenario scenario : scenarios) {
+            Histogram h = scenario.histogram;
+            System.out.printf("%-24s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", scenario.name, h.count(), h.errors(),
+                    h.count() / (double) durationSeconds, h.percentile(0.50) / 1000.0,
+                    h.percentile(0.90) / 1000.0, h.percentile(0.99) / 1000.0, h.max() / 1000.0);
+        }
+        System.exit(0);
+    }
+
+    private static Scenario pick(List<Scenario> scenarios, int ticket) {
+        for (Scenario scenario : scenarios) {
+            ticket -= scenario.weight;
+            if (ticket < 0) {
+                return scenario;
+            }
+        }
+        return scenarios.get(scenarios.size() - 1);
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an --option, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static String required(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("--" + name + " is required");
+        }
+        return value;
+    }
+
+    // The endpoints of the mix file, by key. Bodies match the request DTOs of the controllers.
+    abstract static class Scenario {
+
+        final String name;
+
+        final boolean admin;
+
+        final Histogram histogram = new Histogram();
+
+        int weight;
+
+        Scenario(String name, boolean admin) {
+            this.name = name;
+            this.admin = admin;
+        }
+
+        abstract HttpRequest.Builder request(String baseUrl, Dataset dataset, String[] user, ThreadLocalRandom random);
+
+        static List<Scenario> all() {
+            List<Scenario> all = new ArrayList<>();
+            all.add(get("asset.list", true, (dataset, user, random) -> "/asset?page=" + random.nextInt(50)
+                    + "&size=20"));
+            all.add(post("asset.filter", true, (dataset, user, random) -> "/asset/filter-search-sort?page="
+                    + random.nextInt(20) + "&size=20", (dataset, user, random) -> "{\"states\":[1,2,3],"
+                    + "\"categoriesCode\":[],\"sortField\":\"assetCode\",\"sortType\":\"ASC\","
+                    + "\"searchKeyWord\":\"\"}"));
+            all.add(post("asset.search", true, (dataset, user, random) -> "/asset/filter-search-sort?page=0&size=20",
+                    (dataset, user, random) -> "{\"states\":[],\"categoriesCode\":[\"LA\",\"MO\"],"
+                            + "\"sortField\":\"assetName\",\"sortType\":\"ASC\",\"searchKeyWord\":\""
+                            + (1000 + random.nextInt(9000)) + "\"}"));
+            all.add(get("asset.detail", true, (dataset, user, random) -> "/asset/"
+                    + dataset.asset(Long.parseLong(user[2]), random)));
+            all.add(get("asset.report", true, (dataset, user, random) -> "/asset/report"));
+            all.add(post("assignment.filter", true, (dataset, user, random) -> "/assignment/filter-search-sort?page="
+                    + random.nextInt(20) + "&size=20", (dataset, user, random) -> "{\"states\":[],"
+                    + "\"sortField\":\"assignedDate\",\"sortType\":\"DSC\",\"searchKeyWord\":\"\"}"));
+            all.add(post("request.filter", true, (dataset, user, random) -> "/request/filter-search-sort?page="
+                    + random.nextInt(20) + "&size=20", (dataset, user, random) -> "{\"states\":[1],"
+                    + "\"sortField\":\"assetCode\",\"sortType\":\"ASC\",\"searchKeyWord\":\"\"}"));
+            all.add(post("assignment.own", false, (dataset, user, random) -> "/assignment/own",
+                    (dataset, user, random) -> "{\"pageNum\":1,\"pageSize\":20,\"staffCode\":\"" + user[1]
+                            + "\",\"orderBy\":\"assetCode\",\"typeOrder\":\"ASC\"}"));
+            all.add(get("category.list", true, (dataset, user, random) -> "/category"));
+            return all;
+        }
+
+        private static Scenario get(String name, boolean admin, Part path) {
+            return new Scenario(name, admin) {
+                @Override
+                HttpRequest.Builder request(String baseUrl, Dataset dataset, String[] user,
+                        ThreadLocalRandom random) {
+                    return HttpRequest.newBuilder(URI.create(baseUrl + path.of(dataset, user, random))).GET();
+                }
+            };
+        }
+
+        private static Scenario post(String name, boolean admin, Part path, Part body) {
+            return new Scenario(name, admin) {
+                @Override
+                HttpRequest.Builder request(String baseUrl, Dataset dataset, String[] user,
+                        ThreadLocalRandom random) {
+                    return HttpRequest.newBuilder(URI.create(baseUrl + path.of(dataset, user, random)))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body.of(dataset, user, random)));
+                }
+            };
+        }
+    }
+
+    interface Part {
+        String of(Dataset dataset, String[] user, ThreadLocalRandom random);
+    }
+
+    // users.csv rows are username, staffcode, locationid, rolename; assets.csv rows are assetcode, locationid
+    static class Dataset {
+
+        private final List<String[]> admins = new ArrayList<>();
+
+        private final List<String[]> staff = new ArrayList<>();
+
+        private final Map<Long, List<String>> assetsByLocation = new HashMap<>();
+
+        private int assets;
+
+        static Dataset load(Path users, Path assets) throws IOException {
+            Dataset dataset = new Dataset();
+            for (String[] row : csv(users)) {
+                (row[3].equals("ROLE_ADMIN") ? dataset.admins : dataset.staff).add(row);
+            }
+            for (String[] row : csv(assets)) {
+                dataset.assetsByLocation.computeIfAbsent(Long.parseLong(row[1]), id -> new ArrayList<>()).add(row[0]);
+                dataset.assets++;
+            }
+            if (dataset.admins.isEmpty() || dataset.staff.isEmpty() || dataset.assets == 0) {
+                throw new IllegalStateException("users.csv needs admins and staff and assets.csv assets, "
+                        + "run dataset.sql first");
+            }
+            return dataset;
+        }
+
+        private static List<String[]> csv(Path file) throws IOException {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            List<String[]> rows = new ArrayList<>();
+            for (String line : lines.subList(1, lines.size())) {
+                if (!line.isBlank()) {
+                    rows.add(line.split(","));
+                }
+            }
+            return rows;
+        }
+
+        String[] user(boolean admin, ThreadLocalRandom random) {
+            List<String[]> users = admin ? admins : staff;
+            return users.get(random.nextInt(users.size()));
+        }
+
+        String asset(long locationId, ThreadLocalRandom random) {
+            List<String> codes = assetsByLocation.get(locationId);
+            if (codes == null) {
+                codes = assetsByLocation.values().iterator().next();
+            }
+            return codes.get(random.nextInt(codes.size()));
+        }
+
+        int userCount() {
+            return admins.size() + staff.size();
+        }
+
+        int assetCount() {
+            return assets;
+        }
+    }
+
+    // HS512 tokens with the claims of JwtUtils.generateJwtToken. The key is the Base64 decoded secret, decoded
+    // leniently like jjwt does, so an unpadded secret such as the default one gives the same key.
+    static class Tokens {
+
+        private static final String HEADER = base64Url("{\"alg\":\"HS512\"}".getBytes(StandardCharsets.UTF_8));
+
+        private final SecretKeySpec key;
+
+        private final ThreadLocal<Mac> macs;
+
+        private final Map<String, String> cache = new ConcurrentHashMap<>();
+
+        Tokens(String secret) {
+            key = new SecretKeySpec(lenientBase64(secret), "HmacSHA512");
+            macs = ThreadLocal.withInitial(() -> {
+                try {
+                    Mac mac = Mac.getInstance("HmacSHA512");
+                    mac.init(key);
+                    return mac;
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+
+        // one token per user for the whole run, as a real client keeps its token between requests
+        String sign(String[] user) {
+            return cache.computeIfAbsent(user[0], username -> {
+                long now = System.currentTimeMillis() / 1000;
+                String claims = "{\"sub\":\"" + username + "\",\"staffCode\":\"" + user[1] + "\",\"locationId\":"
+                        + user[2] + ",\"role\":\"" + user[3] + "\",\"iat\":" + now + ",\"exp\":" + (now + 86400)
+                        + "}";
+                String content = HEADER + "." + base64Url(claims.getBytes(StandardCharsets.UTF_8));
+                byte[] signature = macs.get().doFinal(content.getBytes(StandardCharsets.US_ASCII));
+                return content + "." + base64Url(signature);
+            });
+        }
+
+        private static String base64Url(byte[] bytes) {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        }
+
+        // skips characters outside the alphabet and a trailing incomplete quantum
+        private static byte[] lenientBase64(String text) {
+            StringBuilder clean = new StringBuilder();
+            for (char c : text.toCharArray()) {
+                if (Character.isLetterOrDigit(c) && c < 128 || c == '+' || c == '/') {
+                    clean.append(c);
+                }
+            }
+            clean.setLength(clean.length() - clean.length() % 4);
+            return Base64.getDecoder().decode(clean.toString());
+        }
+    }
+
+    // Log-linear latency histogram in microseconds, 1% relative precision from 1 microsecond to about 17 minutes
+    static class Histogram {
+
+        private static final double GROWTH = 1.01;
+
+        private static final int BUCKETS = (int) Math.ceil(Math.log(1e9) / Math.log(GROWTH)) + 1;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        private final AtomicLongArray totals = new AtomicLongArray(3);
+
+        void record(long micros, boolean ok) {
+            int bucket = (int) Math.min(BUCKETS - 1, Math.ceil(Math.log(Math.max(1, micros)) / Math.log(GROWTH)));
+            buckets.incrementAndGet(bucket);
+            totals.incrementAndGet(0);
+            if (!ok) {
+                totals.incrementAndGet(1);
+            }
+            totals.accumulateAndGet(2, micros, Math::max);
+        }
+
+        long count() {
+            return totals.get(0);
+        }
+
+        long errors() {
+            return totals.get(1);
+        }
+
+        long max() {
+            return totals.get(2);
+        }
+
+        // upper bound of the bucket holding the quantile
+        double percentile(double quantile) {
+            long count = count();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(Math.pow(GROWTH, i), max());
+                }
+            }
+            return max();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+-- Load test dataset: users, assets and a skewed assignment and request history on top of data.sql.
+--
+-- Run against a scratch local database, never a shared one:
+--   createdb assetloadtest
+--   psql -d assetloadtest -f src/main/resources/schema.sql
+--   psql -d assetloadtest -f src/main/resources/data.sql
+--   cd benchmark/loadtest && psql -d assetloadtest -f dataset.sql
+--
+-- and start the application against it (spring.datasource.url=jdbc:postgresql://localhost:5432/assetloadtest).
+-- The random seed is fixed, so runs produce the same distributions. Besides the tables, the script writes users.csv
+-- and assets.csv next to itself for LoadDriver.java to pick its JWT subjects and asset codes from.
+--
+-- Distributions:
+--   locations    5 new offices, the first one holds about 45% of users and assets
+--   categories   the 5 of data.sql plus 5 new ones, laptops and monitors make up most assets
+--   assets       about half end up assigned, the rest available, not available, waiting for recycling or recycled
+--   assignments  history skewed towards a minority of assets, older rows returned, the latest one possibly open
+--   requests     a completed request per returned assignment, a waiting one for some open assignments
+-- Generated users share the password of nhimh in data.sql.
+
+\set users 100000
+\set assets 1000000
+\set assignments 5000000
+
+\timing on
+
+SELECT setseed(0.42);
+
+-- ---------------------------------------------------------------------------------------------------------------
+-- reference data
+-- ---------------------------------------------------------------------------------------------------------------
+
+INSERT INTO locations (locationid, address)
+SELECT 200 + i, 'Load test office ' || i FROM generate_series(1, 5) i;
+
+SELECT setval('location_sequence', greatest((SELECT max(locationid) FROM locations), 205));
+
+INSERT INTO categories (categorycode, categoryname)
+VALUES ('HS', 'Headset'), ('KB', 'Keyboard'), ('TB', 'Tablet'), ('PR', 'Printer'), ('DS', 'Docking Station')
+ON CONFLICT DO NOTHING;
+
+-- picking weights, cumulative in pick order
+CREATE TEMP TABLE lt_category_weight (categorycode varchar PRIMARY KEY, lo double precision, hi double precision);
+INSERT INTO lt_category_weight
+SELECT code, sum(weight) OVER (ORDER BY ord) - weight, sum(weight) OVER (ORDER BY ord)
+FROM (VALUES (1, 'LA', 0.34), (2, 'MO', 0.22), (3, 'PC', 0.12), (4, 'BM', 0.08), (5, 'HS', 0.07), (6, 'KB', 0.06),
+        (7, 'PJ', 0.04), (8, 'TB', 0.03), (9, 'PR', 0.02), (10, 'DS', 0.02)) w(ord, code, weight);
+-- rounding must not leave random() values above the last bound unpicked
+UPDATE lt_category_weight SET hi = 2 WHERE hi = (SELECT max(hi) FROM lt_category_weight);
+
+-- ---------------------------------------------------------------------------------------------------------------
+-- users: 2% admins, location 201 the busiest
+-- ---------------------------------------------------------------------------------------------------------------
+
+INSERT INTO users (staffcode, dateofbirth, firstlogin, firstname, gender, isdeleted, joineddate, lastname, password,
+        username, locationid, roleid)
+SELECT 'LT' || lpad(i::text, 6, '0'),
+       timestamp '1970-01-01' + floor(random() * 11000) * interval '1 day',
+       false,
+       'Load' || i,
+       CASE WHEN random() < 0.55 THEN 'Male' ELSE 'Female' END,
+       random() < 0.03,
+       timestamp '2012-01-01' + floor(random() * 3400) * interval '1 day',
+       'Tester' || i,
+       (SELECT password FROM users WHERE username = 'nhimh'),
+       'lt' || i,
+       201 + floor(5 * power(random(), 2.2))::int,
+       CASE WHEN i % 50 = 0 THEN 1002 ELSE 1001 END
+FROM generate_series(1, :users) i;
+
+CREATE TEMP TABLE lt_location_user AS
+SELECT locationid, roleid, staffcode, row_number() OVER (PARTITION BY locationid, roleid ORDER BY staffcode) AS n
+FROM users
+WHERE staffcode LIKE 'LT%' AND NOT isdeleted;
+CREATE INDEX ON lt_location_user (locationid, roleid, n);
+
+CREATE TEMP TABLE lt_location_user_count AS
+SELECT locationid, roleid, count(*) AS users FROM lt_location_user GROUP BY locationid, roleid;
+
+-- ---------------------------------------------------------------------------------------------------------------
+-- assets, codes numbered per category the way AssetCodeGenerator does
+-- ---------------------------------------------------------------------------------------------------------------
+
+CREATE TEMP TABLE lt_asset AS
+SELECT a.n, w.categorycode, a.locationid, a.state_pick, a.install_pick
+FROM (SELECT i AS n, random() AS category_pick, 201 + floor(5 * power(random(), 2.2))::int AS locationid,
+             random() AS state_pick, random() AS install_pick
+      FROM generate_series(1, :assets) i) a
+JOIN lt_category_weight w ON a.category_pick >= w.lo AND a.category_pick < w.hi;
+
+INSERT INTO assets (assetcode, assetname, installdate, isdeleted, specification, state, categorycode, locationid)
+SELECT a.categorycode || lpad((coalesce(c.lastvalue, 0)
+               + row_number() OVER (PARTITION BY a.categorycode ORDER BY a.n))::text, 6, '0'),
+       k.categoryname || ' ' || a.n,
+       timestamp '2016-01-01' + floor(power(a.install_pick, 0.5) * 2000) * interval '1 day',
+       false,
+       'Load test ' || k.categoryname || ', batch ' || (a.n % 97),
+       -- provisional, ASSIGNED is set from the assignment history below
+       (CASE WHEN a.state_pick < 0.80 THEN 1 WHEN a.state_pick < 0.90 THEN 2
+             WHEN a.state_pick < 0.96 THEN 4 ELSE 5 END)::smallint,
+       a.categorycode,
+       a.locationid
+FROM lt_asset a
+JOIN categories k ON k.categorycode = a.categorycode
+-- after the codes already taken, by data.sql or a previous generator block
+LEFT JOIN (SELECT categorycode, max(substring(assetcode FROM length(categorycode) + 1)::bigint) AS lastvalue
+           FROM (SELECT categorycode, assetcode FROM assets
+                 UNION ALL
+                 SELECT categorycode, categorycode || lastvalue FROM asset_code_counters) taken
+           WHERE substring(assetcode FROM length(categorycode) + 1) ~ '^[0-9]+$'
+           GROUP BY categorycode) c ON c.categorycode = a.categorycode;
+
+-- the generator carries on after the generated codes
+INSERT INTO asset_code_counters (categorycode, lastvalue)
+SELECT categorycode, max(substring(assetcode FROM length(categorycode) + 1)::bigint)
+FROM assets
+WHERE substring(assetcode FROM length(categorycode) + 1) ~ '^[0-9]+$'
+GROUP BY categorycode
+ON CONFLICT (categorycode) DO UPDATE SET lastvalue = greatest(asset_code_counters.lastvalue, EXCLUDED.lastvalue);
+
+CREATE TEMP TABLE lt_asset_index AS
+SELECT row_number() OVER (ORDER BY assetcode) AS n, assetcode, locationid, state
+FROM assets
+WHERE specification LIKE 'Load test %';
+CREATE INDEX ON lt_asset_index (n);
+
+-- ---------------------------------------------------------------------------------------------------------------
+-- assignment history: about a fifth of the assets carry most of it
+-- ---------------------------------------------------------------------------------------------------------------
+
+CREATE TEMP TABLE lt_assignment AS
+SELECT i AS n,
+       1 + floor((SELECT count(*) FROM lt_asset_index) * power(random(), 3))::bigint AS asset_n,
+       floor(random() * 1700)::int AS day,
+       random() AS state_pick,
+       random() AS user_pick,
+       random() AS admin_pick
+FROM generate_series(1, :assignments) i;
+
+CREATE TEMP TABLE lt_assignment_row AS
+SELECT g.n, x.assetcode, x.locationid, x.state AS asset_state, g.day, g.state_pick, g.user_pick, g.admin_pick,
+       row_number() OVER (PARTITION BY g.asset_n ORDER BY g.day DESC, g.n DESC) AS newest
+FROM lt_assignment g
+JOIN lt_asset_index x ON x.n = g.asset_n;
+
+INSERT INTO assignments (assignmentid, assigneddate, isdeleted, note, state, assetcode, assignedby, assignedto)
+SELECT (SELECT last_value FROM hibernate_sequence) + r.n,
+       timestamp '2017-01-01' + r.day * interval '1 day',
+       false,
+       'Load test assignment ' || r.n,
+       (CASE
+            -- the newest assignment of an available asset stays open 70% of the time
+            WHEN r.newest = 1 AND r.asset_state = 1 AND r.state_pick < 0.63 THEN 1
+            WHEN r.newest = 1 AND r.asset_state = 1 AND r.state_pick < 0.70 THEN 2
+            WHEN r.state_pick > 0.97 THEN 3
+            ELSE 4 END)::smallint,
+       r.assetcode,
+       ab.staffcode,
+       au.staffcode
+FROM lt_assignment_row r
+JOIN lt_location_user_count cu ON cu.locationid = r.locationid AND cu.roleid = 1001
+JOIN lt_location_user_count ca ON ca.locationid = r.locationid AND ca.roleid = 1002
+JOIN lt_location_user au ON au.locationid = r.locationid AND au.roleid = 1001
+        AND au.n = 1 + floor(cu.users * power(r.user_pick, 1.5))::bigint
+JOIN lt_location_user ab ON ab.locationid = r.locationid AND ab.roleid = 1002
+        AND ab.n = 1 + floor(ca.users * r.admin_pick)::bigint;
+
+UPDATE assets a SET state = 3
+WHERE EXISTS (SELECT 1 FROM assignments s WHERE s.assetcode = a.assetcode AND s.state IN (1, 2));
+
+-- ---------------------------------------------------------------------------------------------------------------
+-- return requests
+-- ---------------------------------------------------------------------------------------------------------------
+
+INSERT INTO requests (requestid, isdeleted, returneddate, state, acceptedby, assignmentid, requestedby)
+SELECT (SELECT max(assignmentid) FROM assignments) + row_number() OVER (ORDER BY s.assignmentid),
+       false,
+       CASE WHEN s.state = 4 THEN s.assigneddate + (7 + s.assignmentid % 300) * interval '1 day' END,
+       (CASE WHEN s.state = 4 THEN 2 ELSE 1 END)::smallint,
+       CASE WHEN s.state = 4 THEN s.assignedby END,
+       s.assignmentid,
+       s.assignedto
+FROM assignments s
+WHERE s.note LIKE 'Load test assignment %'
+  AND (s.state = 4 OR (s.state = 1 AND s.assignmentid % 20 = 0));
+
+SELECT setval('hibernate_sequence', (SELECT max(requestid) FROM requests) + 1);
+
+ANALYZE;
+
+-- ---------------------------------------------------------------------------------------------------------------
+-- inputs of LoadDriver.java
+-- ---------------------------------------------------------------------------------------------------------------
+
+\copy (SELECT u.username, u.staffcode, u.locationid, r.rolename FROM users u JOIN roles r ON r.roleid = u.roleid WHERE u.staffcode LIKE 'LT%' AND NOT u.isdeleted ORDER BY u.staffcode) TO 'users.csv' WITH CSV HEADER
+\copy (SELECT assetcode, locationid FROM lt_asset_index WHERE n % 50 = 0 ORDER BY n) TO 'assets.csv' WITH CSV HEADER
+
+SELECT (SELECT count(*) FROM users WHERE staffcode LIKE 'LT%') AS users,
+       (SELECT count(*) FROM lt_asset_index) AS assets,
+       (SELECT count(*) FROM assignments WHERE note LIKE 'Load test assignment %') AS assignments,
+       (SELECT count(*) FROM requests r JOIN assignments s ON s.assignmentid = r.assignmentid
+        WHERE s.note LIKE 'Load test assignment %') AS requests;
@@ -0,0 +1,129 @@
+-- Keyword search benchmark: the MATCH queries of the asset/assignment/request filter endpoints with and without
+-- the pg_trgm indexes.
+--
+-- Run against an EMPTY scratch database that has src/main/resources/schema.sql loaded:
+--   createdb assetsearchbench
+--   psql -d assetsearchbench -f src/main/resources/schema.sql
+--   psql -d assetsearchbench -f benchmark/search/trigram_search.sql > benchmark/search/result.txt
+--
+-- Each query is run with EXPLAIN (ANALYZE, BUFFERS) three times per phase, compare the "Execution Time" lines of
+-- the last run of the BEFORE and AFTER phases. The sizes below can be scaled with the psql variables.
+
+\set locations 3
+\set users 100000
+\set assets 1000000
+\set assignments 1000000
+\set requests 300000
+\set keyword '''%ptop 4711%'''
+\set user_keyword '''%ser4711%'''
+
+\timing on
+
+-- ---------------------------------------------------------------------------------------------------------------
+-- dataset
+-- ---------------------------------------------------------------------------------------------------------------
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+INSERT INTO locations (locationid, address)
+SELECT i, 'Location ' || i FROM generate_series(1, :locations) i;
+
+INSERT INTO roles (roleid, rolename) VALUES (1, 'ROLE_ADMIN'), (2, 'ROLE_USER');
+
+INSERT INTO categories (categorycode, categoryname)
+SELECT code, name FROM (VALUES ('LA', 'Laptop'), ('MO', 'Monitor'), ('PC', 'Personal Computer'),
+        ('HD', 'Headset'), ('KB', 'Keyboard')) c(code, name);
+
+INSERT INTO users (staffcode, dateofbirth, firstlogin, firstname, gender, isdeleted, joineddate, lastname, password,
+        username, locationid, roleid)
+SELECT 'SD' || lpad(i::text, 6, '0'), timestamp '1990-01-01' + (i % 7000) * interval '1 day', false,
+       'First' || i, 'Male', i % 50 = 0, timestamp '2015-01-01' + (i % 2000) * interval '1 day', 'Last' || i,
+       'x', 'user' || i, 1 + i % :locations, CASE WHEN i % 100 = 0 THEN 1 ELSE 2 END
+FROM generate_series(1, :users) i;
+
+INSERT INTO assets (assetcode, assetname, installdate, isdeleted, specification, state, categorycode, locationid)
+SELECT c.code || lpad(i::text, 7, '0'), c.name || ' ' || i, timestamp '2018-01-01' + (i % 1000) * interval '1 day',
+       i % 40 = 0, 'Spec ' || i, (1 + i % 5)::smallint, c.code, 1 + i % :locations
+FROM generate_series(1, :assets) i
+CROSS JOIN LATERAL (SELECT (ARRAY['LA', 'MO', 'PC', 'HD', 'KB'])[1 + i % 5] AS code,
+        (ARRAY['Laptop', 'Monitor', 'Personal Computer', 'Headset', 'Keyboard'])[1 + i % 5] AS name) c;
+
+INSERT INTO assignments (assignmentid, assigneddate, isdeleted, note, state, assetcode, assignedby, assignedto)
+SELECT i, timestamp '2021-01-01' + (i % 365) * interval '1 day', i % 30 = 0, 'note', (1 + i % 4)::smallint,
+       (ARRAY['LA', 'MO', 'PC', 'HD', 'KB'])[1 + (i % :assets) % 5] || lpad((i % :assets)::text, 7, '0'),
+       'SD' || lpad((100 * (1 + i % 900))::text, 6, '0'), 'SD' || lpad((1 + (i * 7) % :users)::text, 6, '0')
+FROM generate_series(1, :assignments) i
+WHERE i % :assets <> 0;
+
+INSERT INTO requests (requestid, isdeleted, returneddate, state, acceptedby, assignmentid, requestedby)
+SELECT s.assignmentid, s.assignmentid % 20 = 0, s.assigneddate + interval '30 days',
+       (1 + s.assignmentid % 2)::smallint, s.assignedby, s.assignmentid, s.assignedto
+FROM assignments s
+WHERE s.assignmentid <= :requests;
+
+ANALYZE;
+
+-- ---------------------------------------------------------------------------------------------------------------
+-- queries, the same SQL Hibernate emits for the specs (previous shape: LIKE through the joins, current shape:
+-- LIKE in an IN subquery per table)
+-- ---------------------------------------------------------------------------------------------------------------
+
+\set asset_search 'SELECT a.assetcode FROM assets a WHERE a.locationid = 1 AND a.isdeleted = false AND (lower(a.assetcode) LIKE ' :keyword ' ESCAPE ''\\'' OR lower(a.assetname) LIKE ' :keyword ' ESCAPE ''\\'') ORDER BY a.assetcode LIMIT 20'
+
+\set assignment_search_joined 'SELECT s.assignmentid FROM assignments s JOIN users b ON b.staffcode = s.assignedby JOIN assets a1 ON a1.assetcode = s.assetcode JOIN assets a2 ON a2.assetcode = s.assetcode JOIN users t ON t.staffcode = s.assignedto WHERE b.locationid = 1 AND s.isdeleted = false AND (lower(a1.assetcode) LIKE ' :keyword ' OR lower(a2.assetname) LIKE ' :keyword ' OR lower(t.username) LIKE ' :user_keyword ') ORDER BY s.assignmentid LIMIT 20'
+
+\set assignment_search 'SELECT s.assignmentid FROM assignments s JOIN users b ON b.staffcode = s.assignedby WHERE b.locationid = 1 AND s.isdeleted = false AND (s.assetcode IN (SELECT a.assetcode FROM assets a WHERE lower(a.assetcode) LIKE ' :keyword ' ESCAPE ''\\'') OR s.assetcode IN (SELECT a.assetcode FROM assets a WHERE lower(a.assetname) LIKE ' :keyword ' ESCAPE ''\\'') OR s.assignedto IN (SELECT u.staffcode FROM users u WHERE lower(u.username) LIKE ' :user_keyword ' ESCAPE ''\\'')) ORDER BY s.assignmentid LIMIT 20'
+
+\set request_search_joined 'SELECT r.requestid FROM requests r JOIN users rb ON rb.staffcode = r.requestedby JOIN assignments s ON s.assignmentid = r.assignmentid JOIN assets a1 ON a1.assetcode = s.assetcode JOIN assignments s2 ON s2.assignmentid = r.assignmentid JOIN assets a2 ON a2.assetcode = s2.assetcode JOIN users u ON u.staffcode = r.requestedby WHERE rb.locationid = 1 AND r.isdeleted = false AND (lower(a1.assetcode) LIKE ' :keyword ' OR lower(a2.assetname) LIKE ' :keyword ' OR lower(u.username) LIKE ' :user_keyword ') ORDER BY r.requestid LIMIT 20'
+
+\set request_search 'SELECT r.requestid FROM requests r JOIN users rb ON rb.staffcode = r.requestedby JOIN assignments s ON s.assignmentid = r.assignmentid WHERE rb.locationid = 1 AND r.isdeleted = false AND (s.assetcode IN (SELECT a.assetcode FROM assets a WHERE lower(a.assetcode) LIKE ' :keyword ' ESCAPE ''\\'') OR s.assetcode IN (SELECT a.assetcode FROM assets a WHERE lower(a.assetname) LIKE ' :keyword ' ESCAPE ''\\'') OR r.requestedby IN (SELECT u.staffcode FROM users u WHERE lower(u.username) LIKE ' :user_keyword ' ESCAPE ''\\'')) ORDER BY r.requestid LIMIT 20'
+
+-- ---------------------------------------------------------------------------------------------------------------
+-- BEFORE: no trigram indexes
+-- ---------------------------------------------------------------------------------------------------------------
+
+DROP INDEX IF EXISTS asset_assetcode_trgm_idx;
+DROP INDEX IF EXISTS asset_assetname_trgm_idx;
+DROP INDEX IF EXISTS user_username_trgm_idx;
+ANALYZE assets;
+ANALYZE users;
+
+\echo '===== BEFORE: asset search'
+EXPLAIN (ANALYZE, BUFFERS) :asset_search;
+EXPLAIN (ANALYZE, BUFFERS) :asset_search;
+EXPLAIN (ANALYZE, BUFFERS) :asset_search;
+
+\echo '===== BEFORE: assignment search (joined)'
+EXPLAIN (ANALYZE, BUFFERS) :assignment_search_joined;
+EXPLAIN (ANALYZE, BUFFERS) :assignment_search_joined;
+EXPLAIN (ANALYZE, BUFFERS) :assignment_search_joined;
+
+\echo '===== BEFORE: request search (joined)'
+EXPLAIN (ANALYZE, BUFFERS) :request_search_joined;
+EXPLAIN (ANALYZE, BUFFERS) :request_search_joined;
+EXPLAIN (ANALYZE, BUFFERS) :request_search_joined;
+
+-- ---------------------------------------------------------------------------------------------------------------
+-- AFTER: trigram indexes (same statements as SearchIndexInitializer) and the subquery shape
+-- ---------------------------------------------------------------------------------------------------------------
+
+CREATE INDEX IF NOT EXISTS asset_assetcode_trgm_idx ON assets USING gin (lower(assetcode) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS asset_assetname_trgm_idx ON assets USING gin (lower(assetname) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS user_username_trgm_idx ON users USING gin (lower(username) gin_trgm_ops);
+ANALYZE assets;
+ANALYZE users;
+
+\echo '===== AFTER: asset search'
+EXPLAIN (ANALYZE, BUFFERS) :asset_search;
+EXPLAIN (ANALYZE, BUFFERS) :asset_search;
+EXPLAIN (ANALYZE, BUFFERS) :asset_search;
+
+\echo '===== AFTER: assignment search (subquery)'
+EXPLAIN (ANALYZE, BUFFERS) :assignment_search;
+EXPLAIN (ANALYZE, BUFFERS) :assignment_search;
+EXPLAIN (ANALYZE, BUFFERS) :assignment_search;
+
+\echo '===== AFTER: request search (subquery)'
+EXPLAIN (ANALYZE, BUFFERS) :request_search;
+EXPLAIN (ANALYZE, BUFFERS) :request_search;
+EXPLAIN (ANALYZE, BUFFERS) :request_search;
@@ -0,0 +1,97 @@
+package com.nashtech.rootkies.benchmark;
+
+import com.nashtech.rootkies.generator.AssetCodeGenerator;
+import com.nashtech.rootkies.model.Asset;
+import com.nashtech.rootkies.model.Category;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Asset code allocation under concurrent inserts. The counter UPDATE is replaced by an in memory counter that
+// waits reserveMicros to stand in for the database round trip, so blockSize shows how often threads queue
+// behind a reservation.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class AssetCodeGeneratorBenchmark {
+
+    private static final String[] CATEGORY_CODES = { "LA", "MO", "PC", "PR", "KB", "MS", "HS", "TB" };
+
+    @Param({ "1", "50" })
+    public int blockSize;
+
+    @Param({ "0", "500" })
+    public long reserveMicros;
+
+    // categories the inserts are spread over
+    @Param({ "1", "8" })
+    public int categories;
+
+    private AssetCodeGenerator generator;
+
+    private Asset[] assets;
+
+    @Setup
+    public void setUp() {
+        generator = new InMemoryAssetCodeGenerator(blockSize, TimeUnit.MICROSECONDS.toNanos(reserveMicros));
+        Properties params = new Properties();
+        params.setProperty(AssetCodeGenerator.BLOCK_SIZE_PARAMETER, String.valueOf(blockSize));
+        generator.configure(null, params, null);
+        assets = new Asset[categories];
+        for (int i = 0; i < categories; i++) {
+            assets[i] = Asset.builder()
+                    .category(Category.builder().categoryCode(CATEGORY_CODES[i]).build())
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public Serializable generate() {
+        return generator.generate(null, assets[ThreadLocalRandom.current().nextInt(assets.length)]);
+    }
+
+    private static class InMemoryAssetCodeGenerator extends AssetCodeGenerator {
+
+        private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+        private final int blockSize;
+
+        private final long reserveNanos;
+
+        InMemoryAssetCodeGenerator(int blockSize, long reserveNanos) {
+            this.blockSize = blockSize;
+            this.reserveNanos = reserveNanos;
+        }
+
+        @Override
+        protected long reserve(SharedSessionContractImplementor session, String categoryCode) {
+            if (reserveNanos > 0) {
+                LockSupport.parkNanos(reserveNanos);
+            }
+            return counters.computeIfAbsent(categoryCode, code -> new AtomicLong()).addAndGet(blockSize);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.nashtech.rootkies.benchmark;
+
+import com.nashtech.rootkies.converter.AssetConverter;
+import com.nashtech.rootkies.converter.AssignmentConverter;
+import com.nashtech.rootkies.converter.RequestConverter;
+import com.nashtech.rootkies.dto.asset.response.DetailAssetDTO;
+import com.nashtech.rootkies.dto.asset.response.ViewAssetDTO;
+import com.nashtech.rootkies.dto.assignment.response.ViewAssignmentDTO;
+import com.nashtech.rootkies.dto.request.response.ViewRequestDTO;
+import com.nashtech.rootkies.enums.ERole;
+import com.nashtech.rootkies.enums.Gender;
+import com.nashtech.rootkies.model.Asset;
+import com.nashtech.rootkies.model.Assignment;
+import com.nashtech.rootkies.model.Category;
+import com.nashtech.rootkies.model.Location;
+import com.nashtech.rootkies.model.Request;
+import com.nashtech.rootkies.model.Role;
+import com.nashtech.rootkies.model.User;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Compares the hand written converters with the ModelMapper mapping they replaced, one op is one page
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConverterBenchmark {
+
+    @Param({ "20", "100" })
+    public int pageSize;
+
+    private ModelMapper modelMapper;
+
+    private AssetConverter assetConverter;
+
+    private AssignmentConverter assignmentConverter;
+
+    private RequestConverter requestConverter;
+
+    private List<Asset> assets;
+
+    private List<Assignment> assignments;
+
+    private List<Request> requests;
+
+    private List<Object[]> detailRows;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        assetConverter = new AssetConverter();
+        assignmentConverter = new AssignmentConverter();
+        requestConverter = new RequestConverter();
+
+        Location location = Location.builder().locationId(101L).address("HCM").build();
+        Category category = Category.builder().categoryCode("LA").categoryName("Laptop").build();
+        Role role = Role.builder().id(1001L).roleName(ERole.ROLE_USER).build();
+        User admin = user("SD0001", "admin", role, location);
+        User staff = user("SD0002", "staff", role, location);
+
+        assets = new ArrayList<>();
+        assignments = new ArrayList<>();
+        requests = new ArrayList<>();
+        for (int i = 0; i < pageSize; i++) {
+            Asset asset = Asset.builder()
+                    .assetCode(String.format("LA%06d", i))
+                    .assetName("Laptop " + i)
+                    .state(com.nashtech.rootkies.constants.State.ASSIGNED)
+                    .installDate(LocalDateTime.of(2021, 1, 1, 0, 0))
+                    .location(location)
+                    .specification("Core i5, 8GB RAM")
+                    .isDeleted(false)
+                    .category(category)
+                    .build();
+            List<Assignment> assetAssignments = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                Assignment assignment = Assignment.builder()
+                        .assignmentId((long) (i * 3 + j))
+                        .assignedTo(staff)
+                        .assignedBy(admin)
+                        .assignedDate(LocalDateTime.of(2021, 8, 1, 0, 0).plusDays(j))
+                        .state(com.nashtech.rootkies.constants.State.ACCEPTED)
+                        .note("note")
+                        .asset(asset)
+                        .isDeleted(j == 0)
+                        .build();
+                Request request = Request.builder()
+                        .requestId((long) (i * 3 + j))
+                        .requestedBy(staff)
+                        .acceptedBy(admin)
+                        .returnedDate(LocalDateTime.of(2021, 9, 1, 0, 0))
+                        .state(com.nashtech.rootkies.constants.State.COMPLETED)
+                        .assignment(assignment)
+                        .isDeleted(false)
+                        .build();
+                List<Request> assignmentRequests = new ArrayList<>();
+                assignmentRequests.add(request);
+                assignment.setRequests(assignmentRequests);
+                assignment.setActiveRequests(assignmentRequests);
+                assetAssignments.add(assignment);
+                assignments.add(assignment);
+                requests.add(request);
+            }
+            asset.setAssignments(assetAssignments);
+            assets.add(asset);
+        }
+        assignments = assignments.subList(0, pageSize);
+        requests = requests.subList(0, pageSize);
+
+        detailRows = new ArrayList<>();
+        for (Assignment assignment : assets.get(0).getAssignments()) {
+            if (!assignment.getIsDeleted()) {
+                for (Request request : assignment.getRequests()) {
+                    detailRows.add(new Object[] { assignment, request });
+                }
+            }
+        }
+    }
+
+    private static User user(String staffCode, String username, Role role, Location location) {
+        return User.builder()
+                .staffCode(staffCode)
+                .username(username)
+                .firstName("First")
+                .lastName("Last")
+                .dateOfBirth(LocalDateTime.of(1990, 1, 1, 0, 0))
+                .joinedDate(LocalDateTime.of(2020, 1, 1, 0, 0))
+                .gender(Gender.Male)
+                .role(role)
+                .location(location)
+                .firstLogin(false)
+                .isDeleted(false)
+                .build();
+    }
+
+    @Benchmark
+    public List<ViewAssetDTO> viewAssetModelMapper() {
+        return assets.stream().map(asset -> modelMapper.map(asset, ViewAssetDTO.class)).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<ViewAssetDTO> viewAssetHandWritten() throws Exception {
+        return assetConverter.convertToListDTO(assets);
+    }
+
+    @Benchmark
+    public DetailAssetDTO detailAssetModelMapper() {
+        return modelMapper.map(assets.get(0), DetailAssetDTO.class);
+    }
+
+    @Benchmark
+    public DetailAssetDTO detailAssetHandWritten() throws Exception {
+        return assetConverter.convertToDetailDTO(assets.get(0), detailRows, assets.get(0).getAssignments().size());
+    }
+
+    @Benchmark
+    public List<ViewAssignmentDTO> viewAssignmentModelMapper() {
+        return assignments.stream().map(assignment -> modelMapper.map(assignment, ViewAssignmentDTO.class))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<ViewAssignmentDTO> viewAssignmentHandWritten() throws Exception {
+        return assignmentConverter.convertToListDTO(assignments);
+    }
+
+    @Benchmark
+    public List<ViewRequestDTO> viewRequestModelMapper() {
+        return requests.stream().map(request -> modelMapper.map(request, ViewRequestDTO.class))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<ViewRequestDTO> viewRequestHandWritten() throws Exception {
+        return requestConverter.convertToListDTO(requests);
+    }
+}
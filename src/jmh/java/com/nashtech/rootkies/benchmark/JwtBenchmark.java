@@ -0,0 +1,96 @@
+package com.nashtech.rootkies.benchmark;
+
+import com.nashtech.rootkies.security.jwt.JwtPrincipal;
+import com.nashtech.rootkies.security.jwt.JwtUtils;
+import com.nashtech.rootkies.security.service.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Token handling per authenticated request, one op is one request: the previous three parses with a fresh parser
+// (filter validate, filter username, controller claims), one verification with the shared parser, and the
+// verification behind the digest cache over a pool of live tokens. Also the signing done on sign in.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private static final String SECRET = "bezKoderSecretKey";
+
+    // distinct users sending requests
+    @Param({ "100", "5000" })
+    public int tokens;
+
+    private JwtUtils jwtUtils;
+
+    private JwtUtils cachingJwtUtils;
+
+    private String[] pool;
+
+    private Authentication authentication;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils(SECRET, 86400000, 0);
+        cachingJwtUtils = new JwtUtils(SECRET, 86400000, 1024);
+        pool = new String[tokens];
+        for (int i = 0; i < tokens; i++) {
+            UserDetailsImpl user = new UserDetailsImpl("SD" + i, "user" + i, "x", "First", "Last",
+                    LocalDateTime.of(1990, 1, 1, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0), "Male", 1L,
+                    "ROLE_USER", true, false);
+            authentication = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+            pool[i] = jwtUtils.generateJwtToken(authentication);
+        }
+    }
+
+    private String token() {
+        return pool[Math.floorMod(next.getAndIncrement(), pool.length)];
+    }
+
+    @Benchmark
+    public Object parsedThreeTimes() {
+        String jwt = token();
+        Jwts.parser().setSigningKey(SECRET).parseClaimsJws(jwt);
+        String username = Jwts.parser().setSigningKey(SECRET).parseClaimsJws(jwt).getBody().getSubject();
+        Claims claims = Jwts.parser().setSigningKey(SECRET).parseClaimsJws(jwt).getBody();
+        return claims.get(JwtUtils.CLAIM_STAFF_CODE, String.class) + username;
+    }
+
+    @Benchmark
+    public JwtPrincipal verifiedOnce() {
+        return jwtUtils.verifyJwtToken(token());
+    }
+
+    @Benchmark
+    public JwtPrincipal verifiedOnceCached() {
+        return cachingJwtUtils.verifyJwtToken(token());
+    }
+
+    @Benchmark
+    public String generated() {
+        return jwtUtils.generateJwtToken(authentication);
+    }
+}
@@ -0,0 +1,180 @@
+package com.nashtech.rootkies.benchmark;
+
+import com.nashtech.rootkies.constants.State;
+import com.nashtech.rootkies.model.Asset;
+import com.nashtech.rootkies.model.AssetCodeCounter;
+import com.nashtech.rootkies.model.Assignment;
+import com.nashtech.rootkies.model.Category;
+import com.nashtech.rootkies.model.Location;
+import com.nashtech.rootkies.model.Request;
+import com.nashtech.rootkies.model.Role;
+import com.nashtech.rootkies.model.User;
+import com.nashtech.rootkies.repository.specs.AssetSpecification;
+import com.nashtech.rootkies.repository.specs.AssignmentSpecification;
+import com.nashtech.rootkies.repository.specs.SearchCriteria;
+import com.nashtech.rootkies.repository.specs.SearchOperation;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.PostgreSQL10Dialect;
+import org.hibernate.engine.jdbc.connections.internal.UserSuppliedConnectionProviderImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Building the filter-search-sort Specifications the way AssetServiceImpl and AssignmentServiceImpl do, turning
+// them into a criteria predicate, and compiling the criteria query to SQL. Hibernate runs against the entity
+// mapping only, no connection is ever opened.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class SpecificationBenchmark {
+
+    private static final Long LOCATION_ID = 101L;
+
+    // whether the search box is filled, which adds the OR-ed MATCH specifications
+    @Param({ "false", "true" })
+    public boolean keyword;
+
+    private SessionFactory sessionFactory;
+
+    private Session session;
+
+    private CriteriaBuilder builder;
+
+    @Setup
+    public void setUp() {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DIALECT, PostgreSQL10Dialect.class.getName())
+                .applySetting(AvailableSettings.CONNECTION_PROVIDER,
+                        UserSuppliedConnectionProviderImpl.class.getName())
+                .applySetting("hibernate.temp.use_jdbc_metadata_defaults", "false")
+                .applySetting(AvailableSettings.JPA_VALIDATION_MODE, "none")
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass(Asset.class)
+                .addAnnotatedClass(AssetCodeCounter.class)
+                .addAnnotatedClass(Assignment.class)
+                .addAnnotatedClass(Category.class)
+                .addAnnotatedClass(Location.class)
+                .addAnnotatedClass(Request.class)
+                .addAnnotatedClass(Role.class)
+                .addAnnotatedClass(User.class)
+                .buildMetadata()
+                .buildSessionFactory();
+        session = sessionFactory.openSession();
+        builder = sessionFactory.getCriteriaBuilder();
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.close();
+        sessionFactory.close();
+    }
+
+    private Specification<Asset> assetSpecification() {
+        AssetSpecification assetLocation = new AssetSpecification();
+        assetLocation.add(new SearchCriteria("location", LOCATION_ID, SearchOperation.EQUAL));
+        AssetSpecification assetIsDeleted = new AssetSpecification();
+        assetIsDeleted.add(new SearchCriteria("isDeleted", false, SearchOperation.EQUAL));
+        AssetSpecification assetState = new AssetSpecification();
+        assetState.add(new SearchCriteria("state", List.of(State.AVAILABLE, State.ASSIGNED), SearchOperation.IN));
+        AssetSpecification assetCategoryCode = new AssetSpecification();
+        assetCategoryCode.add(new SearchCriteria("category", List.of("LA", "MO"), SearchOperation.IN));
+
+        Specification<Asset> spec = Specification.where(assetLocation).and(assetIsDeleted).and(assetState)
+                .and(assetCategoryCode);
+        if (keyword) {
+            AssetSpecification assetCode = new AssetSpecification();
+            assetCode.add(new SearchCriteria("assetCode", "lap", SearchOperation.MATCH));
+            AssetSpecification assetName = new AssetSpecification();
+            assetName.add(new SearchCriteria("assetName", "lap", SearchOperation.MATCH));
+            spec = spec.and(Specification.where(assetCode).or(assetName));
+        }
+        return spec;
+    }
+
+    private Specification<Assignment> assignmentSpecification() {
+        AssignmentSpecification assignmentLocation = new AssignmentSpecification();
+        assignmentLocation.add(new SearchCriteria("assignedBy", LOCATION_ID, SearchOperation.EQUAL));
+        AssignmentSpecification assignmentIsDeleted = new AssignmentSpecification();
+        assignmentIsDeleted.add(new SearchCriteria("isDeleted", false, SearchOperation.EQUAL));
+        AssignmentSpecification assignmentHadCompletedAssetHadReturned = new AssignmentSpecification();
+        assignmentHadCompletedAssetHadReturned.add(new SearchCriteria("state",
+                State.ASSIGNMENT_HAD_COMPLETED_ASSET_HAD_RETURNED, SearchOperation.NOT_EQUAL));
+        AssignmentSpecification date = new AssignmentSpecification();
+        date.add(new SearchCriteria("assignedDate", LocalDateTime.of(2021, 8, 1, 0, 0), SearchOperation.EQUAL));
+
+        Specification<Assignment> spec = Specification.where(assignmentLocation).and(assignmentIsDeleted)
+                .and(assignmentHadCompletedAssetHadReturned).and(date);
+        if (keyword) {
+            AssignmentSpecification assetCode = new AssignmentSpecification();
+            assetCode.add(new SearchCriteria("assetCode", "lap", SearchOperation.MATCH));
+            AssignmentSpecification assetName = new AssignmentSpecification();
+            assetName.add(new SearchCriteria("assetName", "lap", SearchOperation.MATCH));
+            AssignmentSpecification assignedTo = new AssignmentSpecification();
+            assignedTo.add(new SearchCriteria("assignedTo", "lap", SearchOperation.MATCH));
+            spec = spec.and(Specification.where(assetCode).or(assetName).or(assignedTo));
+        }
+        return spec;
+    }
+
+    private <T> CriteriaQuery<T> criteria(Class<T> entity, Specification<T> specification) {
+        CriteriaQuery<T> query = builder.createQuery(entity);
+        Root<T> root = query.from(entity);
+        query.where(specification.toPredicate(root, query, builder));
+        return query;
+    }
+
+    @Benchmark
+    public Specification<Asset> assetSpecificationBuilt() {
+        return assetSpecification();
+    }
+
+    @Benchmark
+    public CriteriaQuery<Asset> assetPredicateBuilt() {
+        return criteria(Asset.class, assetSpecification());
+    }
+
+    @Benchmark
+    public Object assetQueryCompiled() {
+        return session.createQuery(criteria(Asset.class, assetSpecification()));
+    }
+
+    @Benchmark
+    public Specification<Assignment> assignmentSpecificationBuilt() {
+        return assignmentSpecification();
+    }
+
+    @Benchmark
+    public CriteriaQuery<Assignment> assignmentPredicateBuilt() {
+        return criteria(Assignment.class, assignmentSpecification());
+    }
+
+    @Benchmark
+    public Object assignmentQueryCompiled() {
+        return session.createQuery(criteria(Assignment.class, assignmentSpecification()));
+    }
+}
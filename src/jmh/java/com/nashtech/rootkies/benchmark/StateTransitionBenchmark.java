@@ -0,0 +1,248 @@
+package com.nashtech.rootkies.benchmark;
+
+import com.nashtech.rootkies.Application;
+import com.nashtech.rootkies.constants.State;
+import com.nashtech.rootkies.model.User;
+import com.nashtech.rootkies.repository.AssetRepository;
+import com.nashtech.rootkies.repository.AssignmentRepository;
+import com.nashtech.rootkies.repository.RequestRepository;
+import com.nashtech.rootkies.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// State transitions under contention against a real Postgres: the compare-and-set statements of AssetRepository,
+// AssignmentRepository and RequestRepository next to the SELECT ... FOR UPDATE, check, UPDATE transaction they
+// replaced. Every operation moves a random one of hotRows seeded rows and moves it back, threads that pick the same
+// row concurrently lose (compare-and-set) or queue behind the row lock (FOR UPDATE); fewer hotRows, more contention.
+//
+// Boots the application without the web layer against the load test database of benchmark/loadtest/dataset.sql,
+// or any database holding schema.sql and data.sql. Never point it at a shared one, it writes.
+//   BENCHMARK_DATASOURCE_URL=jdbc:postgresql://localhost:5432/assetloadtest \
+//       mvn -Pbenchmark test-compile exec:exec -Djmh.includes=StateTransitionBenchmark
+// BENCHMARK_DATASOURCE_USERNAME and BENCHMARK_DATASOURCE_PASSWORD default to those of application-dev.properties.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class StateTransitionBenchmark {
+
+    private static final String CODE_PREFIX = "BENCHST";
+
+    // data.sql users of location 101
+    private static final String ASSIGNED_BY = "SD0001";
+
+    private static final String ASSIGNED_TO = "SD0002";
+
+    private static final String LOCK_ASSET_SQL = "SELECT state FROM assets "
+            + "WHERE assetcode = ? AND isdeleted = false FOR UPDATE";
+
+    private static final String SET_ASSET_STATE_SQL = "UPDATE assets SET state = ?, statechangeddate = now() "
+            + "WHERE assetcode = ?";
+
+    private static final String LOCK_ASSIGNMENT_SQL = "SELECT state FROM assignments "
+            + "WHERE assignmentid = ? AND isdeleted = false FOR UPDATE";
+
+    private static final String DELETE_ASSIGNMENT_SQL = "UPDATE assignments SET isdeleted = true "
+            + "WHERE assignmentid = ?";
+
+    private static final String UNDELETE_ASSIGNMENT_SQL = "UPDATE assignments SET isdeleted = false "
+            + "WHERE assignmentid = ?";
+
+    private static final String LOCK_REQUEST_SQL = "SELECT state FROM requests "
+            + "WHERE requestid = ? AND isdeleted = false FOR UPDATE";
+
+    private static final String COMPLETE_REQUEST_SQL = "UPDATE requests SET state = ?, acceptedby = ?, "
+            + "returneddate = now() WHERE requestid = ?";
+
+    private static final String REOPEN_REQUEST_SQL = "UPDATE requests SET state = ?, acceptedby = NULL, "
+            + "returneddate = NULL WHERE requestid = ?";
+
+    // rows the threads pick from
+    @Param({ "1", "16", "1024" })
+    public int hotRows;
+
+    private ConfigurableApplicationContext context;
+
+    private AssetRepository assetRepository;
+
+    private AssignmentRepository assignmentRepository;
+
+    private RequestRepository requestRepository;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    private User acceptedBy;
+
+    private String[] assetCodes;
+
+    private Long[] assignmentIds;
+
+    private Long[] requestIds;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + env("BENCHMARK_DATASOURCE_URL",
+                                "jdbc:postgresql://localhost:5432/assetloadtest"),
+                        "--spring.datasource.username=" + env("BENCHMARK_DATASOURCE_USERNAME", "postgres"),
+                        "--spring.datasource.password=" + env("BENCHMARK_DATASOURCE_PASSWORD", "password"),
+                        "--spring.datasource.hikari.maximum-pool-size=16",
+                        "--spring.jpa.hibernate.ddl-auto=none",
+                        "--bezkoder.app.lifecycle.enabled=false",
+                        "--logging.level.org.springframework=WARN");
+        assetRepository = context.getBean(AssetRepository.class);
+        assignmentRepository = context.getBean(AssignmentRepository.class);
+        requestRepository = context.getBean(RequestRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        acceptedBy = context.getBean(UserRepository.class).findById(ASSIGNED_BY).orElseThrow();
+
+        deleteSeededRows();
+        assetCodes = new String[hotRows];
+        assignmentIds = new Long[hotRows];
+        requestIds = new Long[hotRows];
+        for (int i = 0; i < hotRows; i++) {
+            assetCodes[i] = String.format("%s%06d", CODE_PREFIX, i);
+            jdbcTemplate.update("INSERT INTO assets (assetcode, assetname, installdate, isdeleted, specification, "
+                    + "state, categorycode, locationid) VALUES (?, 'State transition benchmark', now(), false, "
+                    + "'benchmark', ?, 'LA', 101)", assetCodes[i], State.AVAILABLE);
+            assignmentIds[i] = jdbcTemplate.queryForObject("INSERT INTO assignments (assignmentid, assigneddate, "
+                    + "isdeleted, note, state, assetcode, assignedby, assignedto) "
+                    + "VALUES (nextval('hibernate_sequence'), now(), false, 'benchmark', ?, ?, ?, ?) "
+                    + "RETURNING assignmentid", Long.class, State.WAITING_FOR_ACCEPTANCE, assetCodes[i],
+                    ASSIGNED_BY, ASSIGNED_TO);
+            requestIds[i] = jdbcTemplate.queryForObject("INSERT INTO requests (requestid, isdeleted, state, "
+                    + "assignmentid, requestedby) VALUES (nextval('hibernate_sequence'), false, ?, ?, ?) "
+                    + "RETURNING requestid", Long.class, State.WAITING_FOR_RETURNING, assignmentIds[i],
+                    ASSIGNED_TO);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        deleteSeededRows();
+        context.close();
+    }
+
+    @Benchmark
+    public boolean assetCompareAndSet() {
+        String assetCode = assetCodes[pick()];
+        if (assetRepository.compareAndSetState(assetCode, State.AVAILABLE, State.ASSIGNED) == 0) {
+            return false;
+        }
+        assetRepository.compareAndSetState(assetCode, State.ASSIGNED, State.AVAILABLE);
+        return true;
+    }
+
+    @Benchmark
+    public boolean assetSelectForUpdate() {
+        String assetCode = assetCodes[pick()];
+        if (!lockAndUpdate(LOCK_ASSET_SQL, assetCode, State.AVAILABLE, SET_ASSET_STATE_SQL, State.ASSIGNED,
+                assetCode)) {
+            return false;
+        }
+        lockAndUpdate(LOCK_ASSET_SQL, assetCode, State.ASSIGNED, SET_ASSET_STATE_SQL, State.AVAILABLE, assetCode);
+        return true;
+    }
+
+    @Benchmark
+    public boolean assignmentDeleteIfState() {
+        Long assignmentId = assignmentIds[pick()];
+        if (assignmentRepository.deleteIfState(assignmentId, State.WAITING_FOR_ACCEPTANCE) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(UNDELETE_ASSIGNMENT_SQL, assignmentId);
+        return true;
+    }
+
+    @Benchmark
+    public boolean assignmentSelectForUpdate() {
+        Long assignmentId = assignmentIds[pick()];
+        if (!lockAndUpdate(LOCK_ASSIGNMENT_SQL, assignmentId, State.WAITING_FOR_ACCEPTANCE, DELETE_ASSIGNMENT_SQL,
+                assignmentId)) {
+            return false;
+        }
+        jdbcTemplate.update(UNDELETE_ASSIGNMENT_SQL, assignmentId);
+        return true;
+    }
+
+    @Benchmark
+    public boolean requestCloseIfWaiting() {
+        Long requestId = requestIds[pick()];
+        if (requestRepository.closeIfWaiting(requestId, State.COMPLETED, false, acceptedBy,
+                LocalDateTime.now()) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(REOPEN_REQUEST_SQL, State.WAITING_FOR_RETURNING, requestId);
+        return true;
+    }
+
+    @Benchmark
+    public boolean requestSelectForUpdate() {
+        Long requestId = requestIds[pick()];
+        if (!lockAndUpdate(LOCK_REQUEST_SQL, requestId, State.WAITING_FOR_RETURNING, COMPLETE_REQUEST_SQL,
+                State.COMPLETED, ASSIGNED_BY, requestId)) {
+            return false;
+        }
+        jdbcTemplate.update(REOPEN_REQUEST_SQL, State.WAITING_FOR_RETURNING, requestId);
+        return true;
+    }
+
+    // environment rather than system properties, exec:exec and the JMH fork both pass it on
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    private int pick() {
+        return ThreadLocalRandom.current().nextInt(hotRows);
+    }
+
+    // the read-check-write the compare-and-set statements replaced: lock the row, check its state, update it
+    private boolean lockAndUpdate(String lockSql, Object key, Short expected, String updateSql,
+            Object... updateArgs) {
+        return transactionTemplate.execute(status -> {
+            List<Short> states = jdbcTemplate.queryForList(lockSql, Short.class, key);
+            if (states.isEmpty() || !expected.equals(states.get(0))) {
+                return false;
+            }
+            jdbcTemplate.update(updateSql, updateArgs);
+            return true;
+        });
+    }
+
+    private void deleteSeededRows() {
+        String seeded = CODE_PREFIX + "%";
+        jdbcTemplate.update("DELETE FROM requests WHERE assignmentid IN "
+                + "(SELECT assignmentid FROM assignments WHERE assetcode LIKE ?)", seeded);
+        jdbcTemplate.update("DELETE FROM assignments WHERE assetcode LIKE ?", seeded);
+        jdbcTemplate.update("DELETE FROM assets WHERE assetcode LIKE ?", seeded);
+    }
+}
@@ -0,0 +1,10 @@
+package com.nashtech.rootkies.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+// The cache manager itself is Spring Boot's Caffeine one, configured by the spring.cache.* properties
+@Configuration
+@EnableCaching
+public class CacheConfig {
+}
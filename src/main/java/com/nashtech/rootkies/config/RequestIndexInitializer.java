@@ -0,0 +1,50 @@
+package com.nashtech.rootkies.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// ddl-auto cannot create partial indexes, so the one allowing a single waiting return request per assignment is
+// created here. Two return requests for the same assignment checked at the same time both see none waiting under
+// READ COMMITTED, the index makes the second insert fail or, with ON CONFLICT DO NOTHING, skip. It is built
+// CONCURRENTLY like the search indexes, see SearchIndexInitializer. On a database that already holds duplicates
+// the build fails and the invalid index is dropped again on the next start; until they are closed or deleted
+// nothing stops new duplicates.
+@Component
+public class RequestIndexInitializer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestIndexInitializer.class);
+
+    public static final String INDEX_NAME = "request_assignmentid_waiting_idx";
+
+    private static final String INVALID_INDEX_SQL = "SELECT COUNT(*) FROM pg_index i "
+            + "JOIN pg_class c ON c.oid = i.indexrelid WHERE c.relname = ? AND NOT i.indisvalid";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public RequestIndexInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createRequestIndexes() {
+        String statement = INVALID_INDEX_SQL;
+        try {
+            Long invalid = jdbcTemplate.queryForObject(INVALID_INDEX_SQL, Long.class, INDEX_NAME);
+            if (invalid != null && invalid > 0) {
+                statement = "DROP INDEX CONCURRENTLY IF EXISTS " + INDEX_NAME;
+                jdbcTemplate.execute(statement);
+            }
+            statement = "CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS " + INDEX_NAME
+                    + " ON requests (assignmentid) WHERE state = 1 AND isdeleted = false";
+            jdbcTemplate.execute(statement);
+        } catch (Exception e) {
+            LOGGER.warn("Request index statement failed: {} ({})", statement, e.getMessage());
+        }
+    }
+}
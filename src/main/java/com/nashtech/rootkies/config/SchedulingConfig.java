@@ -0,0 +1,13 @@
+package com.nashtech.rootkies.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// The background lifecycle jobs (lifecycle.LifecycleJobRunner) only run where bezkoder.app.lifecycle.enabled is
+// true, never against the shared test database
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "bezkoder.app.lifecycle.enabled", havingValue = "true")
+public class SchedulingConfig {
+}
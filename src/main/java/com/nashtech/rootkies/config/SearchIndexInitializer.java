@@ -0,0 +1,58 @@
+package com.nashtech.rootkies.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// ddl-auto cannot create expression indexes, so the trigram indexes behind KeywordMatch are created here.
+// Creating the extension needs a privileged role, without it search still works and just scans. The indexes are
+// built CONCURRENTLY so writes to assets and users go on while they build on a populated database; that cannot run
+// in a transaction block, so this listener is not transactional and every statement autocommits. A concurrent
+// build that failed leaves an invalid index behind which IF NOT EXISTS would keep, it is dropped and built again.
+@Component
+public class SearchIndexInitializer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchIndexInitializer.class);
+
+    private static final String EXTENSION = "CREATE EXTENSION IF NOT EXISTS pg_trgm";
+
+    // index name and definition
+    private static final String[][] INDEXES = {
+            { "asset_assetcode_trgm_idx", "ON assets USING gin (lower(assetcode) gin_trgm_ops)" },
+            { "asset_assetname_trgm_idx", "ON assets USING gin (lower(assetname) gin_trgm_ops)" },
+            { "user_username_trgm_idx", "ON users USING gin (lower(username) gin_trgm_ops)" }
+    };
+
+    private static final String INVALID_INDEX_SQL = "SELECT COUNT(*) FROM pg_index i "
+            + "JOIN pg_class c ON c.oid = i.indexrelid WHERE c.relname = ? AND NOT i.indisvalid";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public SearchIndexInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createSearchIndexes() {
+        String statement = EXTENSION;
+        try {
+            jdbcTemplate.execute(statement);
+            for (String[] index : INDEXES) {
+                Long invalid = jdbcTemplate.queryForObject(INVALID_INDEX_SQL, Long.class, index[0]);
+                if (invalid != null && invalid > 0) {
+                    statement = "DROP INDEX CONCURRENTLY IF EXISTS " + index[0];
+                    jdbcTemplate.execute(statement);
+                }
+                statement = "CREATE INDEX CONCURRENTLY IF NOT EXISTS " + index[0] + " " + index[1];
+                jdbcTemplate.execute(statement);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Search index statement failed: {} ({})", statement, e.getMessage());
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.nashtech.rootkies.config;
 
+import com.nashtech.rootkies.security.CurrentUser;
+
 import org.springdoc.core.GroupedOpenApi;
+import org.springdoc.core.SpringDocUtils;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -20,6 +23,11 @@ import java.util.Collections;
 
 @Configuration
 public class SwaggerConfig {
+        // the caller is resolved from the bearer token, it is not a request parameter
+        static {
+                SpringDocUtils.getConfig().addAnnotationsToIgnore(CurrentUser.class);
+        }
+
         @Bean
         public OpenAPI customOpenAPI() {
                 return new OpenAPI()
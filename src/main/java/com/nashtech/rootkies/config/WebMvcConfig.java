@@ -0,0 +1,32 @@
+package com.nashtech.rootkies.config;
+
+import java.util.List;
+
+import com.nashtech.rootkies.monitoring.SqlStatisticsInterceptor;
+import com.nashtech.rootkies.security.CurrentUserArgumentResolver;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private CurrentUserArgumentResolver currentUserArgumentResolver;
+
+    @Autowired
+    private SqlStatisticsInterceptor sqlStatisticsInterceptor;
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(currentUserArgumentResolver);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(sqlStatisticsInterceptor);
+    }
+}
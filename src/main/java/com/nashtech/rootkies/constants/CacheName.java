@@ -0,0 +1,12 @@
+package com.nashtech.rootkies.constants;
+
+public class CacheName {
+    // Reference data, see ReferenceDataService
+    public static final String CATEGORIES = "categories";
+    public static final String CATEGORY = "category";
+    public static final String LOCATION = "location";
+    public static final String ROLE = "role";
+
+    // Own assignment pages of a staff user, see OwnAssignmentCache
+    public static final String OWN_ASSIGNMENTS = "ownAssignments";
+}
@@ -69,6 +69,12 @@ public class ErrorCode {
     public static final String ERR_ASSET_ALREADY_HAVE_ASSIGNMENT = "ERR_ASSET_ALREADY_HAVE_ASSIGNMENT";
     public static final String ERR_ASSET_DELETE_FAIL = "ERR_ASSET_DELETE_FAIL";
     public static final String ERR_ASSET_NOT_AVAILABLE = "ERR_ASSET_NOT_AVAILABLE";
+    public static final String ERR_IMPORT_FORMAT_NOT_SUPPORTED = "ERR_IMPORT_FORMAT_NOT_SUPPORTED";
+    public static final String ERR_IMPORT_HEADER_NOT_CORRECT = "ERR_IMPORT_HEADER_NOT_CORRECT";
+    public static final String ERR_IMPORT_ROW_MALFORMED = "ERR_IMPORT_ROW_MALFORMED";
+    public static final String ERR_IMPORT_ROW_NOT_SAVED = "ERR_IMPORT_ROW_NOT_SAVED";
+    public static final String ERR_IMPORT_ASSET_FAIL = "ERR_IMPORT_ASSET_FAIL";
+    public static final String ERR_EXPORT_FORMAT_NOT_SUPPORTED = "ERR_EXPORT_FORMAT_NOT_SUPPORTED";
 
     /** LOCATION **/
     public static final String ERR_LOCATION_NOT_FAIL = "ERR_LOCATION_NOT_FAIL";
@@ -99,6 +105,9 @@ public class ErrorCode {
     public static final String ASSIGNMENT_ALREADY_COMPLETE_RETURN = "ASSIGNMENT_ALREADY_COMPLETE_RETURN";
     public static final String ERR_OWN_ASSIGNMENT_DETAIL = "ERR_OWN_ASSIGNMENT_DETAIL";
     public static final String ERR_CONVERT_ASSIGNMENT_TO_DTO = "ERR_CONVERT_ASSIGNMENT_TO_DTO";
+    public static final String ERR_BULK_ASSIGNMENT_SIZE = "ERR_BULK_ASSIGNMENT_SIZE";
+    public static final String ERR_ASSET_DUPLICATED_IN_REQUEST = "ERR_ASSET_DUPLICATED_IN_REQUEST";
+    public static final String ERR_ASSIGNMENT_DUPLICATED_IN_REQUEST = "ERR_ASSIGNMENT_DUPLICATED_IN_REQUEST";
 
 
 
@@ -113,4 +122,8 @@ public class ErrorCode {
     public static final String ERR_CREATE_REQUEST_FAIL = "ERR_CREATE_REQUEST_FAIL";
     public static final String ERR_REQUEST_ASSIGNMENT_NOT_ACCEPT = "ERR_REQUEST_ASSIGNMENT_NOT_ACCEPT";
     public static final String ERR_CREATE_REQUEST_NOT_ALLOW = "ERR_CREATE_REQUEST_NOT_ALLOW";
+    public static final String ERR_REQUEST_ALREADY_WAITING = "ERR_REQUEST_ALREADY_WAITING";
+
+    // PAGING
+    public static final String ERR_INVALID_CURSOR = "ERR_INVALID_CURSOR";
 }
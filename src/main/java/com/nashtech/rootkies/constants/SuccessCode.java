@@ -23,6 +23,7 @@ public class SuccessCode {
     public static final String ASSET_ABLE_TO_DELETE = "ASSET_ABLE_TO_DELETE";
     public static final String GET_ASSET_SUCCESS = "GET_ASSET_SUCCESS";
     public static final String GET_REPORT_SUCCESS = "GET_REPORT_SUCCESS";
+    public static final String ASSET_IMPORTED_SUCCESS = "ASSET_IMPORTED_SUCCESS";
 
     /** USER **/
     public static final String GET_USER_SUCCESS = "GET_USER_SUCCESS";
@@ -36,6 +37,7 @@ public class SuccessCode {
     /** ASSIGNMENT **/
     public static final String CHECK_HAVE_ASSIGNMENT_SUCCESS = "CHECK_HAVE_ASSIGNMENT_SUCCESS";
     public static final String CREATE_ASSIGNMENT_SUCCESS = "CREATE_ASSIGNMENT_SUCCESS";
+    public static final String CREATE_ASSIGNMENTS_SUCCESS = "CREATE_ASSIGNMENTS_SUCCESS";
 
     // ASSIGNMENT
     public static final String ASSIGNMENT_COUNT_SUCCESS = "ASSIGNMENT_COUNT_SUCCESS";
@@ -44,6 +46,8 @@ public class SuccessCode {
     public static final String ASSIGNMENT_UPDATE_SUCCESS = "ASSIGNMENT_UPDATE_SUCCESS";
     public static final String ASSIGNMENT_ACCEPTED_SUCCESS = "ASSIGNMENT_ACCEPTED_SUCCESS";
     public static final String ASSIGNMENT_DECLINED_SUCCESS = "ASSIGNMENT_DECLINED_SUCCESS";
+    public static final String ASSIGNMENTS_ACCEPTED_SUCCESS = "ASSIGNMENTS_ACCEPTED_SUCCESS";
+    public static final String ASSIGNMENTS_DECLINED_SUCCESS = "ASSIGNMENTS_DECLINED_SUCCESS";
     public static final String LOAD_OWN_ASSIGNMENT_SUCCESS = "LOAD_OWN_ASSIGNMENT_SUCCESS";
     public static final String LOAD_OWN_ASSIGNMENT_DETAIL_SUCCESS = "LOAD_OWN_ASSIGNMENT_DETAIL_SUCCESS";
 
@@ -53,4 +57,5 @@ public class SuccessCode {
     public static final String REQUEST_LOADED_SUCCESS = "REQUEST_LOADED_SUCCESS";
     public static final String REQUEST_COUNT_SUCCESS = "REQUEST_COUNT_SUCCESS";
     public static final String REQUEST_CREATE_SUCCESS = "REQUEST_CREATE_SUCCESS";
+    public static final String REQUESTS_CREATE_SUCCESS = "REQUESTS_CREATE_SUCCESS";
 }
@@ -12,28 +12,35 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
-import javax.servlet.http.HttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import javax.validation.Valid;
+import java.io.InputStream;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.nashtech.rootkies.constants.ErrorCode;
 import com.nashtech.rootkies.constants.SuccessCode;
 import com.nashtech.rootkies.converter.AssetConverter;
-import com.nashtech.rootkies.converter.LocationConverter;
 import com.nashtech.rootkies.dto.asset.request.CreateAssetRequestDTO;
 import com.nashtech.rootkies.dto.asset.request.EditAssetRequest;
 import com.nashtech.rootkies.dto.asset.request.SearchFilterSortAssetDTO;
 import com.nashtech.rootkies.dto.asset.response.EditAssetDTO;
 import com.nashtech.rootkies.dto.common.ResponseDTO;
 import com.nashtech.rootkies.exception.*;
+import com.nashtech.rootkies.export.ExportFormat;
 import com.nashtech.rootkies.model.Asset;
+import com.nashtech.rootkies.monitoring.SqlBudget;
 import com.nashtech.rootkies.repository.specs.AssetsSpecificationBuilder;
-import com.nashtech.rootkies.security.jwt.JwtUtils;
+import com.nashtech.rootkies.security.CurrentUser;
+import com.nashtech.rootkies.security.jwt.JwtPrincipal;
+import com.nashtech.rootkies.service.AssetImportService;
 import com.nashtech.rootkies.service.AssetService;
+import com.nashtech.rootkies.service.ExportService;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -47,17 +54,17 @@ public class AssetController {
 
     private final AssetConverter assetConverter;
 
-    private final LocationConverter locationConverter;
+    private final AssetImportService assetImportService;
 
-    private final JwtUtils jwtUtils;
+    private final ExportService exportService;
 
     @Autowired
-    public AssetController(AssetService assetService, LocationConverter locationConverter, JwtUtils jwtUtils,
-            AssetConverter assetConverter) {
+    public AssetController(AssetService assetService, AssetConverter assetConverter,
+            AssetImportService assetImportService, ExportService exportService) {
         this.assetService = assetService;
-        this.locationConverter = locationConverter;
         this.assetConverter = assetConverter;
-        this.jwtUtils = jwtUtils;
+        this.assetImportService = assetImportService;
+        this.exportService = exportService;
     }
 
     @Operation(summary = "Get all asset", description = "", tags = { "ASSET" }, security = {
@@ -70,12 +77,15 @@ public class AssetController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> retrieveAssets(HttpServletRequest req,
-            @RequestParam(name = "page", required = true) Integer pageNum,
-            @RequestParam(name = "size", required = true) Integer numOfItems) throws DataNotFoundException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+    public ResponseEntity<ResponseDTO> retrieveAssets(@CurrentUser JwtPrincipal principal,
+            @RequestParam(name = "page", required = false, defaultValue = "0") Integer pageNum,
+            @RequestParam(name = "size", required = true) Integer numOfItems,
+            @RequestParam(name = "cursor", required = false) String cursor) throws DataNotFoundException {
+        Long locationId = principal.getLocationId();
+        // cursor mode: pass an empty cursor for the first slice, then the nextCursor of the previous one
+        if (cursor != null) {
+            return ResponseEntity.ok(assetService.retrieveAssetByCursor(cursor, numOfItems, locationId));
+        }
         return ResponseEntity.ok(assetService
                 .retrieveAsset(PageRequest.of(pageNum, numOfItems, Sort.by("assetName").ascending()), locationId));
     }
@@ -89,11 +99,10 @@ public class AssetController {
             @ApiResponse(responseCode = "404", description = "Not found"),
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @GetMapping("/count")
+    @SqlBudget(1)
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> countAsset(HttpServletRequest req) throws DataNotFoundException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+    public ResponseEntity<ResponseDTO> countAsset(@CurrentUser JwtPrincipal principal) throws DataNotFoundException {
+        Long locationId = principal.getLocationId();
         return ResponseEntity.ok(assetService.countAsset(locationId));
     }
 
@@ -106,16 +115,33 @@ public class AssetController {
             @ApiResponse(responseCode = "404", description = "Not found"),
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @GetMapping("/{assetCode}")
+    @SqlBudget(3)
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> retrieveAssetById(HttpServletRequest req,
+    public ResponseEntity<ResponseDTO> retrieveAssetById(@CurrentUser JwtPrincipal principal,
             @PathVariable("assetCode") String assetCode) throws DataNotFoundException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+        Long locationId = principal.getLocationId();
         return ResponseEntity.ok(assetService.retrieveAssetByAssetCode(locationId, assetCode));
 
     }
 
+    @Operation(summary = "Get the assignment history of an asset", description = "newest first, a page at a time",
+            tags = { "ASSET" }, security = { @SecurityRequirement(name = "bearer-key-admin") })
+    @ApiResponses(value = { @ApiResponse(responseCode = "2xx", description = "Successfull"),
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "404", description = "Not found"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error") })
+    @GetMapping("/{assetCode}/assignments")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ResponseDTO> retrieveAssignmentHistory(@CurrentUser JwtPrincipal principal,
+            @PathVariable("assetCode") String assetCode,
+            @RequestParam(name = "page", required = false, defaultValue = "0") Integer pageNum,
+            @RequestParam(name = "size", required = true) Integer numOfItems) throws DataNotFoundException {
+        Long locationId = principal.getLocationId();
+        return ResponseEntity.ok(assetService.retrieveAssignmentHistory(locationId, assetCode, pageNum, numOfItems));
+    }
+
     @Operation(summary = "Get all asset with filter, search, sort", description = "", tags = { "ASSET" }, security = {
             @SecurityRequirement(name = "bearer-key-admin") })
     @ApiResponses(value = { @ApiResponse(responseCode = "2xx", description = "Successfull"),
@@ -126,15 +152,19 @@ public class AssetController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @PostMapping("/filter-search-sort")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> retrieveAssetHavingFilterSearchSort(HttpServletRequest req,
-            @RequestParam(name = "page", required = true) Integer pageNum,
+    public ResponseEntity<ResponseDTO> retrieveAssetHavingFilterSearchSort(@CurrentUser JwtPrincipal principal,
+            @RequestParam(name = "page", required = false, defaultValue = "0") Integer pageNum,
             @RequestParam(name = "size", required = true) Integer numOfItems,
+            @RequestParam(name = "withTotal", required = false, defaultValue = "false") Boolean withTotal,
+            @RequestParam(name = "cursor", required = false) String cursor,
             @RequestBody SearchFilterSortAssetDTO searchFilterSortAssetDTO) throws DataNotFoundException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+        Long locationId = principal.getLocationId();
+        if (cursor != null) {
+            return ResponseEntity.ok(assetService.retrieveAssetHavingFilterSearchSortByCursor(cursor,
+                    numOfItems, searchFilterSortAssetDTO, locationId));
+        }
         return ResponseEntity.ok(assetService.retrieveAssetHavingFilterSearchSort(pageNum, numOfItems,
-                searchFilterSortAssetDTO, locationId));
+                searchFilterSortAssetDTO, locationId, withTotal));
     }
 
     @Operation(summary = "Count all asset with filter, search, sort", description = "", tags = { "ASSET" }, security = {
@@ -147,11 +177,9 @@ public class AssetController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @PostMapping("/count/filter-search-sort")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> countAssetHavingFilterSearchSort(HttpServletRequest req,
+    public ResponseEntity<ResponseDTO> countAssetHavingFilterSearchSort(@CurrentUser JwtPrincipal principal,
             @RequestBody SearchFilterSortAssetDTO searchFilterSortAssetDTO) throws DataNotFoundException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+        Long locationId = principal.getLocationId();
         return ResponseEntity.ok(assetService.countAssetHavingFilterSearchSort(searchFilterSortAssetDTO, locationId));
     }
 
@@ -165,18 +193,55 @@ public class AssetController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @PostMapping()
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> saveAsset(HttpServletRequest req,
+    public ResponseEntity<ResponseDTO> saveAsset(@CurrentUser JwtPrincipal principal,
             @Valid @RequestBody CreateAssetRequestDTO createAssetRequestDTO) throws ConvertEntityDTOException,
             CreateDataFailException, InvalidRequestDataException, DataNotFoundException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+        Long locationId = principal.getLocationId();
 
         Asset asset = assetConverter.convertCreateAssetDTOToEntity(createAssetRequestDTO, locationId);
 
         return ResponseEntity.ok(assetService.saveAsset(asset));
     }
 
+    @Operation(summary = "Import assets from CSV or NDJSON", description = "CSV needs a header row with assetName, "
+            + "categoryCode, specification, installDate and state; NDJSON has one object with those fields per line. "
+            + "Valid rows are saved, the others are listed by line in the report.", tags = { "ASSET" }, security = {
+                    @SecurityRequirement(name = "bearer-key-admin") })
+    @ApiResponses(value = { @ApiResponse(responseCode = "2xx", description = "Successfull"),
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error") })
+    @PostMapping(value = "/import", consumes = { AssetImportService.CSV, AssetImportService.NDJSON })
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ResponseDTO> importAssets(@CurrentUser JwtPrincipal principal,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body)
+            throws InvalidRequestDataException, CreateDataFailException {
+        Long locationId = principal.getLocationId();
+        return ResponseEntity.ok(assetImportService.importAssets(body, contentType, locationId));
+    }
+
+    @Operation(summary = "Export all assets of the location",
+            description = "format is csv or ndjson, rows are sent while they are read", tags = { "ASSET" },
+            security = { @SecurityRequirement(name = "bearer-key-admin") })
+    @ApiResponses(value = { @ApiResponse(responseCode = "2xx", description = "Successfull"),
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error") })
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportAssets(@CurrentUser JwtPrincipal principal,
+            @RequestParam(name = "format", required = false, defaultValue = "csv") String format)
+            throws InvalidRequestDataException {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + exportFormat.fileName("assets") + "\"")
+                .body(exportService.exportAssets(principal.getLocationId(), exportFormat));
+    }
+
     @Operation(summary = "Delete asset by id", description = "", tags = { "ASSET" }, security = {
             @SecurityRequirement(name = "bearer-key-admin") })
     @ApiResponses(value = { @ApiResponse(responseCode = "2xx", description = "Successfull"),
@@ -187,11 +252,9 @@ public class AssetController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @DeleteMapping("/{assetCode}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> deleteAssetById(HttpServletRequest req,
+    public ResponseEntity<ResponseDTO> deleteAssetById(@CurrentUser JwtPrincipal principal,
             @PathVariable("assetCode") String assetCode) throws DataNotFoundException, DeleteDataFailException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+        Long locationId = principal.getLocationId();
         return ResponseEntity.ok(assetService.deleteAssetByAssetCode(locationId, assetCode));
     }
 
@@ -226,11 +289,9 @@ public class AssetController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @DeleteMapping("/check/{assetCode}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> checkDeleteAssetById(HttpServletRequest req,
+    public ResponseEntity<ResponseDTO> checkDeleteAssetById(@CurrentUser JwtPrincipal principal,
             @PathVariable("assetCode") String assetCode) throws DataNotFoundException, DeleteDataFailException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+        Long locationId = principal.getLocationId();
         return ResponseEntity.ok(assetService.checkDeleteAssetByAssetCode(locationId, assetCode));
     }
 
@@ -283,15 +344,14 @@ public class AssetController {
             @ApiResponse(responseCode = "404", description = "Not found"),
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @GetMapping("/report")
+    @SqlBudget(1)
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> reportAsset(HttpServletRequest req)
+    public ResponseEntity<ResponseDTO> reportAsset(@CurrentUser JwtPrincipal principal)
             throws AssetConvertException, DataNotFoundException {
 
         ResponseDTO response = new ResponseDTO();
 
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+        Long locationId = principal.getLocationId();
         response.setData(assetService.getAssetReport(locationId));
         response.setSuccessCode(SuccessCode.GET_REPORT_SUCCESS);
         return ResponseEntity.ok(response);
@@ -10,10 +10,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
-import javax.servlet.http.HttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import javax.validation.Valid;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -22,7 +24,8 @@ import java.time.format.DateTimeFormatter;
 import com.nashtech.rootkies.constants.ErrorCode;
 import com.nashtech.rootkies.constants.SuccessCode;
 import com.nashtech.rootkies.converter.AssignmentConverter;
-import com.nashtech.rootkies.converter.LocationConverter;
+import com.nashtech.rootkies.dto.assignment.request.BulkAssignmentIdsDTO;
+import com.nashtech.rootkies.dto.assignment.request.BulkCreateAssignmentDTO;
 import com.nashtech.rootkies.dto.assignment.request.CreateAssignmentDTO;
 import com.nashtech.rootkies.dto.assignment.request.EditAssignmentDTO;
 import com.nashtech.rootkies.dto.assignment.request.SearchFilterSortAssignmentDTO;
@@ -35,9 +38,14 @@ import com.nashtech.rootkies.exception.DeleteDataFailException;
 import com.nashtech.rootkies.exception.InvalidRequestDataException;
 import com.nashtech.rootkies.exception.UpdateDataFailException;
 import com.nashtech.rootkies.exception.*;
+import com.nashtech.rootkies.export.ExportFormat;
 import com.nashtech.rootkies.model.Assignment;
-import com.nashtech.rootkies.security.jwt.JwtUtils;
+import com.nashtech.rootkies.monitoring.SqlBudget;
+import com.nashtech.rootkies.security.CurrentUser;
+import com.nashtech.rootkies.security.jwt.JwtPrincipal;
 import com.nashtech.rootkies.service.AssignmentService;
+import com.nashtech.rootkies.service.BulkAssignmentService;
+import com.nashtech.rootkies.service.ExportService;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -48,19 +56,40 @@ public class AssignmentController {
 
     private final AssignmentService assignmentService;
 
-    private final LocationConverter locationConverter;
+    private final AssignmentConverter assignmentConverter;
 
-    private final JwtUtils jwtUtils;
+    private final ExportService exportService;
 
-    private final AssignmentConverter assignmentConverter;
+    private final BulkAssignmentService bulkAssignmentService;
 
     @Autowired
-    public AssignmentController(AssignmentService assignmentService, LocationConverter locationConverter,
-            JwtUtils jwtUtils, AssignmentConverter assignmentConverter) {
+    public AssignmentController(AssignmentService assignmentService, AssignmentConverter assignmentConverter,
+            ExportService exportService, BulkAssignmentService bulkAssignmentService) {
         this.assignmentService = assignmentService;
-        this.locationConverter = locationConverter;
-        this.jwtUtils = jwtUtils;
         this.assignmentConverter = assignmentConverter;
+        this.exportService = exportService;
+        this.bulkAssignmentService = bulkAssignmentService;
+    }
+
+    @Operation(summary = "Export all assignments of the location",
+            description = "format is csv or ndjson, rows are sent while they are read", tags = { "ASSIGNMENT" },
+            security = { @SecurityRequirement(name = "bearer-key-admin") })
+    @ApiResponses(value = { @ApiResponse(responseCode = "2xx", description = "Successfull"),
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error") })
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportAssignments(@CurrentUser JwtPrincipal principal,
+            @RequestParam(name = "format", required = false, defaultValue = "csv") String format)
+            throws InvalidRequestDataException {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + exportFormat.fileName("assignments") + "\"")
+                .body(exportService.exportAssignments(principal.getLocationId(), exportFormat));
     }
 
     @Operation(summary = "Get all assignment", description = "", tags = { "ASSIGNMENT" }, security = {
@@ -72,13 +101,17 @@ public class AssignmentController {
             @ApiResponse(responseCode = "404", description = "Not found"),
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @GetMapping
+    @SqlBudget(4)
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> retrieveAssignments(HttpServletRequest req,
-            @RequestParam(name = "page", required = true) Integer pageNum,
-            @RequestParam(name = "size", required = true) Integer numOfItems) throws DataNotFoundException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+    public ResponseEntity<ResponseDTO> retrieveAssignments(@CurrentUser JwtPrincipal principal,
+            @RequestParam(name = "page", required = false, defaultValue = "0") Integer pageNum,
+            @RequestParam(name = "size", required = true) Integer numOfItems,
+            @RequestParam(name = "cursor", required = false) String cursor) throws DataNotFoundException {
+        Long locationId = principal.getLocationId();
+        // cursor mode: pass an empty cursor for the first slice, then the nextCursor of the previous one
+        if (cursor != null) {
+            return ResponseEntity.ok(assignmentService.retrieveAssignmentsByCursor(cursor, numOfItems, locationId));
+        }
         return ResponseEntity.ok(assignmentService.retrieveAssignments(
                 PageRequest.of(pageNum, numOfItems, Sort.by("assignedDate").descending()), locationId));
     }
@@ -93,10 +126,8 @@ public class AssignmentController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @GetMapping("/count")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> countAssignment(HttpServletRequest req) throws DataNotFoundException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+    public ResponseEntity<ResponseDTO> countAssignment(@CurrentUser JwtPrincipal principal) throws DataNotFoundException {
+        Long locationId = principal.getLocationId();
         return ResponseEntity.ok(assignmentService.countAssignment(locationId));
     }
 
@@ -110,11 +141,9 @@ public class AssignmentController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @GetMapping("/{assignmentId}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
-    public ResponseEntity<ResponseDTO> retrieveAssignmentById(HttpServletRequest req,
+    public ResponseEntity<ResponseDTO> retrieveAssignmentById(@CurrentUser JwtPrincipal principal,
             @PathVariable("assignmentId") Long assignmentId) throws DataNotFoundException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+        Long locationId = principal.getLocationId();
         return ResponseEntity.ok(assignmentService.retrieveAssignmentByAssignmentId(locationId, assignmentId));
 
     }
@@ -128,16 +157,21 @@ public class AssignmentController {
             @ApiResponse(responseCode = "404", description = "Not found"),
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @PostMapping("/filter-search-sort")
+    @SqlBudget(4)
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
-    public ResponseEntity<ResponseDTO> retrieveAssignmentHavingFilterSearchSort(HttpServletRequest req,
-            @RequestParam(name = "page", required = true) Integer pageNum,
+    public ResponseEntity<ResponseDTO> retrieveAssignmentHavingFilterSearchSort(@CurrentUser JwtPrincipal principal,
+            @RequestParam(name = "page", required = false, defaultValue = "0") Integer pageNum,
             @RequestParam(name = "size", required = true) Integer numOfItems,
+            @RequestParam(name = "withTotal", required = false, defaultValue = "false") Boolean withTotal,
+            @RequestParam(name = "cursor", required = false) String cursor,
             @RequestBody SearchFilterSortAssignmentDTO searchFilterSortAssignmentDTO) throws DataNotFoundException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+        Long locationId = principal.getLocationId();
+        if (cursor != null) {
+            return ResponseEntity.ok(assignmentService.retrieveAssignmentHavingFilterSearchSortByCursor(cursor,
+                    numOfItems, searchFilterSortAssignmentDTO, locationId));
+        }
         return ResponseEntity.ok(assignmentService.retrieveAssignmentHavingFilterSearchSort(pageNum, numOfItems,
-                searchFilterSortAssignmentDTO, locationId));
+                searchFilterSortAssignmentDTO, locationId, withTotal));
     }
 
     @Operation(summary = "Count all assignment with filter, search, sort", description = "", tags = { "ASSIGNMENT" }, security = {
@@ -150,11 +184,9 @@ public class AssignmentController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @PostMapping("/count/filter-search-sort")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
-    public ResponseEntity<ResponseDTO> countAssignmentHavingFilterSearchSort(HttpServletRequest req,
+    public ResponseEntity<ResponseDTO> countAssignmentHavingFilterSearchSort(@CurrentUser JwtPrincipal principal,
             @RequestBody SearchFilterSortAssignmentDTO searchFilterSortAssignmentDTO) throws DataNotFoundException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+        Long locationId = principal.getLocationId();
         return ResponseEntity
                 .ok(assignmentService.countAssignmentHavingFilterSearchSort(searchFilterSortAssignmentDTO, locationId));
     }
@@ -170,13 +202,11 @@ public class AssignmentController {
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ResponseDTO> createAssignment(@Valid @RequestBody CreateAssignmentDTO dto,
-            HttpServletRequest req) throws AssignmentConvertException, DataNotFoundException {
+            @CurrentUser JwtPrincipal principal) throws AssignmentConvertException, DataNotFoundException {
 
         ResponseDTO response = new ResponseDTO();
 
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        String assignedBy = locationConverter.getStaffCodeFromUsername(username);
+        String assignedBy = principal.getStaffCode();
         dto.setAssignedBy(assignedBy);
 
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
@@ -194,6 +224,31 @@ public class AssignmentController {
 
     }
 
+    @Operation(summary = "Create assignments for many assets",
+            description = "one assignment per (assetCode, assignedTo) item, all with the same assigned date and note. "
+                    + "Items that cannot be assigned are reported with an error code, the others are created.",
+            tags = { "ASSIGNMENT" }, security = { @SecurityRequirement(name = "bearer-key-admin") })
+    @ApiResponses(value = { @ApiResponse(responseCode = "2xx", description = "Successfull"),
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error") })
+    @PostMapping("/bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ResponseDTO> createAssignments(@Valid @RequestBody BulkCreateAssignmentDTO dto,
+            @CurrentUser JwtPrincipal principal) throws CreateDataFailException {
+        dto.setAssignedBy(principal.getStaffCode());
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+        if (LocalDateTime.parse(dto.getAssignedDate(), formatter).toLocalDate().isBefore(LocalDate.now())) {
+            ResponseDTO response = new ResponseDTO();
+            response.setErrorCode(ErrorCode.ERR_ASSIGNED_DATE_IN_PAST);
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        return ResponseEntity.ok(bulkAssignmentService.createAssignments(dto, principal.getLocationId()));
+    }
+
     @Operation(summary = "Delete assignment by id", description = "", tags = { "ASSIGNMENT" }, security = {
             @SecurityRequirement(name = "bearer-key-admin") })
     @ApiResponses(value = { @ApiResponse(responseCode = "2xx", description = "Successfull"),
@@ -204,11 +259,9 @@ public class AssignmentController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @DeleteMapping("/{assignmentId}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> deleteAssignmentById(HttpServletRequest req,
+    public ResponseEntity<ResponseDTO> deleteAssignmentById(@CurrentUser JwtPrincipal principal,
             @PathVariable("assignmentId") Long assignmentId) throws DataNotFoundException, DeleteDataFailException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+        Long locationId = principal.getLocationId();
         return ResponseEntity.ok(assignmentService.deleteAssetByAssignmentId(locationId, assignmentId));
     }
 
@@ -222,15 +275,14 @@ public class AssignmentController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @PutMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> editAssignment(HttpServletRequest req,
+    public ResponseEntity<ResponseDTO> editAssignment(@CurrentUser JwtPrincipal principal,
             @Valid @RequestBody EditAssignmentDTO EditAssignmentDTO)
             throws DataNotFoundException, InvalidRequestDataException, UpdateDataFailException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
-        Assignment assignment = assignmentConverter.convertEditAssignmentDTOToEntity(locationId, EditAssignmentDTO,
-                username);
-        return ResponseEntity.ok(assignmentService.editAssignment(assignment, EditAssignmentDTO.getAssetCode()));
+        Long locationId = principal.getLocationId();
+        AssignmentConverter.EditedAssignment edited = assignmentConverter.convertEditAssignmentDTOToEntity(locationId,
+                EditAssignmentDTO, principal.getUsername());
+        return ResponseEntity.ok(assignmentService.editAssignment(edited.getAssignment(),
+                EditAssignmentDTO.getAssetCode(), edited.getPreviousAssignedTo()));
     }
 
     @Operation(summary = "Accept assignemnt", description = "", tags = { "ASSIGNMENT" }, security = {
@@ -243,13 +295,12 @@ public class AssignmentController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @PutMapping("/accept/{assignmentId}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
-    public ResponseEntity<ResponseDTO> acceptAssignment(HttpServletRequest req,
+    public ResponseEntity<ResponseDTO> acceptAssignment(@CurrentUser JwtPrincipal principal,
             @PathVariable("assignmentId") Long assignmentId)
             throws DataNotFoundException, InvalidRequestDataException, UpdateDataFailException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
-        return ResponseEntity.ok(assignmentService.acceptAssignment(locationId, assignmentId, username));
+        Long locationId = principal.getLocationId();
+        return ResponseEntity
+                .ok(assignmentService.acceptAssignment(locationId, assignmentId, principal.getUsername()));
     }
 
     @Operation(summary = "Decline assignment", description = "", tags = { "ASSIGNMENT" }, security = {
@@ -262,13 +313,46 @@ public class AssignmentController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @PutMapping("/decline/{assignmentId}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
-    public ResponseEntity<ResponseDTO> declineAssignment(HttpServletRequest req,
+    public ResponseEntity<ResponseDTO> declineAssignment(@CurrentUser JwtPrincipal principal,
             @PathVariable("assignmentId") Long assignmentId)
             throws DataNotFoundException, InvalidRequestDataException, UpdateDataFailException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
-        return ResponseEntity.ok(assignmentService.declineAssignment(locationId, assignmentId, username));
+        Long locationId = principal.getLocationId();
+        return ResponseEntity
+                .ok(assignmentService.declineAssignment(locationId, assignmentId, principal.getUsername()));
+    }
+
+    @Operation(summary = "Accept many own assignments",
+            description = "every id is checked and reported on its own, the valid ones are accepted together",
+            tags = { "ASSIGNMENT" }, security = { @SecurityRequirement(name = "bearer-key-admin"),
+                    @SecurityRequirement(name = "bearer-key-user") })
+    @ApiResponses(value = { @ApiResponse(responseCode = "2xx", description = "Successfull"),
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error") })
+    @PutMapping("/accept")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<ResponseDTO> acceptAssignments(@CurrentUser JwtPrincipal principal,
+            @Valid @RequestBody BulkAssignmentIdsDTO dto) throws UpdateDataFailException {
+        return ResponseEntity
+                .ok(bulkAssignmentService.acceptAssignments(dto.getAssignmentIds(), principal.getStaffCode()));
+    }
+
+    @Operation(summary = "Decline many own assignments",
+            description = "every id is checked and reported on its own, the valid ones are declined together",
+            tags = { "ASSIGNMENT" }, security = { @SecurityRequirement(name = "bearer-key-admin"),
+                    @SecurityRequirement(name = "bearer-key-user") })
+    @ApiResponses(value = { @ApiResponse(responseCode = "2xx", description = "Successfull"),
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error") })
+    @PutMapping("/decline")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<ResponseDTO> declineAssignments(@CurrentUser JwtPrincipal principal,
+            @Valid @RequestBody BulkAssignmentIdsDTO dto) throws UpdateDataFailException {
+        return ResponseEntity
+                .ok(bulkAssignmentService.declineAssignments(dto.getAssignmentIds(), principal.getStaffCode()));
     }
 
     // view own assignment
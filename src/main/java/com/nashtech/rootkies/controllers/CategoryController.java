@@ -21,6 +21,7 @@ import com.nashtech.rootkies.exception.CreateDataFailException;
 import com.nashtech.rootkies.exception.DataNotFoundException;
 import com.nashtech.rootkies.exception.DuplicateDataException;
 import com.nashtech.rootkies.model.Category;
+import com.nashtech.rootkies.monitoring.SqlBudget;
 import com.nashtech.rootkies.service.CategoryService;
 import com.nashtech.rootkies.repository.CategoryRepository;
 
@@ -52,6 +53,7 @@ public class CategoryController {
             @ApiResponse(responseCode = "404", description = "Not found"),
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @GetMapping
+    @SqlBudget(1)
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ResponseDTO> retrieveCategories() throws DataNotFoundException {
         return ResponseEntity.ok(categoryService.retrieveCategories());
@@ -1,12 +1,13 @@
 package com.nashtech.rootkies.controllers;
 
-import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -18,21 +19,27 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 
-import com.nashtech.rootkies.converter.LocationConverter;
+import com.nashtech.rootkies.dto.assignment.request.BulkAssignmentIdsDTO;
 import com.nashtech.rootkies.dto.common.ResponseDTO;
 import com.nashtech.rootkies.dto.request.request.CreateRequestDTO;
 import com.nashtech.rootkies.dto.request.request.SearchFilterSortRequestDTO;
+import com.nashtech.rootkies.export.ExportFormat;
 import com.nashtech.rootkies.exception.CreateDataFailException;
 import com.nashtech.rootkies.exception.DataNotFoundException;
 import com.nashtech.rootkies.exception.InvalidRequestDataException;
 import com.nashtech.rootkies.exception.UpdateDataFailException;
-import com.nashtech.rootkies.security.jwt.JwtUtils;
+import com.nashtech.rootkies.monitoring.SqlBudget;
+import com.nashtech.rootkies.security.CurrentUser;
+import com.nashtech.rootkies.security.jwt.JwtPrincipal;
+import com.nashtech.rootkies.service.BulkAssignmentService;
+import com.nashtech.rootkies.service.ExportService;
 import com.nashtech.rootkies.service.RequestService;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -44,15 +51,37 @@ public class RequestController {
 
     private final RequestService requestService;
 
-    private final LocationConverter locationConverter;
+    private final ExportService exportService;
 
-    private final JwtUtils jwtUtils;
+    private final BulkAssignmentService bulkAssignmentService;
 
     @Autowired
-    public RequestController(RequestService requestService, LocationConverter locationConverter, JwtUtils jwtUtils) {
+    public RequestController(RequestService requestService, ExportService exportService,
+            BulkAssignmentService bulkAssignmentService) {
         this.requestService = requestService;
-        this.locationConverter = locationConverter;
-        this.jwtUtils = jwtUtils;
+        this.exportService = exportService;
+        this.bulkAssignmentService = bulkAssignmentService;
+    }
+
+    @Operation(summary = "Export all returning requests of the location",
+            description = "format is csv or ndjson, rows are sent while they are read", tags = { "REQUEST" },
+            security = { @SecurityRequirement(name = "bearer-key-admin") })
+    @ApiResponses(value = { @ApiResponse(responseCode = "2xx", description = "Successfull"),
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error") })
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportRequests(@CurrentUser JwtPrincipal principal,
+            @RequestParam(name = "format", required = false, defaultValue = "csv") String format)
+            throws InvalidRequestDataException {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + exportFormat.fileName("requests") + "\"")
+                .body(exportService.exportRequests(principal.getLocationId(), exportFormat));
     }
 
     @Operation(summary = "Complete request", description = "", tags = { "REQUEST" }, security = {
@@ -65,13 +94,11 @@ public class RequestController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @PutMapping("/complete/{requestId}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> completeRequest(HttpServletRequest req,
+    public ResponseEntity<ResponseDTO> completeRequest(@CurrentUser JwtPrincipal principal,
             @PathVariable("requestId") Long requestId)
             throws DataNotFoundException, InvalidRequestDataException, UpdateDataFailException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
-        return ResponseEntity.ok(requestService.completeRequest(locationId, requestId, username));
+        Long locationId = principal.getLocationId();
+        return ResponseEntity.ok(requestService.completeRequest(locationId, requestId, principal.getUsername()));
     }
 
     @Operation(summary = "Cancel request", description = "", tags = { "REQUEST" }, security = {
@@ -84,12 +111,10 @@ public class RequestController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @PutMapping("/cancel/{requestId}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> cancelRequest(HttpServletRequest req, @PathVariable("requestId") Long requestId)
+    public ResponseEntity<ResponseDTO> cancelRequest(@CurrentUser JwtPrincipal principal, @PathVariable("requestId") Long requestId)
             throws DataNotFoundException, InvalidRequestDataException, UpdateDataFailException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
-        return ResponseEntity.ok(requestService.cancelRequest(locationId, requestId, username));
+        Long locationId = principal.getLocationId();
+        return ResponseEntity.ok(requestService.cancelRequest(locationId, requestId, principal.getUsername()));
     }
 
     @Operation(summary = "Get all request", description = "", tags = { "REQUEST" }, security = {
@@ -101,13 +126,17 @@ public class RequestController {
             @ApiResponse(responseCode = "404", description = "Not found"),
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @GetMapping
+    @SqlBudget(2)
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> retrieveRequests(HttpServletRequest req,
-            @RequestParam(name = "page", required = true) Integer pageNum,
-            @RequestParam(name = "size", required = true) Integer numOfItems) throws DataNotFoundException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+    public ResponseEntity<ResponseDTO> retrieveRequests(@CurrentUser JwtPrincipal principal,
+            @RequestParam(name = "page", required = false, defaultValue = "0") Integer pageNum,
+            @RequestParam(name = "size", required = true) Integer numOfItems,
+            @RequestParam(name = "cursor", required = false) String cursor) throws DataNotFoundException {
+        Long locationId = principal.getLocationId();
+        // cursor mode: pass an empty cursor for the first slice, then the nextCursor of the previous one
+        if (cursor != null) {
+            return ResponseEntity.ok(requestService.retrieveRequestsByCursor(cursor, numOfItems, locationId));
+        }
         return ResponseEntity.ok(requestService.retrieveRequests(
                 PageRequest.of(pageNum, numOfItems, Sort.by("assignment.assignedDate").descending()), locationId));
     }
@@ -122,10 +151,8 @@ public class RequestController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @GetMapping("/count")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> countRequest(HttpServletRequest req) throws DataNotFoundException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+    public ResponseEntity<ResponseDTO> countRequest(@CurrentUser JwtPrincipal principal) throws DataNotFoundException {
+        Long locationId = principal.getLocationId();
         return ResponseEntity.ok(requestService.countRequest(locationId));
     }
 
@@ -139,11 +166,9 @@ public class RequestController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @GetMapping("/{requestId}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> retrieveRequestById(HttpServletRequest req,
+    public ResponseEntity<ResponseDTO> retrieveRequestById(@CurrentUser JwtPrincipal principal,
             @PathVariable("requestId") Long requestId) throws DataNotFoundException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+        Long locationId = principal.getLocationId();
         return ResponseEntity.ok(requestService.retrieveRequestById(locationId, requestId));
 
     }
@@ -157,16 +182,21 @@ public class RequestController {
             @ApiResponse(responseCode = "404", description = "Not found"),
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @PostMapping("/filter-search-sort")
+    @SqlBudget(2)
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ResponseDTO> retrieveRequestHavingFilterSearchSort(HttpServletRequest req,
-            @RequestParam(name = "page", required = true) Integer pageNum,
+    public ResponseEntity<ResponseDTO> retrieveRequestHavingFilterSearchSort(@CurrentUser JwtPrincipal principal,
+            @RequestParam(name = "page", required = false, defaultValue = "0") Integer pageNum,
             @RequestParam(name = "size", required = true) Integer numOfItems,
+            @RequestParam(name = "withTotal", required = false, defaultValue = "false") Boolean withTotal,
+            @RequestParam(name = "cursor", required = false) String cursor,
             @RequestBody SearchFilterSortRequestDTO searchFilterSortRequestDTO) throws DataNotFoundException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+        Long locationId = principal.getLocationId();
+        if (cursor != null) {
+            return ResponseEntity.ok(requestService.retrieveRequestHavingFilterSearchSortByCursor(cursor,
+                    numOfItems, searchFilterSortRequestDTO, locationId));
+        }
         return ResponseEntity.ok(requestService.retrieveRequestHavingFilterSearchSort(pageNum, numOfItems,
-                searchFilterSortRequestDTO, locationId));
+                searchFilterSortRequestDTO, locationId, withTotal));
     }
 
     @Operation(summary = "Count all request with filter, search, sort", description = "", tags = { "REQUEST" }, security = {
@@ -179,11 +209,9 @@ public class RequestController {
             @ApiResponse(responseCode = "500", description = "Internal Server Error") })
     @PostMapping("/count/filter-search-sort")
     @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
-    public ResponseEntity<ResponseDTO> countRequestHavingFilterSearchSort(HttpServletRequest req,
+    public ResponseEntity<ResponseDTO> countRequestHavingFilterSearchSort(@CurrentUser JwtPrincipal principal,
             @RequestBody SearchFilterSortRequestDTO searchFilterSortRequestDTO) throws DataNotFoundException {
-        String jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-        Long locationId = locationConverter.getLocationIdFromUsername(username);
+        Long locationId = principal.getLocationId();
         return ResponseEntity
                 .ok(requestService.countRequestHavingFilterSearchSort(searchFilterSortRequestDTO, locationId));
     }
@@ -202,4 +230,21 @@ public class RequestController {
             throws CreateDataFailException {
         return ResponseEntity.ok(requestService.createRequest(createRequestDTO));
     }
+
+    @Operation(summary = "Create return requests for many own assignments",
+            description = "every assignment id is checked and reported on its own, a request is created for each "
+                    + "accepted one without a waiting request", tags = { "REQUEST" }, security = {
+                    @SecurityRequirement(name = "bearer-key-admin"), @SecurityRequirement(name = "bearer-key-user") })
+    @ApiResponses(value = { @ApiResponse(responseCode = "2xx", description = "Successfull"),
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error") })
+    @PostMapping(value = "/bulk")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    public ResponseEntity<ResponseDTO> createRequests(@CurrentUser JwtPrincipal principal,
+            @Valid @RequestBody BulkAssignmentIdsDTO dto) throws CreateDataFailException {
+        return ResponseEntity
+                .ok(bulkAssignmentService.createReturnRequests(dto.getAssignmentIds(), principal.getStaffCode()));
+    }
 }
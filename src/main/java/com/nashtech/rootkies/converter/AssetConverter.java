@@ -9,18 +9,22 @@ import com.nashtech.rootkies.exception.AssetConvertException;
 import com.nashtech.rootkies.exception.ConvertEntityDTOException;
 import com.nashtech.rootkies.exception.InvalidRequestDataException;
 import com.nashtech.rootkies.model.Asset;
+import com.nashtech.rootkies.model.Assignment;
 import com.nashtech.rootkies.model.Category;
 import com.nashtech.rootkies.model.Location;
-import com.nashtech.rootkies.repository.CategoryRepository;
-import com.nashtech.rootkies.repository.LocationRepository;
+import com.nashtech.rootkies.model.Request;
+import com.nashtech.rootkies.model.Role;
+import com.nashtech.rootkies.model.User;
+import com.nashtech.rootkies.service.ReferenceDataService;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Component;
 
-import java.math.BigInteger;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -31,24 +35,37 @@ public class AssetConverter {
     ModelMapper modelMapper;
 
     @Autowired
-    CategoryRepository categoryRepository;
+    ReferenceDataService referenceDataService;
 
-    @Autowired
-    LocationRepository locationRepository;
-
-    public DetailAssetDTO convertToDetailDTO(Asset asset) throws ConvertEntityDTOException {
+    // currentRows are the (Assignment, Request) pairs of AssignmentRepository.findCurrentRowsByAssetCode
+    public DetailAssetDTO convertToDetailDTO(Asset asset, List<Object[]> currentRows, long assignmentCount)
+            throws ConvertEntityDTOException {
         try {
-            DetailAssetDTO detailAssetDTO = modelMapper.map(asset, DetailAssetDTO.class);
-
-            Collection<AssignmentDTO> filteredAssignmentDTOCollection = detailAssetDTO.getAssignments().stream()
-                    .filter(e -> !e.getIsDeleted()).collect(Collectors.toList());
-            detailAssetDTO.setAssignments(filteredAssignmentDTOCollection);
-
-            detailAssetDTO.getAssignments().forEach(e -> {
-                Collection<RequestDTO> filteredRequestDTOCollection = e.getRequests().stream()
-                        .filter(e1 -> !e1.getIsDeleted()).collect(Collectors.toList());
-                e.setRequests(filteredRequestDTOCollection);
-            });
+            DetailAssetDTO detailAssetDTO = new DetailAssetDTO();
+            detailAssetDTO.setAssetCode(asset.getAssetCode());
+            detailAssetDTO.setAssetName(asset.getAssetName());
+            detailAssetDTO.setState(asset.getState());
+            detailAssetDTO.setInstallDate(asset.getInstallDate());
+            detailAssetDTO.setLocation(toLocationDTO(asset.getLocation()));
+            detailAssetDTO.setSpecification(asset.getSpecification());
+            detailAssetDTO.setCategory(toCategoryDTO(asset.getCategory()));
+
+            // the newest open assignment comes first, its rows are the leading ones
+            AssignmentDTO current = null;
+            for (Object[] row : currentRows) {
+                Assignment assignment = (Assignment) row[0];
+                if (current == null) {
+                    current = toAssignmentDTO(assignment);
+                } else if (!current.getAssignmentId().equals(assignment.getAssignmentId())) {
+                    break;
+                }
+                Request request = (Request) row[1];
+                if (request != null) {
+                    current.getRequests().add(toRequestDTO(request));
+                }
+            }
+            detailAssetDTO.setCurrentAssignment(current);
+            detailAssetDTO.setAssignmentCount(assignmentCount);
 
             return detailAssetDTO;
 
@@ -58,10 +75,27 @@ public class AssetConverter {
         }
     }
 
+    // a page of AssignmentRepository.findHistoryByAssetCode, with the live requests of each assignment
+    public List<AssignmentDTO> convertToHistoryDTO(Page<Assignment> assignments) throws ConvertEntityDTOException {
+        try {
+            List<AssignmentDTO> assignmentDTOs = new ArrayList<>(assignments.getNumberOfElements());
+            for (Assignment assignment : assignments) {
+                AssignmentDTO assignmentDTO = toAssignmentDTO(assignment);
+                for (Request request : assignment.getActiveRequests()) {
+                    assignmentDTO.getRequests().add(toRequestDTO(request));
+                }
+                assignmentDTOs.add(assignmentDTO);
+            }
+            return assignmentDTOs;
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new ConvertEntityDTOException(ErrorCode.ERR_CONVERT_DTO_ENTITY_FAIL);
+        }
+    }
+
     public List<ViewAssetDTO> convertToListDTO(Page<Asset> assets) throws ConvertEntityDTOException {
         try {
-            return assets.stream().map(asset -> modelMapper.map(asset, ViewAssetDTO.class))
-                    .collect(Collectors.toList());
+            return assets.stream().map(this::toViewDTO).collect(Collectors.toList());
         } catch (Exception e) {
             e.printStackTrace();
             throw new ConvertEntityDTOException(ErrorCode.ERR_CONVERT_DTO_ENTITY_FAIL);
@@ -70,14 +104,61 @@ public class AssetConverter {
 
     public List<ViewAssetDTO> convertToListDTO(List<Asset> assets) throws ConvertEntityDTOException {
         try {
-            return assets.stream().map(asset -> modelMapper.map(asset, ViewAssetDTO.class))
-                    .collect(Collectors.toList());
+            return assets.stream().map(this::toViewDTO).collect(Collectors.toList());
         } catch (Exception e) {
             e.printStackTrace();
             throw new ConvertEntityDTOException(ErrorCode.ERR_CONVERT_DTO_ENTITY_FAIL);
         }
     }
 
+    // the view and detail DTOs are mapped by hand, these run for every row of every page
+    public ViewAssetDTO toViewDTO(Asset asset) {
+        return new ViewAssetDTO(asset.getAssetCode(), asset.getAssetName(), asset.getState(),
+                toCategoryDTO(asset.getCategory()));
+    }
+
+    private CategoryDTO toCategoryDTO(Category category) {
+        if (category == null) {
+            return null;
+        }
+        CategoryDTO categoryDTO = new CategoryDTO();
+        categoryDTO.setCategoryCode(category.getCategoryCode());
+        categoryDTO.setCategoryName(category.getCategoryName());
+        return categoryDTO;
+    }
+
+    private LocationDTO toLocationDTO(Location location) {
+        if (location == null) {
+            return null;
+        }
+        LocationDTO locationDTO = new LocationDTO();
+        locationDTO.setLocationId(location.getLocationId());
+        locationDTO.setAddress(location.getAddress());
+        return locationDTO;
+    }
+
+    private AssignmentDTO toAssignmentDTO(Assignment assignment) {
+        return new AssignmentDTO(assignment.getAssignmentId(), toUserDTO(assignment.getAssignedTo()),
+                toUserDTO(assignment.getAssignedBy()), assignment.getAssignedDate(), assignment.getState(),
+                new ArrayList<>(), assignment.getIsDeleted());
+    }
+
+    private RequestDTO toRequestDTO(Request request) {
+        return new RequestDTO(request.getRequestId(), toUserDTO(request.getRequestedBy()),
+                toUserDTO(request.getAcceptedBy()), request.getReturnedDate(), request.getState(),
+                request.getIsDeleted());
+    }
+
+    private UserDTO toUserDTO(User user) {
+        if (user == null) {
+            return null;
+        }
+        Role role = user.getRole();
+        return new UserDTO(user.getStaffCode(), user.getUsername(), user.getFirstName(), user.getLastName(),
+                user.getDateOfBirth(), user.getJoinedDate(), user.getGender(),
+                role == null ? null : new RoleDTO(role.getId(), role.getRoleName()));
+    }
+
     public Asset convertCreateAssetDTOToEntity(CreateAssetRequestDTO createAssetRequestDTO, Long locationId)
             throws ConvertEntityDTOException, InvalidRequestDataException {
 
@@ -86,12 +167,12 @@ public class AssetConverter {
             throw new InvalidRequestDataException(ErrorCode.ERR_ASSET_STATE_NOT_CORRECT);
         }
 
-        Optional<Category> category = categoryRepository.findById(createAssetRequestDTO.getCategoryCode());
+        Optional<Category> category = referenceDataService.findCategory(createAssetRequestDTO.getCategoryCode());
         if (!category.isPresent()) {
             throw new InvalidRequestDataException(ErrorCode.ERR_CATEGORY_NOT_FOUND);
         }
 
-        Optional<Location> location = locationRepository.findById(locationId);
+        Optional<Location> location = referenceDataService.findLocation(locationId);
         if (!location.isPresent()) {
             throw new InvalidRequestDataException(ErrorCode.ERR_LOCATION_NOT_FAIL);
         }
@@ -158,28 +239,34 @@ public class AssetConverter {
                 .build();
     }
 
-    public ReportDTO convertToReportDTO(List<Object[]> data) throws AssetConvertException {
-        try{
-            if(data.size() != 0){
-            Object[] report = data.get(0);
-
-            ReportDTO reportDTO = ReportDTO.builder()
-                    .category((String) report[0])
-                    .available(((BigInteger) report[1]).intValue())
-                    .notAvailable(((BigInteger) report[2]).intValue())
-                    .assigned(((BigInteger) report[3]).intValue())
-                    .waitingForRecycle(((BigInteger) report[4]).intValue())
-                    .recycled(((BigInteger) report[5]).intValue())
-                    .build();
-            reportDTO.countTotal();
-
-            return reportDTO;
-            }else{
-                return null;
+    public List<ReportDTO> convertToReportDTO(List<Object[]> data) throws AssetConvertException {
+        try {
+            Map<String, ReportDTO> reports = new LinkedHashMap<>();
+            for (Object[] row : data) {
+                String category = (String) row[0];
+                ReportDTO reportDTO = reports.computeIfAbsent(category,
+                        name -> ReportDTO.builder().category(name).build());
+                if (row[1] == null) {
+                    continue;
+                }
+                int quantity = ((Number) row[2]).intValue();
+                short state = ((Number) row[1]).shortValue();
+                if (state == State.AVAILABLE) {
+                    reportDTO.setAvailable(quantity);
+                } else if (state == State.NOT_AVAILABLE) {
+                    reportDTO.setNotAvailable(quantity);
+                } else if (state == State.ASSIGNED) {
+                    reportDTO.setAssigned(quantity);
+                } else if (state == State.WAITING_FOR_RECYCLING) {
+                    reportDTO.setWaitingForRecycle(quantity);
+                } else if (state == State.RECYLED) {
+                    reportDTO.setRecycled(quantity);
+                }
             }
-        }catch (Exception ex){
+            reports.values().forEach(ReportDTO::countTotal);
+            return new ArrayList<>(reports.values());
+        } catch (Exception ex) {
             throw new AssetConvertException(ErrorCode.ERR_CONVERT_REPORT);
         }
-
     }
 }
\ No newline at end of file
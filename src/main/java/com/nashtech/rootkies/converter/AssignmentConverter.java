@@ -5,6 +5,7 @@ import com.nashtech.rootkies.constants.State;
 import com.nashtech.rootkies.dto.assignment.request.CreateAssignmentDTO;
 import com.nashtech.rootkies.dto.assignment.request.EditAssignmentDTO;
 import com.nashtech.rootkies.dto.assignment.response.AssetDTO;
+import com.nashtech.rootkies.dto.assignment.response.CategoryDTO;
 import com.nashtech.rootkies.dto.assignment.response.RequestDTO;
 import com.nashtech.rootkies.dto.assignment.response.UserDTO;
 import com.nashtech.rootkies.dto.assignment.response.ViewAssignmentDTO;
@@ -19,7 +20,7 @@ import com.nashtech.rootkies.model.User;
 import com.nashtech.rootkies.repository.AssetRepository;
 import com.nashtech.rootkies.repository.AssignmentRepository;
 import com.nashtech.rootkies.repository.UserRepository;
-import org.modelmapper.ModelMapper;
+import lombok.Value;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Component;
@@ -27,16 +28,13 @@ import org.springframework.stereotype.Component;
 import javax.validation.Valid;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Component
 public class AssignmentConverter {
 
-    @Autowired
-    ModelMapper modelMapper;
-
     @Autowired
     AssignmentRepository assignmentRepository;
 
@@ -48,15 +46,7 @@ public class AssignmentConverter {
 
     public List<ViewAssignmentDTO> convertToListDTO(Page<Assignment> assignments) throws ConvertEntityDTOException {
         try {
-            List<ViewAssignmentDTO> listViewAssignmentDTO = assignments.stream()
-                    .map(assignment -> modelMapper.map(assignment, ViewAssignmentDTO.class))
-                    .collect(Collectors.toList());
-            listViewAssignmentDTO.forEach(e -> {
-                Collection<RequestDTO> filteredCollection = e.getRequests().stream().filter(e1 -> !e1.getIsDeleted())
-                        .collect(Collectors.toList());
-                e.setRequests(filteredCollection);
-            });
-            return listViewAssignmentDTO;
+            return assignments.stream().map(this::toViewDTO).collect(Collectors.toList());
         } catch (Exception e) {
             e.printStackTrace();
             throw new ConvertEntityDTOException(ErrorCode.ERR_CONVERT_DTO_ENTITY_FAIL);
@@ -65,15 +55,7 @@ public class AssignmentConverter {
 
     public List<ViewAssignmentDTO> convertToListDTO(List<Assignment> assignments) throws ConvertEntityDTOException {
         try {
-            List<ViewAssignmentDTO> listViewAssignmentDTO = assignments.stream()
-                    .map(assignment -> modelMapper.map(assignment, ViewAssignmentDTO.class))
-                    .collect(Collectors.toList());
-            listViewAssignmentDTO.forEach(e -> {
-                Collection<RequestDTO> filteredCollection = e.getRequests().stream().filter(e1 -> !e1.getIsDeleted())
-                        .collect(Collectors.toList());
-                e.setRequests(filteredCollection);
-            });
-            return listViewAssignmentDTO;
+            return assignments.stream().map(this::toViewDTO).collect(Collectors.toList());
         } catch (Exception e) {
             e.printStackTrace();
             throw new ConvertEntityDTOException(ErrorCode.ERR_CONVERT_DTO_ENTITY_FAIL);
@@ -82,17 +64,64 @@ public class AssignmentConverter {
 
     public ViewAssignmentDTO convertToViewDTO(Assignment assignment) throws ConvertEntityDTOException {
         try {
-            ViewAssignmentDTO viewAssignmentDTO = modelMapper.map(assignment, ViewAssignmentDTO.class);
-            Collection<RequestDTO> filteredCollection = viewAssignmentDTO.getRequests().stream()
-                    .filter(e -> !e.getIsDeleted()).collect(Collectors.toList());
-            viewAssignmentDTO.setRequests(filteredCollection);
-            return viewAssignmentDTO;
+            return toViewDTO(assignment);
         } catch (Exception e) {
             e.printStackTrace();
             throw new ConvertEntityDTOException(ErrorCode.ERR_CONVERT_DTO_ENTITY_FAIL);
         }
     }
 
+    // mapped by hand instead of through ModelMapper, deleted requests are left out by the activeRequests mapping
+    public ViewAssignmentDTO toViewDTO(Assignment assignment) {
+        List<RequestDTO> requestDTOs = new ArrayList<>();
+        if (assignment.getActiveRequests() != null) {
+            for (Request request : assignment.getActiveRequests()) {
+                requestDTOs.add(toRequestDTO(request));
+            }
+        }
+        return ViewAssignmentDTO.builder()
+                .assignmentId(assignment.getAssignmentId())
+                .assignedTo(toUserDTO(assignment.getAssignedTo()))
+                .assignedBy(toUserDTO(assignment.getAssignedBy()))
+                .assignedDate(assignment.getAssignedDate())
+                .state(assignment.getState())
+                .note(assignment.getNote())
+                .asset(toAssetDTO(assignment.getAsset()))
+                .requests(requestDTOs)
+                .build();
+    }
+
+    private AssetDTO toAssetDTO(Asset asset) {
+        if (asset == null) {
+            return null;
+        }
+        CategoryDTO categoryDTO = null;
+        if (asset.getCategory() != null) {
+            categoryDTO = new CategoryDTO();
+            categoryDTO.setCategoryCode(asset.getCategory().getCategoryCode());
+            categoryDTO.setCategoryName(asset.getCategory().getCategoryName());
+        }
+        return new AssetDTO(asset.getAssetCode(), asset.getAssetName(), asset.getSpecification(), categoryDTO);
+    }
+
+    private RequestDTO toRequestDTO(Request request) {
+        RequestDTO requestDTO = new RequestDTO();
+        requestDTO.setRequestId(request.getRequestId());
+        requestDTO.setRequestedBy(toUserDTO(request.getRequestedBy()));
+        requestDTO.setAcceptedBy(toUserDTO(request.getAcceptedBy()));
+        requestDTO.setReturnedDate(request.getReturnedDate());
+        requestDTO.setState(request.getState());
+        requestDTO.setIsDeleted(request.getIsDeleted());
+        return requestDTO;
+    }
+
+    private UserDTO toUserDTO(User user) {
+        if (user == null) {
+            return null;
+        }
+        return new UserDTO(user.getStaffCode(), user.getUsername(), user.getFirstName(), user.getLastName());
+    }
+
     public Assignment createDTOToEntity(CreateAssignmentDTO dto){
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
         return Assignment.builder()
@@ -106,8 +135,16 @@ public class AssignmentConverter {
                 .build();
     }
 
-    public Assignment convertEditAssignmentDTOToEntity(Long locationId, @Valid EditAssignmentDTO editAssignmentDTO,
-            String username) throws DataNotFoundException, InvalidRequestDataException {
+    // the edited copy and the assignee it replaces, whose own assignments AssignmentService.editAssignment evicts
+    // along with the new assignee's
+    @Value
+    public static class EditedAssignment {
+        Assignment assignment;
+        String previousAssignedTo;
+    }
+
+    public EditedAssignment convertEditAssignmentDTOToEntity(Long locationId,
+            @Valid EditAssignmentDTO editAssignmentDTO, String username) throws DataNotFoundException, InvalidRequestDataException {
         Assignment assignment = assignmentRepository.findByAssignmentId(locationId, editAssignmentDTO.getAssignmentId())
                 .orElseThrow(() -> new DataNotFoundException(ErrorCode.ERR_ASSIGNMENT_ID_NOT_FOUND));
 
@@ -121,7 +158,6 @@ public class AssignmentConverter {
         if (ldtToSet.compareTo(ldtNow) < 0) {
             throw new InvalidRequestDataException(ErrorCode.ERR_ASSIGNED_DATE_UPDATE_IS_EARLIER_THAN_CURRENT);
         }
-        assignment.setAssignedDate(ldtToSet);
 
         Asset asset = assetRepository.findByAssetCode(locationId, editAssignmentDTO.getAssetCode())
                 .orElseThrow(() -> new DataNotFoundException(ErrorCode.ASSET_NOT_FOUND));
@@ -131,15 +167,23 @@ public class AssignmentConverter {
             }
         }
 
-        assignment.setAssignedTo(userRepository.findByStaffCode(locationId, editAssignmentDTO.getAssignedToUserId())
-                .orElseThrow(() -> new DataNotFoundException(ErrorCode.ERR_USER_NOT_FOUND)));
-
-        assignment.setAssignedBy(userRepository.findByUsername(locationId, username)
-                .orElseThrow(() -> new DataNotFoundException(ErrorCode.ERR_USER_NOT_FOUND)));
-
-        assignment.setNote(editAssignmentDTO.getNote());
-
-        return assignment;
+        // an edited copy, the loaded assignment is left unchanged so nothing flushes it over a concurrent accept or
+        // decline, AssignmentService.editAssignment writes the copy with a conditional update
+        Assignment edited = Assignment.builder()
+                .assignmentId(assignment.getAssignmentId())
+                .asset(assignment.getAsset())
+                .assignedTo(userRepository.findByStaffCode(locationId, editAssignmentDTO.getAssignedToUserId())
+                        .orElseThrow(() -> new DataNotFoundException(ErrorCode.ERR_USER_NOT_FOUND)))
+                .assignedBy(userRepository.findByUsername(locationId, username)
+                        .orElseThrow(() -> new DataNotFoundException(ErrorCode.ERR_USER_NOT_FOUND)))
+                .assignedDate(ldtToSet)
+                .note(editAssignmentDTO.getNote())
+                .state(assignment.getState())
+                .isDeleted(assignment.getIsDeleted())
+                .requests(assignment.getRequests())
+                .activeRequests(assignment.getActiveRequests())
+                .build();
+        return new EditedAssignment(edited, assignment.getAssignedTo().getStaffCode());
     }
 
     public ViewAssignmentDTO entityToDTO(Assignment assignment) throws AssignmentConvertException {
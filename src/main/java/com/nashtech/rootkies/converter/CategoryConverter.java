@@ -26,7 +26,9 @@ public class CategoryConverter {
 
     public BasicCategoryDTO convertEntityToBasicDTO(Category cate) throws ConvertEntityDTOException {
         try {
-            BasicCategoryDTO dto = modelMapper.map(cate, BasicCategoryDTO.class);
+            BasicCategoryDTO dto = new BasicCategoryDTO();
+            dto.setCategoryCode(cate.getCategoryCode());
+            dto.setCategoryName(cate.getCategoryName());
             return dto;
         } catch (Exception e) {
             e.printStackTrace();
@@ -3,8 +3,10 @@ package com.nashtech.rootkies.converter;
 import com.nashtech.rootkies.constants.ErrorCode;
 import com.nashtech.rootkies.constants.State;
 import com.nashtech.rootkies.dto.request.request.CreateRequestDTO;
+import com.nashtech.rootkies.dto.request.response.AssetDTO;
+import com.nashtech.rootkies.dto.request.response.AssignmentDTO;
+import com.nashtech.rootkies.dto.request.response.UserDTO;
 import com.nashtech.rootkies.dto.request.response.ViewRequestDTO;
-import com.nashtech.rootkies.dto.user.UserDTO;
 import com.nashtech.rootkies.enums.ERole;
 import com.nashtech.rootkies.enums.Gender;
 import com.nashtech.rootkies.exception.ConvertEntityDTOException;
@@ -13,7 +15,6 @@ import com.nashtech.rootkies.model.Request;
 import com.nashtech.rootkies.model.User;
 import com.nashtech.rootkies.repository.AssignmentRepository;
 import com.nashtech.rootkies.repository.UserRepository;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Component;
@@ -26,9 +27,6 @@ import java.util.stream.Collectors;
 @Component
 public class RequestConverter {
 
-    @Autowired
-    ModelMapper modelMapper;
-
     @Autowired
     private AssignmentRepository assignmentRepository;
 
@@ -37,8 +35,7 @@ public class RequestConverter {
 
     public List<ViewRequestDTO> convertToListDTO(Page<Request> requests) throws ConvertEntityDTOException {
         try {
-            return requests.stream().map(request -> modelMapper.map(request, ViewRequestDTO.class))
-                    .collect(Collectors.toList());
+            return requests.stream().map(this::toViewDTO).collect(Collectors.toList());
         } catch (Exception e) {
             e.printStackTrace();
             throw new ConvertEntityDTOException(ErrorCode.ERR_CONVERT_DTO_ENTITY_FAIL);
@@ -47,8 +44,7 @@ public class RequestConverter {
 
     public List<ViewRequestDTO> convertToListDTO(List<Request> requests) throws ConvertEntityDTOException {
         try {
-            return requests.stream().map(request -> modelMapper.map(request, ViewRequestDTO.class))
-                    .collect(Collectors.toList());
+            return requests.stream().map(this::toViewDTO).collect(Collectors.toList());
         } catch (Exception e) {
             e.printStackTrace();
             throw new ConvertEntityDTOException(ErrorCode.ERR_CONVERT_DTO_ENTITY_FAIL);
@@ -57,13 +53,41 @@ public class RequestConverter {
 
     public ViewRequestDTO convertToViewDTO(Request request) throws ConvertEntityDTOException {
         try {
-            return modelMapper.map(request, ViewRequestDTO.class);
+            return toViewDTO(request);
         } catch (Exception e) {
             e.printStackTrace();
             throw new ConvertEntityDTOException(ErrorCode.ERR_CONVERT_DTO_ENTITY_FAIL);
         }
     }
 
+    // mapped by hand instead of through ModelMapper
+    public ViewRequestDTO toViewDTO(Request request) {
+        ViewRequestDTO viewRequestDTO = new ViewRequestDTO();
+        viewRequestDTO.setRequestId(request.getRequestId());
+        viewRequestDTO.setRequestedBy(toUserDTO(request.getRequestedBy()));
+        viewRequestDTO.setAcceptedBy(toUserDTO(request.getAcceptedBy()));
+        viewRequestDTO.setReturnedDate(request.getReturnedDate());
+        viewRequestDTO.setState(request.getState());
+
+        Assignment assignment = request.getAssignment();
+        if (assignment != null) {
+            AssetDTO assetDTO = assignment.getAsset() == null ? null
+                    : new AssetDTO(assignment.getAsset().getAssetCode(), assignment.getAsset().getAssetName());
+            viewRequestDTO.setAssignment(AssignmentDTO.builder()
+                    .assignedDate(assignment.getAssignedDate())
+                    .asset(assetDTO)
+                    .build());
+        }
+        return viewRequestDTO;
+    }
+
+    private UserDTO toUserDTO(User user) {
+        if (user == null) {
+            return null;
+        }
+        return new UserDTO(user.getUsername());
+    }
+
     public Request convertCreateRequestDtoToEntity(CreateRequestDTO createRequestDTO) {
         Assignment assignment = assignmentRepository.findById(createRequestDTO.getAssignment()).get();
         User user = userRepository.findByStaffCode(createRequestDTO.getRequestedBy()).get();
@@ -1,48 +1,40 @@
 package com.nashtech.rootkies.converter.ownassignment;
 
-import java.util.Collection;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import com.nashtech.rootkies.constants.State;
 import com.nashtech.rootkies.dto.ownassignment.OwnAssignmentDTO;
-import com.nashtech.rootkies.model.Assignment;
 
-import com.nashtech.rootkies.model.Request;
 import org.springframework.stereotype.Component;
 
 @Component
 public class OwnAssignmentDTOConverter {
 
-    public Boolean checkIsReturnRequest(Assignment assignment) {
-        Collection<Request> requests = assignment.getRequests();
-        for (Request request : requests)
-            if (!request.getIsDeleted())
-                return true;
-        return false;
-    }
-    
-    public OwnAssignmentDTO toDTO(Assignment assignment) {
+    // a row of AssignmentRepository.findOwnAssignmentRows
+    public OwnAssignmentDTO toDTO(Object[] row) {
         OwnAssignmentDTO dto = new OwnAssignmentDTO();
-        dto.setAssignmentId(assignment.getAssignmentId());
-        dto.setAssetCode(assignment.getAsset().getAssetCode());
-        dto.setAssetName(assignment.getAsset().getAssetName());
-        dto.setCategoryName(assignment.getAsset().getCategory().getCategoryName());
-        dto.setAssignedDate(assignment.getAssignedDate().toString().split("T")[0]);
-        if(assignment.getState() == State.ACCEPTED){
+        dto.setAssignmentId((Long) row[0]);
+        dto.setAssetCode((String) row[1]);
+        dto.setAssetName((String) row[2]);
+        dto.setCategoryName((String) row[3]);
+        dto.setAssignedDate(((LocalDateTime) row[4]).toLocalDate().toString());
+        Short state = (Short) row[5];
+        if(State.ACCEPTED.equals(state)){
             dto.setState("Accepted");
         }
-        else if(assignment.getState() == State.WAITING_FOR_ACCEPTANCE){
+        else if(State.WAITING_FOR_ACCEPTANCE.equals(state)){
             dto.setState("Waiting for acceptance");
         }
 
-        dto.setIsReturnRequest(checkIsReturnRequest(assignment));
+        dto.setIsReturnRequest(((Long) row[6]) > 0);
         return dto;
     }
 
-    public List<OwnAssignmentDTO> toDTOList(List<Assignment> assignments){
-        List<OwnAssignmentDTO> dtoList = assignments.stream()
-                                        .map(assignment -> toDTO(assignment))
+    public List<OwnAssignmentDTO> toDTOList(List<Object[]> rows){
+        List<OwnAssignmentDTO> dtoList = rows.stream()
+                                        .map(row -> toDTO(row))
                                         .collect(Collectors.toList());
         return dtoList;
     }
@@ -4,7 +4,6 @@ import java.util.List;
 
 import com.nashtech.rootkies.dto.ownassignment.OwnAssignmentDTO;
 import com.nashtech.rootkies.dto.ownassignment.response.OwnAssignmentResponse;
-import com.nashtech.rootkies.model.Assignment;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -16,7 +15,7 @@ public class OwnAssignmentResponseConverter {
     @Autowired
     private OwnAssignmentDTOConverter converter;
 
-    public OwnAssignmentResponse convert(int pageNo, Page<Assignment> page){
+    public OwnAssignmentResponse convert(int pageNo, Page<Object[]> page){
         OwnAssignmentResponse result = new OwnAssignmentResponse();
         result.setCurrentPage(pageNo);
         result.setTotalPages(page.getTotalPages());
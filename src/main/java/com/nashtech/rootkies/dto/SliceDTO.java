@@ -0,0 +1,15 @@
+package com.nashtech.rootkies.dto;
+
+import lombok.*;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+public class SliceDTO {
+    private Object data;
+    private boolean hasNext;
+    // pass back as the cursor param to get the next slice, null on the last one
+    private String nextCursor;
+}
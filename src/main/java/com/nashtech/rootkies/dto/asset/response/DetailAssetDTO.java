@@ -1,7 +1,6 @@
 package com.nashtech.rootkies.dto.asset.response;
 
 import java.time.LocalDateTime;
-import java.util.Collection;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -26,5 +25,9 @@ public class DetailAssetDTO {
 
     private CategoryDTO category;
 
-    private Collection<AssignmentDTO> assignments;
+    // the accepted or waiting assignment, null when the asset is not assigned
+    private AssignmentDTO currentAssignment;
+
+    // live assignments of the whole history, see GET /asset/{assetCode}/assignments
+    private long assignmentCount;
 }
@@ -0,0 +1,16 @@
+package com.nashtech.rootkies.dto.asset.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ImportAssetErrorDTO {
+    // 1-based line of the input, the CSV header is line 1
+    private long line;
+    private String errorCode;
+}
@@ -0,0 +1,23 @@
+package com.nashtech.rootkies.dto.asset.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ImportAssetReportDTO {
+    private long total;
+    private long imported;
+    private long failed;
+    // at most the first ImportAssetServiceImpl.MAX_REPORTED_ERRORS failed rows, the rest are only counted
+    @Builder.Default
+    private List<ImportAssetErrorDTO> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+}
@@ -0,0 +1,23 @@
+package com.nashtech.rootkies.dto.assignment.request;
+
+import com.nashtech.rootkies.constants.ErrorCode;
+import com.nashtech.rootkies.service.BulkAssignmentService;
+import lombok.*;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+public class BulkAssignmentIdsDTO {
+
+    @NotEmpty(message = ErrorCode.ERR_BULK_ASSIGNMENT_SIZE)
+    @Size(max = BulkAssignmentService.MAX_ITEMS, message = ErrorCode.ERR_BULK_ASSIGNMENT_SIZE)
+    private List<@NotNull Long> assignmentIds;
+
+}
@@ -0,0 +1,21 @@
+package com.nashtech.rootkies.dto.assignment.request;
+
+import com.nashtech.rootkies.constants.ErrorCode;
+import lombok.*;
+
+import javax.validation.constraints.NotBlank;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+public class BulkAssignmentItemDTO {
+
+    @NotBlank(message = ErrorCode.ASSETCODE_IS_BLANK)
+    private String assetCode;
+
+    @NotBlank(message = ErrorCode.STAFF_CODE_IS_BLANK)
+    private String assignedTo;
+
+}
@@ -0,0 +1,33 @@
+package com.nashtech.rootkies.dto.assignment.request;
+
+import com.nashtech.rootkies.constants.ErrorCode;
+import com.nashtech.rootkies.service.BulkAssignmentService;
+import lombok.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+// one assigned date and note for every (asset, assignee) pair of the request
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+public class BulkCreateAssignmentDTO {
+
+    private String assignedBy;
+
+    @NotBlank(message = ErrorCode.ASSIGNED_DATE_IS_BLANK)
+    private String assignedDate;
+
+    private String note;
+
+    @Valid
+    @NotEmpty(message = ErrorCode.ERR_BULK_ASSIGNMENT_SIZE)
+    @Size(max = BulkAssignmentService.MAX_ITEMS, message = ErrorCode.ERR_BULK_ASSIGNMENT_SIZE)
+    private List<BulkAssignmentItemDTO> items;
+
+}
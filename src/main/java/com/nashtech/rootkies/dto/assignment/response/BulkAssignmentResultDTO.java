@@ -0,0 +1,20 @@
+package com.nashtech.rootkies.dto.assignment.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class BulkAssignmentResultDTO {
+    // 0-based position of the item in the request
+    private int index;
+    private String assetCode;
+    private String assignedTo;
+    // set when the assignment was created, errorCode otherwise
+    private Long assignmentId;
+    private String errorCode;
+}
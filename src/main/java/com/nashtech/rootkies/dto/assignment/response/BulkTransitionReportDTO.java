@@ -0,0 +1,22 @@
+package com.nashtech.rootkies.dto.assignment.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkTransitionReportDTO {
+    private int total;
+    private int succeeded;
+    private int failed;
+    // one result per id, in request order
+    @Builder.Default
+    private List<BulkTransitionResultDTO> results = new ArrayList<>();
+}
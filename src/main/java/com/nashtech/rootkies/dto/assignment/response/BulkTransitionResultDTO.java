@@ -0,0 +1,20 @@
+package com.nashtech.rootkies.dto.assignment.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class BulkTransitionResultDTO {
+    // 0-based position of the id in the request
+    private int index;
+    private Long assignmentId;
+    // the return request created for the assignment, only set by bulk return requests
+    private Long requestId;
+    // null when the assignment was changed
+    private String errorCode;
+}
@@ -0,0 +1,11 @@
+package com.nashtech.rootkies.event;
+
+import lombok.Value;
+
+// from and to are constants.State asset states
+@Value
+public class AssetStateChangedEvent {
+    String assetCode;
+    Short from;
+    Short to;
+}
@@ -0,0 +1,15 @@
+package com.nashtech.rootkies.event;
+
+import lombok.Value;
+
+// from and to are constants.State assignment states; from is null for a new assignment and to is null for a
+// deleted one
+@Value
+public class AssignmentStateChangedEvent {
+    Long assignmentId;
+    String assetCode;
+    // staff code of the assignee
+    String assignedTo;
+    Short from;
+    Short to;
+}
@@ -0,0 +1,134 @@
+package com.nashtech.rootkies.event;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Change feed of asset, assignment and request states. An event published inside a transaction is held back
+// until that transaction commits and dropped if it rolls back; outside a transaction it goes out at once. It is
+// then queued for a small pool of workers that hand it to the @EventListener methods of the application context,
+// so listeners run off the request thread and without a transaction. The queue is bounded: when it is full the
+// committing thread delivers the event itself, which slows writers down instead of losing events or growing the
+// heap. With more than one worker, or a delivery by the caller, events of the same row can arrive out of order;
+// listeners compare states rather than rely on the order.
+//
+// Metrics: domain.events counts events by type and outcome (published, delivered, failed, caller_runs) and
+// domain.events.queue is the number of events waiting.
+@Component
+public class DomainEventBus implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DomainEventBus.class);
+
+    public static final String COUNTER_NAME = "domain.events";
+
+    public static final String QUEUE_GAUGE_NAME = "domain.events.queue";
+
+    private static final String PUBLISHED = "published";
+    private static final String DELIVERED = "delivered";
+    private static final String FAILED = "failed";
+    private static final String CALLER_RUNS = "caller_runs";
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ThreadPoolExecutor executor;
+
+    @Autowired
+    public DomainEventBus(ApplicationEventPublisher applicationEventPublisher, MeterRegistry meterRegistry,
+            @Value("${bezkoder.app.eventWorkers:2}") int workers,
+            @Value("${bezkoder.app.eventQueueCapacity:10000}") int queueCapacity) {
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.meterRegistry = meterRegistry;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "domain-events-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, callerRuns());
+        Gauge.builder(QUEUE_GAUGE_NAME, executor, pool -> pool.getQueue().size())
+                .description("Domain events waiting for delivery")
+                .register(meterRegistry);
+    }
+
+    public void publish(Object event) {
+        count(event, PUBLISHED);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(event);
+                }
+            });
+        } else {
+            dispatch(event);
+        }
+    }
+
+    private void dispatch(Object event) {
+        executor.execute(new Delivery(event));
+    }
+
+    private void deliver(Object event) {
+        try {
+            applicationEventPublisher.publishEvent(event);
+            count(event, DELIVERED);
+        } catch (RuntimeException e) {
+            LOGGER.error("Domain event {} failed in a listener: {}", event, e.getMessage());
+            count(event, FAILED);
+        }
+    }
+
+    private RejectedExecutionHandler callerRuns() {
+        return (runnable, pool) -> {
+            if (pool.isShutdown()) {
+                LOGGER.warn("Domain event bus is shut down, {} dropped", ((Delivery) runnable).event);
+                return;
+            }
+            count(((Delivery) runnable).event, CALLER_RUNS);
+            runnable.run();
+        };
+    }
+
+    private void count(Object event, String outcome) {
+        meterRegistry.counter(COUNTER_NAME, "type", event.getClass().getSimpleName(), "outcome", outcome)
+                .increment();
+    }
+
+    // lets the queued events go out before the context closes
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+            LOGGER.warn("Domain event bus stopped with {} events undelivered", executor.shutdownNow().size());
+        }
+    }
+
+    private class Delivery implements Runnable {
+        private final Object event;
+
+        private Delivery(Object event) {
+            this.event = event;
+        }
+
+        @Override
+        public void run() {
+            deliver(event);
+        }
+    }
+}
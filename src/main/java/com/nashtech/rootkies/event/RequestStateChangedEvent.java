@@ -0,0 +1,13 @@
+package com.nashtech.rootkies.event;
+
+import lombok.Value;
+
+// from and to are constants.State request states; from is null for a new return request and to is null for a
+// cancelled one
+@Value
+public class RequestStateChangedEvent {
+    Long requestId;
+    Long assignmentId;
+    Short from;
+    Short to;
+}
@@ -0,0 +1,37 @@
+package com.nashtech.rootkies.export;
+
+import java.util.Locale;
+
+import com.nashtech.rootkies.constants.ErrorCode;
+import com.nashtech.rootkies.exception.InvalidRequestDataException;
+
+public enum ExportFormat {
+
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String fileName(String name) {
+        return name + "." + extension;
+    }
+
+    public static ExportFormat of(String format) throws InvalidRequestDataException {
+        try {
+            return valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (Exception e) {
+            throw new InvalidRequestDataException(ErrorCode.ERR_EXPORT_FORMAT_NOT_SUPPORTED);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.nashtech.rootkies.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+// Writes export rows one at a time, as CSV with a header line or as one JSON object per line. Nothing is kept
+// after a row is written; the output is flushed every FLUSH_ROWS rows so the client sees data while the query
+// is still being read.
+public class ExportWriter {
+
+    private static final int FLUSH_ROWS = 500;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final List<String> columns;
+
+    private final Writer writer;
+
+    private final JsonGenerator json;
+
+    private long rows;
+
+    public ExportWriter(ExportFormat format, List<String> columns, OutputStream out) throws IOException {
+        this.columns = columns;
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ExportFormat.NDJSON) {
+            this.json = JSON.createGenerator(writer);
+            this.json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            this.json.configure(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM, false);
+            // rows are separated by the newline written after each of them
+            this.json.setRootValueSeparator(null);
+        } else {
+            this.json = null;
+            writeCsv(columns);
+        }
+        writer.flush();
+    }
+
+    // values in the order of the columns; numbers stay numbers in JSON, everything else is written as text
+    public void write(List<?> values) throws IOException {
+        if (json != null) {
+            json.writeStartObject();
+            for (int i = 0; i < columns.size(); i++) {
+                Object value = values.get(i);
+                json.writeFieldName(columns.get(i));
+                if (value == null) {
+                    json.writeNull();
+                } else if (value instanceof Number) {
+                    json.writeNumber(value.toString());
+                } else {
+                    json.writeString(value.toString());
+                }
+            }
+            json.writeEndObject();
+            json.flush();
+            writer.write('\n');
+        } else {
+            writeCsv(values);
+        }
+        if (++rows % FLUSH_ROWS == 0) {
+            writer.flush();
+        }
+    }
+
+    public void finish() throws IOException {
+        if (json != null) {
+            json.close();
+        }
+        writer.flush();
+    }
+
+    private void writeCsv(List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values.get(i);
+            if (value != null) {
+                writer.write(quote(value.toString()));
+            }
+        }
+        writer.write('\n');
+    }
+
+    // RFC 4180 quoting, only when the value needs it
+    private static String quote(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
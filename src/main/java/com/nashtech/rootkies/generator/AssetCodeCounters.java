@@ -0,0 +1,59 @@
+package com.nashtech.rootkies.generator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// The per category counters of asset_code_counters. Every caller that hands out asset codes reserves its numbers
+// here, so codes stay unique whether an asset comes through Hibernate (AssetCodeGenerator) or the bulk import.
+public final class AssetCodeCounters {
+
+    private static final String RESERVE_SQL = "UPDATE asset_code_counters SET lastvalue = lastvalue + ? "
+            + "WHERE categorycode = ? RETURNING lastvalue";
+
+    // the first reservation of a category continues after the highest numeric code it already has in assets
+    private static final String SEED_SQL = "INSERT INTO asset_code_counters (categorycode, lastvalue) "
+            + "SELECT ?, COALESCE(MAX(CAST(SUBSTRING(a.assetcode FROM ?) AS bigint)), 0) FROM assets a "
+            + "WHERE LEFT(a.assetcode, ?) = ? AND SUBSTRING(a.assetcode FROM ?) ~ '^[0-9]{1,18}$' "
+            + "ON CONFLICT (categorycode) DO NOTHING";
+
+    private AssetCodeCounters() {
+    }
+
+    // reserves count numbers and returns the last one, the caller owns (hi - count, hi]. Should run in a short
+    // transaction of its own: the counter row stays locked until it commits.
+    public static long reserve(Connection connection, String categoryCode, long count) throws SQLException {
+        Long hi = update(connection, categoryCode, count);
+        if (hi == null) {
+            seed(connection, categoryCode);
+            hi = update(connection, categoryCode, count);
+        }
+        return hi;
+    }
+
+    public static String format(String categoryCode, long number) {
+        return categoryCode + String.format("%06d", number);
+    }
+
+    private static Long update(Connection connection, String categoryCode, long count) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(RESERVE_SQL)) {
+            ps.setLong(1, count);
+            ps.setString(2, categoryCode);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        }
+    }
+
+    private static void seed(Connection connection, String categoryCode) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(SEED_SQL)) {
+            ps.setString(1, categoryCode);
+            ps.setInt(2, categoryCode.length() + 1);
+            ps.setInt(3, categoryCode.length());
+            ps.setString(4, categoryCode);
+            ps.setInt(5, categoryCode.length() + 1);
+            ps.executeUpdate();
+        }
+    }
+}
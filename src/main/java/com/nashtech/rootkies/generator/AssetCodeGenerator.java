@@ -2,53 +2,71 @@ package com.nashtech.rootkies.generator;
 
 import java.io.Serializable;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
 import org.hibernate.id.IdentifierGenerator;
-import lombok.Getter;
-import lombok.Setter;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.jdbc.AbstractReturningWork;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
 
 import com.nashtech.rootkies.model.Asset;
 
-@Getter
-@Setter
-public class AssetCodeGenerator implements IdentifierGenerator {
+// Asset codes are the category code followed by a per category number. The numbers are handed out hi/lo: a
+// block of blockSize numbers is reserved from AssetCodeCounters with one atomic UPDATE, run in its own
+// transaction so the row is not locked until the asset insert commits, and the codes of the block are then given
+// out from memory. Numbers of a block not used before a restart are skipped.
+public class AssetCodeGenerator implements IdentifierGenerator, Configurable {
+
+    public static final String BLOCK_SIZE_PARAMETER = "blockSize";
+    public static final int BLOCK_SIZE_DEFAULT = 50;
+
+    private int blockSize;
 
-    private Short maxId = 0;
+    private final ConcurrentMap<String, Block> blocks = new ConcurrentHashMap<>();
 
     @Override
-    public Serializable generate(SharedSessionContractImplementor arg0, Object arg1) throws HibernateException {
-        Connection connection = arg0.connection();
-        Asset asset = (Asset) arg1;
-        try {
-            PreparedStatement ps = connection.prepareStatement("select * from assets a where a.assetcode like '"
-                    + asset.getCategory().getCategoryCode() + "%' order by a.assetcode desc ");
-            ResultSet rs = ps.executeQuery();
-
-            int flag = 0;
-
-            while (rs.next()) {
-                String numberPart = rs.getString("assetcode").substring(asset.getCategory().getCategoryCode().length());
-                try {
-                    Short numPart = Short.parseShort(numberPart);
-                    this.setMaxId(numPart);
-                    flag += 1;
-                    break;
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-            if (flag == 0) {
-                this.setMaxId((short) 1);
-            } else {
-                this.setMaxId((short) (this.getMaxId() + 1));
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        blockSize = ConfigurationHelper.getInt(BLOCK_SIZE_PARAMETER, params, BLOCK_SIZE_DEFAULT);
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        String categoryCode = ((Asset) object).getCategory().getCategoryCode();
+        Block block = blocks.computeIfAbsent(categoryCode, code -> new Block());
+        long value;
+        synchronized (block) {
+            if (block.next > block.hi) {
+                long hi = reserve(session, categoryCode);
+                block.next = hi - blockSize + 1;
+                block.hi = hi;
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            value = block.next++;
         }
-        return asset.getCategory().getCategoryCode() + String.format("%06d", this.getMaxId());
+        return AssetCodeCounters.format(categoryCode, value);
     }
 
+    // highest number of a newly reserved block of blockSize numbers
+    protected long reserve(SharedSessionContractImplementor session, String categoryCode) {
+        return session.getTransactionCoordinator().createIsolationDelegate()
+                .delegateWork(new AbstractReturningWork<Long>() {
+                    @Override
+                    public Long execute(Connection connection) throws SQLException {
+                        return AssetCodeCounters.reserve(connection, categoryCode, blockSize);
+                    }
+                }, true);
+    }
+
+    // numbers next..hi of the current block, empty until the first reservation
+    private static class Block {
+        private long next = 1;
+        private long hi = 0;
+    }
 }
@@ -0,0 +1,124 @@
+package com.nashtech.rootkies.lifecycle;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.nashtech.rootkies.model.LifecycleRun;
+import com.nashtech.rootkies.repository.LifecycleRunRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Runs the lifecycle rules on a schedule. A run applies its rule chunk by chunk, each chunk in a transaction of
+// its own that changes at most chunkSize rows, waits at most lockTimeoutMs for a row lock and pauses chunkPauseMs
+// before the next one, so online requests are never queued behind the job for long. Rows locked by a request are
+// skipped and picked up by a later run, which also lets several instances run the jobs side by side. A run ends
+// when a chunk comes back short, after maxChunks chunks, or on the first failed chunk; what its committed chunks
+// changed stays, the failure is recorded with the run.
+//
+// Every run is a lifecycle_runs row and every row it changed a lifecycle_changes row. lifecycle.changes counts the
+// changed rows by rule.
+@Component
+public class LifecycleJobRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LifecycleJobRunner.class);
+
+    public static final String COUNTER_NAME = "lifecycle.changes";
+
+    private final List<LifecycleRule> rules;
+
+    private final LifecycleRunRepository lifecycleRunRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    private final int chunkSize;
+
+    private final long chunkPauseMs;
+
+    private final int maxChunks;
+
+    private final long lockTimeoutMs;
+
+    @Autowired
+    public LifecycleJobRunner(List<LifecycleRule> rules, LifecycleRunRepository lifecycleRunRepository,
+            JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${bezkoder.app.lifecycle.chunkSize:500}") int chunkSize,
+            @Value("${bezkoder.app.lifecycle.chunkPauseMs:100}") long chunkPauseMs,
+            @Value("${bezkoder.app.lifecycle.maxChunks:200}") int maxChunks,
+            @Value("${bezkoder.app.lifecycle.lockTimeoutMs:2000}") long lockTimeoutMs) {
+        this.rules = rules;
+        this.lifecycleRunRepository = lifecycleRunRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = chunkSize;
+        this.chunkPauseMs = chunkPauseMs;
+        this.maxChunks = maxChunks;
+        this.lockTimeoutMs = lockTimeoutMs;
+    }
+
+    // only scheduled where config.SchedulingConfig enables scheduling
+    @Scheduled(fixedDelayString = "${bezkoder.app.lifecycle.intervalMs:3600000}",
+            initialDelayString = "${bezkoder.app.lifecycle.initialDelayMs:60000}")
+    public void runAll() {
+        for (LifecycleRule rule : rules) {
+            if (rule.isEnabled()) {
+                run(rule);
+            }
+        }
+    }
+
+    public LifecycleRun run(LifecycleRule rule) {
+        LifecycleRun run = lifecycleRunRepository.save(LifecycleRun.builder()
+                .rule(rule.getName())
+                .startedDate(LocalDateTime.now())
+                .chunks(0)
+                .changed(0L)
+                .build());
+        long runId = run.getRunId();
+        try {
+            int changed;
+            do {
+                changed = transactionTemplate.execute(status -> {
+                    jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+                    return rule.applyChunk(runId, chunkSize);
+                });
+                run.setChunks(run.getChunks() + 1);
+                run.setChanged(run.getChanged() + changed);
+                meterRegistry.counter(COUNTER_NAME, "rule", rule.getName()).increment(changed);
+            } while (changed == chunkSize && run.getChunks() < maxChunks && pause());
+        } catch (RuntimeException e) {
+            LOGGER.error("Lifecycle rule {} failed in chunk {}: {}", rule.getName(), run.getChunks() + 1,
+                    e.getMessage());
+            run.setError(e.getMessage() == null ? e.getClass().getSimpleName()
+                    : e.getMessage().substring(0, Math.min(e.getMessage().length(), 1000)));
+        }
+        run.setFinishedDate(LocalDateTime.now());
+        LOGGER.info("Lifecycle rule {} changed {} rows in {} chunks", rule.getName(), run.getChanged(),
+                run.getChunks());
+        return lifecycleRunRepository.save(run);
+    }
+
+    // false when interrupted, which ends the run
+    private boolean pause() {
+        try {
+            Thread.sleep(chunkPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.nashtech.rootkies.lifecycle;
+
+// A state change applied in the background to every row that qualifies, see LifecycleJobRunner.
+public interface LifecycleRule {
+
+    // recorded with the runs of the rule and used as the metric tag
+    String getName();
+
+    // false when configuration switches the rule off
+    boolean isEnabled();
+
+    // changes at most limit qualifying rows in the caller's transaction, leaving out rows locked by others, logs
+    // them to lifecycle_changes under runId and returns how many it changed. Fewer than limit means no more rows
+    // qualified when the chunk ran.
+    int applyChunk(long runId, int limit);
+}
@@ -0,0 +1,78 @@
+package com.nashtech.rootkies.lifecycle;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import com.nashtech.rootkies.constants.State;
+import com.nashtech.rootkies.event.AssetStateChangedEvent;
+import com.nashtech.rootkies.event.DomainEventBus;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+// Assets waiting for recycling for more than recyclingDays, counted from Asset.stateChangedDate, are marked
+// recycled. 0 days switches the rule off.
+@Component
+public class RecyclingRule implements LifecycleRule {
+
+    public static final String NAME = "recycling";
+
+    private static final String RECYCLE_SQL = "WITH picked AS ("
+            + "SELECT assetcode FROM assets "
+            + "WHERE state = ? AND isdeleted = false AND statechangeddate < ? "
+            + "ORDER BY statechangeddate LIMIT ? FOR UPDATE SKIP LOCKED), "
+            + "recycled AS ("
+            + "UPDATE assets a SET state = ?, statechangeddate = now() FROM picked p "
+            + "WHERE a.assetcode = p.assetcode RETURNING a.assetcode), "
+            + "logged AS ("
+            + "INSERT INTO lifecycle_changes (changeid, runid, entity, entitykey, fromstate, tostate) "
+            + "SELECT nextval('hibernate_sequence'), ?, 'asset', assetcode, ?, ? FROM recycled) "
+            + "SELECT assetcode FROM recycled";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DomainEventBus domainEventBus;
+
+    private final int recyclingDays;
+
+    @Autowired
+    public RecyclingRule(JdbcTemplate jdbcTemplate, DomainEventBus domainEventBus,
+            @Value("${bezkoder.app.lifecycle.recyclingDays:30}") int recyclingDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.domainEventBus = domainEventBus;
+        this.recyclingDays = recyclingDays;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return recyclingDays > 0;
+    }
+
+    @Override
+    public int applyChunk(long runId, int limit) {
+        Timestamp waitingSince = Timestamp.valueOf(LocalDateTime.now().minusDays(recyclingDays));
+        int[] changed = { 0 };
+        jdbcTemplate.query(RECYCLE_SQL, ps -> {
+            ps.setShort(1, State.WAITING_FOR_RECYCLING);
+            ps.setTimestamp(2, waitingSince);
+            ps.setInt(3, limit);
+            ps.setShort(4, State.RECYLED);
+            ps.setLong(5, runId);
+            ps.setShort(6, State.WAITING_FOR_RECYCLING);
+            ps.setShort(7, State.RECYLED);
+        }, (RowCallbackHandler) rs -> {
+            domainEventBus.publish(new AssetStateChangedEvent(rs.getString(1), State.WAITING_FOR_RECYCLING,
+                    State.RECYLED));
+            changed[0]++;
+        });
+        return changed[0];
+    }
+}
@@ -0,0 +1,105 @@
+package com.nashtech.rootkies.lifecycle;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import com.nashtech.rootkies.constants.State;
+import com.nashtech.rootkies.event.AssetStateChangedEvent;
+import com.nashtech.rootkies.event.AssignmentStateChangedEvent;
+import com.nashtech.rootkies.event.DomainEventBus;
+import com.nashtech.rootkies.service.impl.OwnAssignmentCache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+// Assignments left waiting for acceptance for more than staleAssignmentDays are declined on the assignee's behalf
+// and their asset is made available again, as if the assignee had declined them. 0 days switches the rule off.
+@Component
+public class StaleAssignmentRule implements LifecycleRule {
+
+    public static final String NAME = "stale-assignments";
+
+    // the oldest waiting assignments not locked by an online accept, decline, edit or delete, declined with their
+    // assets given back and logged, in one statement
+    private static final String DECLINE_SQL = "WITH picked AS ("
+            + "SELECT assignmentid FROM assignments "
+            + "WHERE state = ? AND isdeleted = false AND assigneddate < ? "
+            + "ORDER BY assigneddate LIMIT ? FOR UPDATE SKIP LOCKED), "
+            + "declined AS ("
+            + "UPDATE assignments s SET state = ? FROM picked p WHERE s.assignmentid = p.assignmentid "
+            + "RETURNING s.assignmentid, s.assetcode, s.assignedto), "
+            + "freed AS ("
+            + "UPDATE assets a SET state = ?, statechangeddate = now() FROM declined d "
+            + "WHERE a.assetcode = d.assetcode AND a.state = ? AND a.isdeleted = false RETURNING a.assetcode), "
+            + "logged AS ("
+            + "INSERT INTO lifecycle_changes (changeid, runid, entity, entitykey, fromstate, tostate) "
+            + "SELECT nextval('hibernate_sequence'), ?, 'assignment', CAST(assignmentid AS varchar), ?, ? "
+            + "FROM declined "
+            + "UNION ALL "
+            + "SELECT nextval('hibernate_sequence'), ?, 'asset', assetcode, ?, ? FROM freed) "
+            + "SELECT d.assignmentid, d.assetcode, d.assignedto, f.assetcode IS NOT NULL "
+            + "FROM declined d LEFT JOIN freed f ON f.assetcode = d.assetcode";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DomainEventBus domainEventBus;
+
+    private final OwnAssignmentCache ownAssignmentCache;
+
+    private final int staleAssignmentDays;
+
+    @Autowired
+    public StaleAssignmentRule(JdbcTemplate jdbcTemplate, DomainEventBus domainEventBus,
+            OwnAssignmentCache ownAssignmentCache,
+            @Value("${bezkoder.app.lifecycle.staleAssignmentDays:14}") int staleAssignmentDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.domainEventBus = domainEventBus;
+        this.ownAssignmentCache = ownAssignmentCache;
+        this.staleAssignmentDays = staleAssignmentDays;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return staleAssignmentDays > 0;
+    }
+
+    @Override
+    public int applyChunk(long runId, int limit) {
+        Timestamp assignedBefore = Timestamp.valueOf(LocalDateTime.now().minusDays(staleAssignmentDays));
+        int[] changed = { 0 };
+        jdbcTemplate.query(DECLINE_SQL, ps -> {
+            ps.setShort(1, State.WAITING_FOR_ACCEPTANCE);
+            ps.setTimestamp(2, assignedBefore);
+            ps.setInt(3, limit);
+            ps.setShort(4, State.DECLINED);
+            ps.setShort(5, State.AVAILABLE);
+            ps.setShort(6, State.ASSIGNED);
+            ps.setLong(7, runId);
+            ps.setShort(8, State.WAITING_FOR_ACCEPTANCE);
+            ps.setShort(9, State.DECLINED);
+            ps.setLong(10, runId);
+            ps.setShort(11, State.ASSIGNED);
+            ps.setShort(12, State.AVAILABLE);
+        }, (RowCallbackHandler) rs -> {
+            long assignmentId = rs.getLong(1);
+            String assetCode = rs.getString(2);
+            String assignedTo = rs.getString(3);
+            if (rs.getBoolean(4)) {
+                domainEventBus.publish(new AssetStateChangedEvent(assetCode, State.ASSIGNED, State.AVAILABLE));
+            }
+            domainEventBus.publish(new AssignmentStateChangedEvent(assignmentId, assetCode, assignedTo,
+                    State.WAITING_FOR_ACCEPTANCE, State.DECLINED));
+            ownAssignmentCache.evict(assignedTo);
+            changed[0]++;
+        });
+        return changed[0];
+    }
+}
@@ -6,13 +6,16 @@ import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import java.time.LocalDateTime;
 import java.util.Collection;
 
 @Entity
 @Table(name = "assets", indexes = { @Index(name = "asset_name_idx", columnList = "assetname"),
                 @Index(name = "asset_category_idx", columnList = "categorycode"),
-                @Index(name = "asset_state_idx", columnList = "state") })
+                @Index(name = "asset_state_idx", columnList = "state"),
+                @Index(name = "asset_location_category_state_idx", columnList = "locationid, categorycode, state"),
+                @Index(name = "asset_state_statechangeddate_idx", columnList = "state, statechangeddate") })
 @Getter
 @Setter
 @NoArgsConstructor
@@ -22,7 +25,8 @@ public class Asset {
         @Id
         @Column(name = "assetcode")
         @GeneratedValue(generator = "assetCodeGenerator")
-        @GenericGenerator(name = "assetCodeGenerator", strategy = "com.nashtech.rootkies.generator.AssetCodeGenerator")
+        @GenericGenerator(name = "assetCodeGenerator", strategy = "com.nashtech.rootkies.generator.AssetCodeGenerator", parameters = {
+                        @Parameter(name = "blockSize", value = "50") })
         private String assetCode;
 
         @NotBlank
@@ -33,6 +37,11 @@ public class Asset {
         @Column(name = "state")
         private Short state;
 
+        // when the asset entered its current state, set by the database on insert and by every state change
+        @Column(name = "statechangeddate", insertable = false,
+                        columnDefinition = "timestamp without time zone NOT NULL DEFAULT now()")
+        private LocalDateTime stateChangedDate;
+
         @NotNull
         @Column(name = "installdate")
         private LocalDateTime installDate;
@@ -0,0 +1,24 @@
+package com.nashtech.rootkies.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+
+// Last asset number reserved per category, only written by AssetCodeGenerator
+@Entity
+@Table(name = "asset_code_counters")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AssetCodeCounter {
+    @Id
+    @Column(name = "categorycode")
+    private String categoryCode;
+
+    @NotNull
+    @Column(name = "lastvalue")
+    private Long lastValue;
+}
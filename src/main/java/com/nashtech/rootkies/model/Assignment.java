@@ -1,6 +1,8 @@
 package com.nashtech.rootkies.model;
 
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Where;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -10,9 +12,28 @@ import java.util.Collection;
 @Table(name = "assignments",
         indexes = {
                 @Index(name = "assignment_assignedto_idx" , columnList = "assignedto"),
-                @Index(name = "assignment_assetcode_idx", columnList = "assetcode"),
+                @Index(name = "assignment_assetcode_assigneddate_idx", columnList = "assetcode, assigneddate DESC"),
                 @Index(name = "assignment_assigneddate_idx", columnList = "assigneddate"),
-                @Index(name = "assignment_state_idx", columnList = "state")
+                @Index(name = "assignment_state_idx", columnList = "state"),
+                @Index(name = "assignment_state_assigneddate_idx", columnList = "state, assigneddate"),
+                @Index(name = "assignment_assignedto_isdeleted_state_assigneddate_idx",
+                        columnList = "assignedto, isdeleted, state, assigneddate")
+        }
+)
+// every to-one the list and view DTOs read, the users with their role and the asset with its category and location,
+// so a page is one joined select instead of a select per row and association
+@NamedEntityGraph(name = Assignment.LIST_GRAPH,
+        attributeNodes = {
+                @NamedAttributeNode(value = "assignedTo", subgraph = "user"),
+                @NamedAttributeNode(value = "assignedBy", subgraph = "user"),
+                @NamedAttributeNode(value = "asset", subgraph = "asset")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "user", attributeNodes = @NamedAttributeNode("role")),
+                @NamedSubgraph(name = "asset", attributeNodes = {
+                        @NamedAttributeNode("category"),
+                        @NamedAttributeNode("location")
+                })
         }
 )
 @Getter
@@ -21,6 +42,8 @@ import java.util.Collection;
 @AllArgsConstructor
 @Builder
 public class Assignment {
+    public static final String LIST_GRAPH = "Assignment.list";
+
     @Id
     @GeneratedValue
     @Column(name = "assignmentid")
@@ -52,4 +75,10 @@ public class Assignment {
 
     @OneToMany(mappedBy = "assignment")
     private Collection<Request> requests;
+
+    // read only view of requests without the deleted ones, loaded for a whole page of assignments at once
+    @OneToMany(mappedBy = "assignment")
+    @Where(clause = "isdeleted = false")
+    @BatchSize(size = 100)
+    private Collection<Request> activeRequests;
 }
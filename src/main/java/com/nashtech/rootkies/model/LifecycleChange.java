@@ -0,0 +1,42 @@
+package com.nashtech.rootkies.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+
+// A row changed by a lifecycle run, written by the rule in the statement that changes it. entity is "assignment"
+// or "asset", entityKey the assignment id or asset code and the states are constants.State values of that entity.
+@Entity
+@Table(name = "lifecycle_changes", indexes = { @Index(name = "lifecycle_change_runid_idx", columnList = "runid") })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LifecycleChange {
+    @Id
+    @GeneratedValue
+    @Column(name = "changeid")
+    private Long changeId;
+
+    @NotNull
+    @Column(name = "runid")
+    private Long runId;
+
+    @NotNull
+    @Column(name = "entity")
+    private String entity;
+
+    @NotNull
+    @Column(name = "entitykey")
+    private String entityKey;
+
+    @NotNull
+    @Column(name = "fromstate")
+    private Short fromState;
+
+    @NotNull
+    @Column(name = "tostate")
+    private Short toState;
+}
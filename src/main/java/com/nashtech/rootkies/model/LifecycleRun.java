@@ -0,0 +1,45 @@
+package com.nashtech.rootkies.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+// One run of a lifecycle rule, see lifecycle.LifecycleJobRunner. finishedDate stays null while the run is going
+// and error holds the message of the failure that stopped it.
+@Entity
+@Table(name = "lifecycle_runs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LifecycleRun {
+    @Id
+    @GeneratedValue
+    @Column(name = "runid")
+    private Long runId;
+
+    @NotNull
+    @Column(name = "rule")
+    private String rule;
+
+    @NotNull
+    @Column(name = "starteddate")
+    private LocalDateTime startedDate;
+
+    @Column(name = "finisheddate")
+    private LocalDateTime finishedDate;
+
+    @NotNull
+    @Column(name = "chunks")
+    private Integer chunks;
+
+    @NotNull
+    @Column(name = "changed")
+    private Long changed;
+
+    @Column(name = "error", length = 1000)
+    private String error;
+}
@@ -14,12 +14,34 @@ import java.time.LocalDateTime;
                 @Index(name = "request_assignmentid_idx" , columnList = "assignmentid")
         }
 )
+// the to-ones of the request and of its assignment that the list and view DTOs read, see Assignment.LIST_GRAPH
+@NamedEntityGraph(name = Request.LIST_GRAPH,
+        attributeNodes = {
+                @NamedAttributeNode(value = "requestedBy", subgraph = "user"),
+                @NamedAttributeNode(value = "acceptedBy", subgraph = "user"),
+                @NamedAttributeNode(value = "assignment", subgraph = "assignment")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "user", attributeNodes = @NamedAttributeNode("role")),
+                @NamedSubgraph(name = "assignment", attributeNodes = {
+                        @NamedAttributeNode(value = "assignedTo", subgraph = "user"),
+                        @NamedAttributeNode(value = "assignedBy", subgraph = "user"),
+                        @NamedAttributeNode(value = "asset", subgraph = "asset")
+                }),
+                @NamedSubgraph(name = "asset", attributeNodes = {
+                        @NamedAttributeNode("category"),
+                        @NamedAttributeNode("location")
+                })
+        }
+)
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class Request {
+    public static final String LIST_GRAPH = "Request.list";
+
     @Id
     @GeneratedValue
     @Column(name = "requestid")
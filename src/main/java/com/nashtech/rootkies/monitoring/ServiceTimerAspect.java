@@ -0,0 +1,63 @@
+package com.nashtech.rootkies.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Times every public method of the main services as service.method, tagged with the class, the method and
+// whether it returned or threw. Calls from one method of a service to another are not seen by the proxy.
+@Aspect
+@Component
+public class ServiceTimerAspect {
+
+    public static final String TIMER_NAME = "service.method";
+
+    private static final String SUCCESS = "SUCCESS";
+
+    private static final String ERROR = "ERROR";
+
+    private static final String NONE = "none";
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public ServiceTimerAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Pointcut("within(com.nashtech.rootkies.service.impl.AssetServiceImpl)"
+            + " || within(com.nashtech.rootkies.service.impl.AssignmentServiceImpl)"
+            + " || within(com.nashtech.rootkies.service.impl.RequestServiceImpl)"
+            + " || within(com.nashtech.rootkies.service.impl.UserServiceImpl)"
+            + " || within(com.nashtech.rootkies.service.impl.CategoryServiceImpl)"
+            + " || within(com.nashtech.rootkies.service.impl.AuthServiceImpl)")
+    public void timedServices() {
+    }
+
+    @Around("timedServices() && execution(public * *(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = SUCCESS;
+        String exception = NONE;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            outcome = ERROR;
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(TIMER_NAME).description("Service method latency")
+                    .tags("class", joinPoint.getSignature().getDeclaringType().getSimpleName(),
+                            "method", joinPoint.getSignature().getName(),
+                            "outcome", outcome, "exception", exception)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.nashtech.rootkies.monitoring;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Most SQL statements an endpoint is expected to run. Going over it is logged and counted in
+// sql.request.budget.exceeded; controller tests check it with SqlStatementBudget.withinDeclaredBudget().
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SqlBudget {
+
+    int value();
+}
@@ -0,0 +1,39 @@
+package com.nashtech.rootkies.monitoring;
+
+import org.hibernate.BaseSessionEventListener;
+
+// Registered for every session through hibernate.session.events.auto, see SqlStatisticsConfig. A session is used
+// by one thread at a time, so the start times can be plain fields.
+public class SqlStatementListener extends BaseSessionEventListener {
+
+    private long statementStart;
+
+    private long batchStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        record(statementStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        record(batchStart);
+    }
+
+    private void record(long start) {
+        SqlStatistics statistics = SqlStatistics.current();
+        if (statistics != null) {
+            statistics.record(System.nanoTime() - start);
+        }
+    }
+}
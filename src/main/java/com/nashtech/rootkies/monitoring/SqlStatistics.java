@@ -0,0 +1,52 @@
+package com.nashtech.rootkies.monitoring;
+
+import java.util.concurrent.TimeUnit;
+
+// Statements executed through Hibernate and their JDBC time, collected per request on the request thread by
+// SqlStatementListener. Work handed to another thread (streamed exports) and plain JdbcTemplate calls are not
+// counted.
+public final class SqlStatistics {
+
+    private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+
+    private long nanos;
+
+    private SqlStatistics() {
+    }
+
+    public static SqlStatistics start() {
+        SqlStatistics statistics = new SqlStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    // null when no request is being counted on this thread
+    public static SqlStatistics current() {
+        return CURRENT.get();
+    }
+
+    public static SqlStatistics stop() {
+        SqlStatistics statistics = CURRENT.get();
+        CURRENT.remove();
+        return statistics;
+    }
+
+    void record(long elapsedNanos) {
+        statements++;
+        nanos += elapsedNanos;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
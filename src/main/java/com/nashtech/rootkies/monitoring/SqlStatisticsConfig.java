@@ -0,0 +1,16 @@
+package com.nashtech.rootkies.monitoring;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SqlStatisticsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementListenerCustomizer() {
+        return properties -> properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER,
+                SqlStatementListener.class.getName());
+    }
+}
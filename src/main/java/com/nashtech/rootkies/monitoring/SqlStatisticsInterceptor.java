@@ -0,0 +1,71 @@
+package com.nashtech.rootkies.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+// Counts the SQL of each handled request and publishes it per endpoint as sql.request.statements and
+// sql.request.time. An interceptor rather than a servlet filter so MockMvc tests without filters are counted too.
+@Component
+public class SqlStatisticsInterceptor implements AsyncHandlerInterceptor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqlStatisticsInterceptor.class);
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public SqlStatisticsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlStatistics.start();
+        return true;
+    }
+
+    // the body of a streamed response is written on another thread, nothing more to count here
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        SqlStatistics.stop();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        SqlStatistics statistics = SqlStatistics.stop();
+        if (statistics == null || !(handler instanceof HandlerMethod)) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        String method = request.getMethod();
+
+        DistributionSummary.builder("sql.request.statements").description("SQL statements per request")
+                .tags("method", method, "uri", uri).register(meterRegistry).record(statistics.getStatements());
+        Timer.builder("sql.request.time").description("JDBC time per request")
+                .tags("method", method, "uri", uri).register(meterRegistry)
+                .record(statistics.getNanos(), TimeUnit.NANOSECONDS);
+
+        SqlBudget budget = ((HandlerMethod) handler).getMethodAnnotation(SqlBudget.class);
+        if (budget != null && statistics.getStatements() > budget.value()) {
+            Counter.builder("sql.request.budget.exceeded").tags("method", method, "uri", uri)
+                    .register(meterRegistry).increment();
+            LOGGER.warn("{} {} ran {} SQL statements, budget is {}", method, uri, statistics.getStatements(),
+                    budget.value());
+        }
+    }
+}
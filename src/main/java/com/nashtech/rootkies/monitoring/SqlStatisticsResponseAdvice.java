@@ -0,0 +1,44 @@
+package com.nashtech.rootkies.monitoring;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+// Adds the SQL counted so far as response headers. The interceptor's afterCompletion runs once the body is
+// committed, so the headers are set here, just before the body is written. Off in prod.
+@ControllerAdvice
+@ConditionalOnProperty(name = "bezkoder.app.sqlStatisticsHeaders", havingValue = "true")
+public class SqlStatisticsResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String STATEMENTS_HEADER = "X-SQL-Statements";
+
+    public static final String TIME_HEADER = "X-SQL-Time-Ms";
+
+    public static final String BUDGET_HEADER = "X-SQL-Budget";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+            Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+            ServerHttpResponse response) {
+        SqlStatistics statistics = SqlStatistics.current();
+        if (statistics != null) {
+            response.getHeaders().set(STATEMENTS_HEADER, String.valueOf(statistics.getStatements()));
+            response.getHeaders().set(TIME_HEADER, String.valueOf(statistics.getMillis()));
+            SqlBudget budget = returnType.getMethodAnnotation(SqlBudget.class);
+            if (budget != null) {
+                response.getHeaders().set(BUDGET_HEADER, String.valueOf(budget.value()));
+            }
+        }
+        return body;
+    }
+}
@@ -6,14 +6,22 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import com.nashtech.rootkies.model.Asset;
 
+import javax.persistence.QueryHint;
 import javax.transaction.Transactional;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
 public interface AssetRepository extends JpaRepository<Asset, String>, JpaSpecificationExecutor<Asset> {
 
@@ -26,27 +34,51 @@ public interface AssetRepository extends JpaRepository<Asset, String>, JpaSpecif
     @Query("FROM Asset a WHERE a.location.locationId = ?1 AND a.isDeleted = false AND a.assetCode = ?2")
     Optional<Asset> findByAssetCode(Long locationId, String assetCode);
 
+    @Query("SELECT CASE WHEN COUNT(a) > 0 THEN true ELSE false END FROM Asset a " +
+            "WHERE a.location.locationId = ?1 AND a.isDeleted = false AND a.assetCode = ?2")
+    Boolean existsByAssetCode(Long locationId, String assetCode);
+
+    @Query("FROM Asset a JOIN FETCH a.category JOIN FETCH a.location " +
+            "WHERE a.location.locationId = ?1 AND a.isDeleted = false AND a.assetCode = ?2")
+    Optional<Asset> findDetailByAssetCode(Long locationId, String assetCode);
+
+    // export: read through a server side cursor, the caller needs a transaction and detaches what it has written
+    @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true") })
+    @Query("SELECT a FROM Asset a JOIN FETCH a.category JOIN FETCH a.location " +
+            "WHERE a.location.locationId = ?1 AND a.isDeleted = false ORDER BY a.assetCode")
+    Stream<Asset> streamAllByLocation(Long locationId);
+
+    // assetCode and state of those of the codes that are live assets of the location
+    @Query("SELECT a.assetCode, a.state FROM Asset a " +
+            "WHERE a.location.locationId = ?1 AND a.isDeleted = false AND a.assetCode IN ?2")
+    List<Object[]> findStatesByAssetCodes(Long locationId, Collection<String> assetCodes);
+
     public List<Asset> findByAssetCodeStartingWithOrderByAssetCodeDesc(String categoryCode);
 
+    // state transitions are compare-and-set: 0 when the asset is no longer in the expected state
     @Modifying
     @Transactional
-    @Query(value = "update assets set state = 3 where assetcode =?1 " , nativeQuery = true)
-    void updateStateWhenIsAssigned(String assetCode);
-
-    @Query(value = "SELECT  c.categoryname AS category  ," +
-            "(SELECT count(a2.assetcode) FROM assets a2 WHERE a2.categorycode =?1 AND a2.state =1 " +
-            "AND a2.isdeleted = FALSE AND a2.locationId = ?2)AS available ," +
-            "(SELECT count(a2.assetcode) FROM assets a2 WHERE a2.categorycode =?1 AND  a2.state =2 " +
-            "AND a2.isdeleted = FALSE AND a2.locationId = ?2)AS notavailable ," +
-            "(SELECT count(a2.assetcode) FROM assets a2 WHERE a2.categorycode =?1 AND  a2.state =3 " +
-            "AND a2.isdeleted = FALSE AND a2.locationId = ?2)AS assigned," +
-            "(SELECT count(a2.assetcode) FROM assets a2 WHERE a2.categorycode =?1 AND  a2.state =4 " +
-            "AND a2.isdeleted = FALSE AND a2.locationId = ?2)AS waitforecyvle," +
-            "(SELECT count(a2.assetcode) FROM assets a2 WHERE a2.categorycode =?1 AND  a2.state =5 " +
-            "AND a2.isdeleted = FALSE AND a2.locationId = ?2)AS recycled " +
-            "FROM assets a  " +
-            "JOIN  categories c ON c.categorycode = a.categorycode " +
-            "WHERE a.categorycode =?1  AND a.isdeleted = FALSE AND a.locationId = ?2 " +
-            "GROUP BY c.categoryname LIMIT 1", nativeQuery = true)
-    List<Object[]> getAssetReportByCategoryCode(String categoryCode , Long locationId);
+    @Query("UPDATE Asset a SET a.state = ?3, a.stateChangedDate = CURRENT_TIMESTAMP " +
+            "WHERE a.assetCode = ?1 AND a.state = ?2 AND a.isDeleted = false")
+    int compareAndSetState(String assetCode, Short expected, Short state);
+
+    // an admin edit, applied only while the asset is still in the state it was read in and not assigned: 0 when a
+    // concurrent assignment or edit got there first. stateChangedDate only moves when the state does.
+    @Modifying
+    @Transactional
+    @Query("UPDATE Asset a SET a.assetName = ?3, a.specification = ?4, a.installDate = ?5, a.state = ?6, " +
+            "a.stateChangedDate = CASE WHEN a.state = ?6 THEN a.stateChangedDate ELSE CURRENT_TIMESTAMP END " +
+            "WHERE a.assetCode = ?1 AND a.state = ?2 AND a.state <> 3 AND a.isDeleted = false")
+    int editIfState(String assetCode, Short expected, String assetName, String specification,
+            LocalDateTime installDate, Short state);
+
+    // one row per (category, state) of the location, categories without assets come back with a null state
+    @Query(value = "SELECT c.categoryname AS category, a.state AS state, COUNT(a.assetcode) AS quantity " +
+            "FROM categories c " +
+            "LEFT JOIN assets a ON a.categorycode = c.categorycode " +
+            "AND a.isdeleted = FALSE AND a.locationid = ?1 " +
+            "GROUP BY c.categorycode, c.categoryname, a.state " +
+            "ORDER BY c.categoryname", nativeQuery = true)
+    List<Object[]> getAssetReport(Long locationId);
 }
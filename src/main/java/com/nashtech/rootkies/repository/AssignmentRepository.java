@@ -1,8 +1,13 @@
 package com.nashtech.rootkies.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+import javax.transaction.Transactional;
 
 import com.nashtech.rootkies.model.Asset;
 import com.nashtech.rootkies.model.Assignment;
@@ -10,22 +15,70 @@ import com.nashtech.rootkies.model.User;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
 public interface AssignmentRepository extends JpaRepository<Assignment, Long>, JpaSpecificationExecutor<Assignment> {
 
     List<Assignment> findByAsset(Asset asset);
 
+    // one row per (assignment, request) of the open assignments of the asset, accepted or waiting for acceptance,
+    // newest first; the request is null when the assignment has none
+    @Query("SELECT s, r FROM Assignment s " +
+            "JOIN FETCH s.assignedTo t JOIN FETCH t.role " +
+            "JOIN FETCH s.assignedBy b JOIN FETCH b.role " +
+            "LEFT JOIN s.requests r ON r.isDeleted = false " +
+            "LEFT JOIN FETCH r.requestedBy rb LEFT JOIN FETCH rb.role " +
+            "LEFT JOIN FETCH r.acceptedBy ab LEFT JOIN FETCH ab.role " +
+            "WHERE s.asset.assetCode = ?1 AND s.isDeleted = false AND s.state IN (1, 2) " +
+            "ORDER BY s.assignedDate DESC, s.assignmentId DESC, r.requestId")
+    List<Object[]> findCurrentRowsByAssetCode(String assetCode);
+
+    @Query("SELECT COUNT(s) FROM Assignment s WHERE s.asset.assetCode = ?1 AND s.isDeleted = false")
+    long countHistoryByAssetCode(String assetCode);
+
+    // a page of the history of the asset, read along assignment_assetcode_assigneddate_idx; the live requests come
+    // with Assignment.activeRequests, batch loaded for the whole page
+    @Query(value = "SELECT s FROM Assignment s " +
+            "JOIN FETCH s.assignedTo t JOIN FETCH t.role " +
+            "JOIN FETCH s.assignedBy b JOIN FETCH b.role " +
+            "WHERE s.asset.assetCode = ?1 AND s.isDeleted = false",
+            countQuery = "SELECT COUNT(s) FROM Assignment s WHERE s.asset.assetCode = ?1 AND s.isDeleted = false")
+    Page<Assignment> findHistoryByAssetCode(String assetCode, Pageable pageable);
+
+    // export: read through a server side cursor, the caller needs a transaction and detaches what it has written
+    @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true") })
+    @Query("SELECT s FROM Assignment s " +
+            "JOIN FETCH s.asset a JOIN FETCH a.category JOIN FETCH a.location " +
+            "JOIN FETCH s.assignedTo t JOIN FETCH t.role " +
+            "JOIN FETCH s.assignedBy b JOIN FETCH b.role " +
+            "WHERE b.location.locationId = ?1 AND s.isDeleted = false ORDER BY s.assignmentId")
+    Stream<Assignment> streamAllByLocation(Long locationId);
+
     @Query("SELECT COUNT (*) FROM Assignment a WHERE a.assignedBy.location.locationId = ?1 AND a.isDeleted = false AND (a.state = 1 OR a.state = 2 OR a.state = 3)")
     Long CountAllByLocationAndDefaultState(Long locationId);
 
+    @EntityGraph(value = Assignment.LIST_GRAPH, type = EntityGraphType.LOAD)
     @Query("FROM Assignment a WHERE a.assignedBy.location.locationId = ?1 AND a.isDeleted = false AND (a.state = 1 OR a.state = 2 OR a.state = 3)")
     Page<Assignment> getAllByLocationAndDefaultState(Pageable page, Long locationId);
 
+    // filter-search-sort pages
+    @Override
+    @EntityGraph(value = Assignment.LIST_GRAPH, type = EntityGraphType.LOAD)
+    Page<Assignment> findAll(Specification<Assignment> spec, Pageable pageable);
+
     @Query("FROM Assignment a WHERE a.assignedBy.location.locationId = ?1 AND a.isDeleted = false AND a.assignmentId = ?2")
     Optional<Assignment> findByAssignmentId(Long locationId, Long assignmentId);
 
@@ -34,6 +87,43 @@ public interface AssignmentRepository extends JpaRepository<Assignment, Long>, J
 
     Boolean checkAnyValidAssignment(String staffCode);
 
-    Page<Assignment> findByAssignedToAndStateNotAndStateNotAndAssignedDateLessThanAndIsDeleted(User assignedTo, 
-                    Short state1, Short state2, LocalDateTime current, Boolean isDeleted, Pageable pageable);
+    // own assignments of a staff user: assignmentId, assetCode, assetName, categoryName, assignedDate, state and the
+    // number of live return requests, without loading the entities
+    @Query(value = "SELECT s.assignmentId, s.asset.assetCode, s.asset.assetName, s.asset.category.categoryName, " +
+            "s.assignedDate, s.state, " +
+            "(SELECT COUNT(r) FROM Request r WHERE r.assignment = s AND r.isDeleted = false) " +
+            "FROM Assignment s " +
+            "WHERE s.assignedTo.staffCode = ?1 AND s.isDeleted = false AND s.state IN ?2 AND s.assignedDate < ?3",
+            countQuery = "SELECT COUNT(s) FROM Assignment s " +
+                    "WHERE s.assignedTo.staffCode = ?1 AND s.isDeleted = false AND s.state IN ?2 " +
+                    "AND s.assignedDate < ?3")
+    Page<Object[]> findOwnAssignmentRows(String staffCode, Collection<Short> states, LocalDateTime assignedBefore,
+            Pageable pageable);
+
+    // assignmentId, assignee staff code, state and the number of waiting return requests of those of the ids that
+    // are live assignments, for the bulk transitions to check a whole request at once
+    @Query("SELECT s.assignmentId, s.assignedTo.staffCode, s.state, " +
+            "(SELECT COUNT(r) FROM Request r WHERE r.assignment = s AND r.isDeleted = false AND r.state = 1) " +
+            "FROM Assignment s WHERE s.assignmentId IN ?1 AND s.isDeleted = false")
+    List<Object[]> findStateRowsByAssignmentIds(Collection<Long> assignmentIds);
+
+    // state transitions are compare-and-set: 0 when the assignment is no longer in the expected state
+    @Modifying
+    @Transactional
+    @Query("UPDATE Assignment s SET s.state = ?3 WHERE s.assignmentId = ?1 AND s.state = ?2 AND s.isDeleted = false")
+    int compareAndSetState(Long assignmentId, Short expected, Short state);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Assignment s SET s.isDeleted = true " +
+            "WHERE s.assignmentId = ?1 AND s.state = ?2 AND s.isDeleted = false")
+    int deleteIfState(Long assignmentId, Short expected);
+
+    // an edit is only allowed while the assignment waits for acceptance
+    @Modifying
+    @Transactional
+    @Query("UPDATE Assignment s SET s.asset = ?2, s.assignedTo = ?3, s.assignedBy = ?4, s.assignedDate = ?5, " +
+            "s.note = ?6 WHERE s.assignmentId = ?1 AND s.state = ?7 AND s.isDeleted = false")
+    int updateIfState(Long assignmentId, Asset asset, User assignedTo, User assignedBy, LocalDateTime assignedDate,
+            String note, Short expected);
 }
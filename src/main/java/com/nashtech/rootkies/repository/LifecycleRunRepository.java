@@ -0,0 +1,10 @@
+package com.nashtech.rootkies.repository;
+
+import com.nashtech.rootkies.model.LifecycleRun;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface LifecycleRunRepository extends JpaRepository<LifecycleRun, Long> {
+}
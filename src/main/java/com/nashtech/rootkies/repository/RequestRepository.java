@@ -1,16 +1,30 @@
 package com.nashtech.rootkies.repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+import javax.transaction.Transactional;
 
 import com.nashtech.rootkies.model.Request;
+import com.nashtech.rootkies.model.User;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
 public interface RequestRepository extends JpaRepository<Request, Long>, JpaSpecificationExecutor<Request> {
     @Query("FROM Request r WHERE r.requestedBy.location.locationId = ?1 AND r.isDeleted = false AND r.requestId = ?2")
@@ -19,6 +33,31 @@ public interface RequestRepository extends JpaRepository<Request, Long>, JpaSpec
     @Query("SELECT COUNT (*) FROM Request r WHERE r.requestedBy.location.locationId = ?1 AND r.isDeleted = false")
     Long CountAllByLocationAndDefaultState(Long locationId);
 
+    @EntityGraph(value = Request.LIST_GRAPH, type = EntityGraphType.LOAD)
     @Query("FROM Request r WHERE r.requestedBy.location.locationId = ?1 AND r.isDeleted = false")
     Page<Request> getAllByLocationAndDefaultState(Pageable page, Long locationId);
+
+    // filter-search-sort pages
+    @Override
+    @EntityGraph(value = Request.LIST_GRAPH, type = EntityGraphType.LOAD)
+    Page<Request> findAll(Specification<Request> spec, Pageable pageable);
+
+    // export: read through a server side cursor, the caller needs a transaction and detaches what it has written
+    @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true") })
+    @Query("SELECT r FROM Request r " +
+            "JOIN FETCH r.assignment s JOIN FETCH s.asset a JOIN FETCH a.category JOIN FETCH a.location " +
+            "JOIN FETCH s.assignedTo t JOIN FETCH t.role " +
+            "JOIN FETCH s.assignedBy b JOIN FETCH b.role " +
+            "JOIN FETCH r.requestedBy q JOIN FETCH q.role " +
+            "LEFT JOIN FETCH r.acceptedBy ab LEFT JOIN FETCH ab.role " +
+            "WHERE q.location.locationId = ?1 AND r.isDeleted = false ORDER BY r.requestId")
+    Stream<Request> streamAllByLocation(Long locationId);
+
+    // completes or cancels a live request waiting for returning, 0 when it has already been completed or cancelled
+    @Modifying
+    @Transactional
+    @Query("UPDATE Request r SET r.state = ?2, r.isDeleted = ?3, r.acceptedBy = ?4, r.returnedDate = ?5 " +
+            "WHERE r.requestId = ?1 AND r.state = 1 AND r.isDeleted = false")
+    int closeIfWaiting(Long requestId, Short state, Boolean isDeleted, User acceptedBy, LocalDateTime returnedDate);
 }
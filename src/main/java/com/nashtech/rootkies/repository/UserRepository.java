@@ -1,5 +1,7 @@
 package com.nashtech.rootkies.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -20,6 +22,15 @@ public interface UserRepository extends JpaRepository<User, String>, JpaSpecific
 
 	Optional<User> findByStaffCode(String staffcode);
 
+	// empty when there is no such user, without loading the user
+	@Query("SELECT u.isDeleted FROM User u WHERE u.staffCode = ?1")
+	Optional<Boolean> findIsDeletedByStaffCode(String staffCode);
+
+	// those of the staff codes that are live users of the location
+	@Query("SELECT u.staffCode FROM User u WHERE u.location.locationId = ?1 AND u.isDeleted = false "
+			+ "AND u.staffCode IN ?2")
+	List<String> findStaffCodesByLocation(Long locationId, Collection<String> staffCodes);
+
 	// Boolean existsByEmail(String email);
 	@Query(value = "SELECT CASE  WHEN count(staffcode) > 0 THEN true ELSE false END checkExist FROM "
 			+ "users u  where staffcode =?1 and isdeleted = false", nativeQuery = true)
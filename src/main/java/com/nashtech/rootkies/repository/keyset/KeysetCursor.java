@@ -0,0 +1,104 @@
+package com.nashtech.rootkies.repository.keyset;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nashtech.rootkies.constants.ErrorCode;
+import com.nashtech.rootkies.exception.custom.ApiRequestException;
+
+import org.springframework.data.domain.Sort;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// The continuation token of a keyset slice: the sort key and primary key of the last row sent, plus the sort it
+// was taken under so a token is not replayed against a different ordering. Clients treat it as opaque.
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class KeysetCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private String sort;
+
+    private String direction;
+
+    private String value;
+
+    private String id;
+
+    public static KeysetCursor of(Sort.Order order, Object value, Object id) {
+        return new KeysetCursor(order.getProperty(), order.getDirection().name(), format(value), format(id));
+    }
+
+    public String encode() {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(this));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // a blank token starts from the first row
+    public static KeysetCursor decode(String token, Sort.Order order) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        KeysetCursor cursor;
+        try {
+            cursor = MAPPER.readValue(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8),
+                    KeysetCursor.class);
+        } catch (Exception e) {
+            throw new ApiRequestException(ErrorCode.ERR_INVALID_CURSOR, e);
+        }
+        if (cursor.getId() == null || !order.getProperty().equals(cursor.getSort())
+                || !order.getDirection().name().equals(cursor.getDirection())) {
+            throw new ApiRequestException(ErrorCode.ERR_INVALID_CURSOR);
+        }
+        return cursor;
+    }
+
+    static Object parse(String value, Class<?> type) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            if (type == String.class) {
+                return value;
+            } else if (type == Long.class || type == long.class) {
+                return Long.valueOf(value);
+            } else if (type == Integer.class || type == int.class) {
+                return Integer.valueOf(value);
+            } else if (type == Short.class || type == short.class) {
+                return Short.valueOf(value);
+            } else if (type == Boolean.class || type == boolean.class) {
+                return Boolean.valueOf(value);
+            } else if (type == LocalDateTime.class) {
+                return LocalDateTime.parse(value);
+            } else if (type.isEnum()) {
+                return enumValue(type, value);
+            }
+        } catch (Exception e) {
+            throw new ApiRequestException(ErrorCode.ERR_INVALID_CURSOR, e);
+        }
+        throw new ApiRequestException(ErrorCode.ERR_INVALID_CURSOR);
+    }
+
+    private static String format(Object value) {
+        if (value == null) {
+            return null;
+        }
+        return value instanceof Enum ? ((Enum<?>) value).name() : value.toString();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object enumValue(Class<?> type, String value) {
+        return Enum.valueOf((Class<? extends Enum>) type, value);
+    }
+}
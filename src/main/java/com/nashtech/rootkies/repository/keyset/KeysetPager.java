@@ -0,0 +1,130 @@
+package com.nashtech.rootkies.repository.keyset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.EntityType;
+
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Repository;
+
+// Keyset pagination over a specification: instead of OFFSET it continues after the (sort key, primary key) of the
+// last row sent, and instead of a count it reads one row more than asked to know whether there is a next slice,
+// so every slice costs the same whatever its depth.
+@Repository
+public class KeysetPager {
+
+    private static final String LOAD_GRAPH_HINT = "javax.persistence.loadgraph";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public <T> KeysetSlice<T> findSlice(Class<T> domainClass, Specification<T> spec, Sort sort, String cursor,
+            int size) {
+        return findSlice(domainClass, spec, sort, cursor, size, null);
+    }
+
+    // only the first order of the sort is used, the primary key is the tie breaker. The named entity graph, if
+    // any, is applied as a load graph so the slice fetches its associations in the same select.
+    @SuppressWarnings("unchecked")
+    public <T> KeysetSlice<T> findSlice(Class<T> domainClass, Specification<T> spec, Sort sort, String cursor,
+            int size, String entityGraph) {
+        Sort.Order order = sort.iterator().next();
+        KeysetCursor after = KeysetCursor.decode(cursor, order);
+        String idAttribute = idAttribute(domainClass);
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = builder.createQuery(domainClass);
+        Root<T> root = query.from(domainClass);
+        Path<Comparable<Object>> sortPath = path(root, order.getProperty());
+        Path<Comparable<Object>> idPath = root.get(idAttribute);
+
+        List<Predicate> predicates = new ArrayList<>();
+        Predicate filter = spec == null ? null : spec.toPredicate(root, query, builder);
+        if (filter != null) {
+            predicates.add(filter);
+        }
+        if (after != null) {
+            predicates.add(after(builder, sortPath, idPath, order.isAscending(),
+                    (Comparable<Object>) KeysetCursor.parse(after.getValue(), sortPath.getJavaType()),
+                    (Comparable<Object>) KeysetCursor.parse(after.getId(), idPath.getJavaType())));
+        }
+        query.select(root).where(predicates.toArray(new Predicate[0]));
+        if (order.isAscending()) {
+            query.orderBy(builder.asc(sortPath), builder.asc(idPath));
+        } else {
+            query.orderBy(builder.desc(sortPath), builder.desc(idPath));
+        }
+
+        TypedQuery<T> typedQuery = entityManager.createQuery(query).setMaxResults(size + 1);
+        if (entityGraph != null) {
+            typedQuery.setHint(LOAD_GRAPH_HINT, entityManager.getEntityGraph(entityGraph));
+        }
+        List<T> rows = typedQuery.getResultList();
+        if (rows.size() <= size) {
+            return new KeysetSlice<>(rows, false, null);
+        }
+        List<T> content = new ArrayList<>(rows.subList(0, size));
+        BeanWrapperImpl last = new BeanWrapperImpl(content.get(size - 1));
+        String nextCursor = KeysetCursor
+                .of(order, value(last, order.getProperty()), last.getPropertyValue(idAttribute)).encode();
+        return new KeysetSlice<>(content, true, nextCursor);
+    }
+
+    // rows strictly after (value, id) in the ORDER BY above. Postgres puts nulls last ascending and first
+    // descending, i.e. a null sort key compares greater than any value.
+    private Predicate after(CriteriaBuilder builder, Path<Comparable<Object>> sortPath,
+            Path<Comparable<Object>> idPath, boolean ascending, Comparable<Object> value, Comparable<Object> id) {
+        if (ascending) {
+            if (value == null) {
+                return builder.and(builder.isNull(sortPath), builder.greaterThan(idPath, id));
+            }
+            return builder.or(builder.greaterThan(sortPath, value),
+                    builder.and(builder.equal(sortPath, value), builder.greaterThan(idPath, id)),
+                    builder.isNull(sortPath));
+        }
+        if (value == null) {
+            return builder.or(builder.isNotNull(sortPath),
+                    builder.and(builder.isNull(sortPath), builder.lessThan(idPath, id)));
+        }
+        return builder.or(builder.lessThan(sortPath, value),
+                builder.and(builder.equal(sortPath, value), builder.lessThan(idPath, id)));
+    }
+
+    // dotted properties are left joined like Spring Data does for sorting, so an unset association
+    // (e.g. the acceptor of a pending request) does not drop the row
+    private Path<Comparable<Object>> path(Root<?> root, String property) {
+        String[] segments = property.split("\\.");
+        From<?, ?> from = root;
+        for (int i = 0; i < segments.length - 1; i++) {
+            from = from.join(segments[i], JoinType.LEFT);
+        }
+        return from.get(segments[segments.length - 1]);
+    }
+
+    private Object value(BeanWrapperImpl row, String property) {
+        try {
+            return row.getPropertyValue(property);
+        } catch (Exception e) {
+            // a null association on the way
+            return null;
+        }
+    }
+
+    private String idAttribute(Class<?> domainClass) {
+        EntityType<?> entityType = entityManager.getMetamodel().entity(domainClass);
+        return entityType.getId(entityType.getIdType().getJavaType()).getName();
+    }
+}
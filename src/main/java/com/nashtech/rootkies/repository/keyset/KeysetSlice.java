@@ -0,0 +1,14 @@
+package com.nashtech.rootkies.repository.keyset;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class KeysetSlice<T> {
+    private final List<T> content;
+    private final boolean hasNext;
+    private final String nextCursor;
+}
@@ -52,14 +52,11 @@ public class AssetSpecification implements Specification<Asset> {
                     predicates.add(builder.equal(root.get(criteria.getKey()), criteria.getValue()));
                 }
             } else if (criteria.getOperation().equals(SearchOperation.MATCH)) {
-                predicates.add(builder.like(builder.lower(root.get(criteria.getKey())),
-                        "%" + criteria.getValue().toString().toLowerCase() + "%"));
+                predicates.add(KeywordMatch.contains(builder, root.get(criteria.getKey()), criteria.getValue()));
             } else if (criteria.getOperation().equals(SearchOperation.MATCH_END)) {
-                predicates.add(builder.like(builder.lower(root.get(criteria.getKey())),
-                        criteria.getValue().toString().toLowerCase() + "%"));
+                predicates.add(KeywordMatch.startsWith(builder, root.get(criteria.getKey()), criteria.getValue()));
             } else if (criteria.getOperation().equals(SearchOperation.MATCH_START)) {
-                predicates.add(builder.like(builder.lower(root.get(criteria.getKey())),
-                        "%" + criteria.getValue().toString().toLowerCase()));
+                predicates.add(KeywordMatch.endsWith(builder, root.get(criteria.getKey()), criteria.getValue()));
             } else if (criteria.getOperation().equals(SearchOperation.IN)) {
                 if (criteria.getKey().equals("category")) {
                     Join<Asset, Category> groupJoin = root.join("category");
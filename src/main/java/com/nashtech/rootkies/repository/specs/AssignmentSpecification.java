@@ -56,27 +56,21 @@ public class AssignmentSpecification implements Specification<Assignment> {
                 }
             } else if (criteria.getOperation().equals(SearchOperation.MATCH)) {
                 if (criteria.getKey().equals("assetCode")) {
-                    Join<Assignment, Asset> groupJoin = root.join("asset");
-                    predicates.add(builder.like(builder.lower(groupJoin.<String>get("assetCode")),
-                            "%" + criteria.getValue().toString().toLowerCase() + "%"));
+                    predicates.add(KeywordMatch.containsIn(query, builder, root.get("asset").get("assetCode"),
+                            Asset.class, "assetCode", "assetCode", criteria.getValue()));
                 } else if (criteria.getKey().equals("assetName")) {
-                    Join<Assignment, Asset> groupJoin = root.join("asset");
-                    predicates.add(builder.like(builder.lower(groupJoin.<String>get("assetName")),
-                            "%" + criteria.getValue().toString().toLowerCase() + "%"));
+                    predicates.add(KeywordMatch.containsIn(query, builder, root.get("asset").get("assetCode"),
+                            Asset.class, "assetCode", "assetName", criteria.getValue()));
                 } else if (criteria.getKey().equals("assignedTo")) {
-                    Join<Assignment, User> groupJoin = root.join("assignedTo");
-                    predicates.add(builder.like(builder.lower(groupJoin.<String>get("username")),
-                            "%" + criteria.getValue().toString().toLowerCase() + "%"));
+                    predicates.add(KeywordMatch.containsIn(query, builder, root.get("assignedTo").get("staffCode"),
+                            User.class, "staffCode", "username", criteria.getValue()));
                 } else {
-                    predicates.add(builder.like(builder.lower(root.get(criteria.getKey())),
-                            "%" + criteria.getValue().toString().toLowerCase() + "%"));
+                    predicates.add(KeywordMatch.contains(builder, root.get(criteria.getKey()), criteria.getValue()));
                 }
             } else if (criteria.getOperation().equals(SearchOperation.MATCH_END)) {
-                predicates.add(builder.like(builder.lower(root.get(criteria.getKey())),
-                        criteria.getValue().toString().toLowerCase() + "%"));
+                predicates.add(KeywordMatch.startsWith(builder, root.get(criteria.getKey()), criteria.getValue()));
             } else if (criteria.getOperation().equals(SearchOperation.MATCH_START)) {
-                predicates.add(builder.like(builder.lower(root.get(criteria.getKey())),
-                        "%" + criteria.getValue().toString().toLowerCase()));
+                predicates.add(KeywordMatch.endsWith(builder, root.get(criteria.getKey()), criteria.getValue()));
             } else if (criteria.getOperation().equals(SearchOperation.IN)) {
                 predicates.add(builder.in(root.get(criteria.getKey())).value(criteria.getValue()));
             } else if (criteria.getOperation().equals(SearchOperation.NOT_IN)) {
@@ -0,0 +1,56 @@
+package com.nashtech.rootkies.repository.specs;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+
+// Compiles the MATCH operations to lower(column) LIKE pattern so the pg_trgm GIN indexes on lower(column)
+// (see SearchIndexInitializer) can serve them
+public final class KeywordMatch {
+
+    private static final char ESCAPE = '\\';
+
+    private KeywordMatch() {
+    }
+
+    public static Predicate contains(CriteriaBuilder builder, Expression<String> expression, Object keyword) {
+        return builder.like(builder.lower(expression), "%" + escape(keyword) + "%", ESCAPE);
+    }
+
+    public static Predicate startsWith(CriteriaBuilder builder, Expression<String> expression, Object keyword) {
+        return builder.like(builder.lower(expression), escape(keyword) + "%", ESCAPE);
+    }
+
+    public static Predicate endsWith(CriteriaBuilder builder, Expression<String> expression, Object keyword) {
+        return builder.like(builder.lower(expression), "%" + escape(keyword), ESCAPE);
+    }
+
+    // key IN (SELECT e.keyAttribute FROM entity e WHERE lower(e.searchAttribute) LIKE %keyword%)
+    // matching the joined table in a subquery lets it use its own trigram index instead of being scanned
+    // through the join, and keeps several OR-ed keys from joining the same table more than once
+    public static <T> Predicate containsIn(CriteriaQuery<?> query, CriteriaBuilder builder, Path<String> key,
+            Class<T> entity, String keyAttribute, String searchAttribute, Object keyword) {
+        Subquery<String> subquery = query.subquery(String.class);
+        Root<T> subRoot = subquery.from(entity);
+        subquery.select(subRoot.get(keyAttribute))
+                .where(contains(builder, subRoot.get(searchAttribute), keyword));
+        return key.in(subquery);
+    }
+
+    // user input is matched literally, % and _ typed in the search box are not wildcards
+    private static String escape(Object keyword) {
+        String value = keyword.toString().toLowerCase();
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == ESCAPE || c == '%' || c == '_') {
+                escaped.append(ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
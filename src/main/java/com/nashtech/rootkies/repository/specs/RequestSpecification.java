@@ -10,7 +10,6 @@ import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
 import com.nashtech.rootkies.model.Asset;
-import com.nashtech.rootkies.model.Assignment;
 import com.nashtech.rootkies.model.Location;
 import com.nashtech.rootkies.model.Request;
 import com.nashtech.rootkies.model.User;
@@ -56,29 +55,24 @@ public class RequestSpecification implements Specification<Request> {
                     predicates.add(builder.equal(root.get(criteria.getKey()), criteria.getValue()));
                 }
             } else if (criteria.getOperation().equals(SearchOperation.MATCH)) {
-                Join<Request, Assignment> groupJoin = root.join("assignment");
                 if (criteria.getKey().equals("assetCode")) {
-                    Join<Assignment, Asset> groupJoin1 = groupJoin.join("asset");
-                    predicates.add(builder.like(builder.lower(groupJoin1.<String>get("assetCode")),
-                            "%" + criteria.getValue().toString().toLowerCase() + "%"));
+                    predicates.add(KeywordMatch.containsIn(query, builder,
+                            root.get("assignment").get("asset").get("assetCode"), Asset.class, "assetCode",
+                            "assetCode", criteria.getValue()));
                 } else if (criteria.getKey().equals("assetName")) {
-                    Join<Assignment, Asset> groupJoin1 = groupJoin.join("asset");
-                    predicates.add(builder.like(builder.lower(groupJoin1.<String>get("assetName")),
-                            "%" + criteria.getValue().toString().toLowerCase() + "%"));
+                    predicates.add(KeywordMatch.containsIn(query, builder,
+                            root.get("assignment").get("asset").get("assetCode"), Asset.class, "assetCode",
+                            "assetName", criteria.getValue()));
                 } else if (criteria.getKey().equals("requestedBy")) {
-                    Join<Request, User> groupJoin1 = root.join("requestedBy");
-                    predicates.add(builder.like(builder.lower(groupJoin1.<String>get("username")),
-                            "%" + criteria.getValue().toString().toLowerCase() + "%"));
+                    predicates.add(KeywordMatch.containsIn(query, builder, root.get("requestedBy").get("staffCode"),
+                            User.class, "staffCode", "username", criteria.getValue()));
                 } else {
-                    predicates.add(builder.like(builder.lower(root.get(criteria.getKey())),
-                            "%" + criteria.getValue().toString().toLowerCase() + "%"));
+                    predicates.add(KeywordMatch.contains(builder, root.get(criteria.getKey()), criteria.getValue()));
                 }
             } else if (criteria.getOperation().equals(SearchOperation.MATCH_END)) {
-                predicates.add(builder.like(builder.lower(root.get(criteria.getKey())),
-                        criteria.getValue().toString().toLowerCase() + "%"));
+                predicates.add(KeywordMatch.startsWith(builder, root.get(criteria.getKey()), criteria.getValue()));
             } else if (criteria.getOperation().equals(SearchOperation.MATCH_START)) {
-                predicates.add(builder.like(builder.lower(root.get(criteria.getKey())),
-                        "%" + criteria.getValue().toString().toLowerCase()));
+                predicates.add(KeywordMatch.endsWith(builder, root.get(criteria.getKey()), criteria.getValue()));
             } else if (criteria.getOperation().equals(SearchOperation.IN)) {
                 predicates.add(builder.in(root.get(criteria.getKey())).value(criteria.getValue()));
             } else if (criteria.getOperation().equals(SearchOperation.NOT_IN)) {
@@ -0,0 +1,59 @@
+package com.nashtech.rootkies.security;
+
+import javax.servlet.http.HttpServletRequest;
+
+import com.nashtech.rootkies.converter.LocationConverter;
+import com.nashtech.rootkies.security.jwt.JwtPrincipal;
+import com.nashtech.rootkies.security.jwt.JwtUtils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+@Component
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final JwtUtils jwtUtils;
+
+    private final LocationConverter locationConverter;
+
+    @Autowired
+    public CurrentUserArgumentResolver(JwtUtils jwtUtils, LocationConverter locationConverter) {
+        this.jwtUtils = jwtUtils;
+        this.locationConverter = locationConverter;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentUser.class)
+                && parameter.getParameterType().equals(JwtPrincipal.class);
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+            NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+        Object verified = webRequest.getAttribute(JwtPrincipal.REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        JwtPrincipal principal = verified instanceof JwtPrincipal ? (JwtPrincipal) verified : null;
+        String jwt = null;
+        if (principal == null) {
+            // AuthTokenFilter did not run for this request (filters are off in the MockMvc tests)
+            HttpServletRequest req = webRequest.getNativeRequest(HttpServletRequest.class);
+            jwt = req.getHeader("Authorization").substring(7, req.getHeader("Authorization").length());
+            principal = jwtUtils.getPrincipalFromJwtToken(jwt);
+        }
+        if (principal != null && principal.getLocationId() != null) {
+            return principal;
+        }
+
+        // tokens signed before the claims were added carry only the username, they fall back to the
+        // lookups the controllers used to do until they expire
+        String username = principal != null ? principal.getUsername() : jwtUtils.getUserNameFromJwtToken(jwt);
+        return new JwtPrincipal(username, locationConverter.getStaffCodeFromUsername(username),
+                locationConverter.getLocationIdFromUsername(username), null);
+    }
+}
@@ -62,6 +62,8 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 				.sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS).and()
 				.authorizeRequests().antMatchers("/public/**").permitAll()
 				.antMatchers("/signin", "/fakesignup", "/home").permitAll()
+				// the management port only listens on localhost
+				.antMatchers("/actuator/health", "/actuator/prometheus").permitAll()
 				.anyRequest().authenticated();
 
 		// http.headers().frameOptions().disable();
@@ -7,6 +7,7 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.nashtech.rootkies.security.service.PrincipalCache;
 import com.nashtech.rootkies.security.service.UserDetailsServiceImpl;
 import com.nashtech.rootkies.service.UserService;
 
@@ -28,6 +29,9 @@ public class AuthTokenFilter extends OncePerRequestFilter {
 	@Autowired
 	private UserDetailsService userDetailsService;
 
+	@Autowired
+	private PrincipalCache principalCache;
+
 	private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
 	@Override
@@ -35,10 +39,13 @@ public class AuthTokenFilter extends OncePerRequestFilter {
 			throws ServletException, IOException {
 		try {
 			String jwt = parseJwt(request);
-			if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-				String username = jwtUtils.getUserNameFromJwtToken(jwt);
+			JwtPrincipal principal = jwt == null ? null : jwtUtils.verifyJwtToken(jwt);
+			if (principal != null) {
+				// @CurrentUser reads it back instead of parsing the token again
+				request.setAttribute(JwtPrincipal.REQUEST_ATTRIBUTE, principal);
 
-				UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+				UserDetails userDetails = principalCache.get(principal.getUsername(),
+						userDetailsService::loadUserByUsername);
 				UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
 						userDetails, null, userDetails.getAuthorities());
 				authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
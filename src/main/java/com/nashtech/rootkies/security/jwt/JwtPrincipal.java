@@ -0,0 +1,21 @@
+package com.nashtech.rootkies.security.jwt;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// The caller as signed into the access token, handed to controllers through @CurrentUser
+@Getter
+@AllArgsConstructor
+public class JwtPrincipal {
+
+    // the request attribute AuthTokenFilter leaves the verified principal under
+    public static final String REQUEST_ATTRIBUTE = JwtPrincipal.class.getName();
+
+    private String username;
+
+    private String staffCode;
+
+    private Long locationId;
+
+    private String role;
+}
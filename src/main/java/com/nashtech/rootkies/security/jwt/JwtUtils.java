@@ -1,7 +1,18 @@
 package com.nashtech.rootkies.security.jwt;
 
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
+import javax.crypto.spec.SecretKeySpec;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.nashtech.rootkies.model.User;
 import com.nashtech.rootkies.security.service.UserDetailsImpl;
 
@@ -12,16 +23,41 @@ import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.impl.TextCodec;
 
 @Component
 public class JwtUtils {
 	private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
-	@Value("${bezkoder.app.jwtSecret}")
-	private String jwtSecret;
+	public static final String CLAIM_STAFF_CODE = "staffCode";
+
+	public static final String CLAIM_LOCATION_ID = "locationId";
+
+	public static final String CLAIM_ROLE = "role";
+
+	private final int jwtExpirationMs;
+
+	// built once: the key is decoded the same way jjwt decodes the secret string, and the parser is only read after
+	// its key is set, so every request verifies with the same instances
+	private final Key signingKey;
 
-	@Value("${bezkoder.app.jwtExpirationMs}")
-	private int jwtExpirationMs;
+	private final JwtParser parser;
+
+	// SHA-256 digests of recently verified tokens, a hit skips the HMAC and the claims parsing. An entry never
+	// outlives the token's own expiry. Disabled when bezkoder.app.jwtVerifiedCacheSize is 0.
+	private final Cache<String, VerifiedToken> verifiedTokens;
+
+	public JwtUtils(@Value("${bezkoder.app.jwtSecret}") String jwtSecret,
+			@Value("${bezkoder.app.jwtExpirationMs}") int jwtExpirationMs,
+			@Value("${bezkoder.app.jwtVerifiedCacheSize:0}") int verifiedCacheSize) {
+		this.jwtExpirationMs = jwtExpirationMs;
+		this.signingKey = new SecretKeySpec(TextCodec.BASE64.decode(jwtSecret), SignatureAlgorithm.HS512.getJcaName());
+		this.parser = Jwts.parser().setSigningKey(signingKey);
+		this.verifiedTokens = verifiedCacheSize <= 0 ? null : Caffeine.newBuilder()
+				.maximumSize(verifiedCacheSize)
+				.expireAfter(new UntilTokenExpiry())
+				.build();
+	}
 
 	public String generateJwtToken(Authentication authentication) {
 
@@ -29,20 +65,53 @@ public class JwtUtils {
 
 		return Jwts.builder()
 				.setSubject((userPrincipal.getUsername()))
+				.claim(CLAIM_STAFF_CODE, userPrincipal.getStaffCode())
+				.claim(CLAIM_LOCATION_ID, userPrincipal.getIdLocation())
+				.claim(CLAIM_ROLE, userPrincipal.getRole())
 				.setIssuedAt(new Date())
 				.setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-				.signWith(SignatureAlgorithm.HS512, jwtSecret)
+				.signWith(SignatureAlgorithm.HS512, signingKey)
 				.compact();
 	}
 
 	public String getUserNameFromJwtToken(String token) {
-		return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
+		return parser.parseClaimsJws(token).getBody().getSubject();
+	}
+
+	public JwtPrincipal getPrincipalFromJwtToken(String token) {
+		return toPrincipal(parser.parseClaimsJws(token).getBody());
 	}
 
 	public boolean validateJwtToken(String authToken) {
+		return verifyJwtToken(authToken) != null;
+	}
+
+	// the one signature check of a request: AuthTokenFilter keeps the result for the controllers, null when the
+	// token is not valid
+	public JwtPrincipal verifyJwtToken(String authToken) {
+		if (verifiedTokens == null) {
+			VerifiedToken token = verify(authToken);
+			return token == null ? null : token.principal;
+		}
+		String digest = digest(authToken);
+		VerifiedToken token = verifiedTokens.getIfPresent(digest);
+		if (token == null) {
+			token = verify(authToken);
+			if (token == null) {
+				return null;
+			}
+			if (token.expiresAtMs != null) {
+				verifiedTokens.put(digest, token);
+			}
+		}
+		return token.principal;
+	}
+
+	private VerifiedToken verify(String authToken) {
 		try {
-			Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-			return true;
+			Claims claims = parser.parseClaimsJws(authToken).getBody();
+			Date expiration = claims.getExpiration();
+			return new VerifiedToken(toPrincipal(claims), expiration == null ? null : expiration.getTime());
 		} catch (SignatureException e) {
 			logger.error("Invalid JWT signature: {}", e.getMessage());
 		} catch (MalformedJwtException e) {
@@ -55,6 +124,49 @@ public class JwtUtils {
 			logger.error("JWT claims string is empty: {}", e.getMessage());
 		}
 
-		return false;
+		return null;
+	}
+
+	private JwtPrincipal toPrincipal(Claims claims) {
+		Number locationId = claims.get(CLAIM_LOCATION_ID, Number.class);
+		return new JwtPrincipal(claims.getSubject(), claims.get(CLAIM_STAFF_CODE, String.class),
+				locationId == null ? null : locationId.longValue(), claims.get(CLAIM_ROLE, String.class));
+	}
+
+	private static String digest(String token) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+			return Base64.getEncoder().encodeToString(hash);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static class VerifiedToken {
+		private final JwtPrincipal principal;
+
+		private final Long expiresAtMs;
+
+		private VerifiedToken(JwtPrincipal principal, Long expiresAtMs) {
+			this.principal = principal;
+			this.expiresAtMs = expiresAtMs;
+		}
+	}
+
+	private static class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+		@Override
+		public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+			return TimeUnit.MILLISECONDS.toNanos(Math.max(0, token.expiresAtMs - System.currentTimeMillis()));
+		}
+
+		@Override
+		public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+			return expireAfterCreate(key, token, currentTime);
+		}
+
+		@Override
+		public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
 	}
 }
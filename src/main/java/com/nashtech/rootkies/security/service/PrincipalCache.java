@@ -0,0 +1,57 @@
+package com.nashtech.rootkies.security.service;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// The principals AuthTokenFilter authenticates requests with, keyed by username, so a request does not pay for
+// the users query and the lazy location/role loads of UserDetailsImpl.build. Entries expire after
+// bezkoder.app.principalCacheTtlMs; UserServiceImpl evicts them as soon as a user is disabled, changes role or
+// changes password. Hits and misses are published as the cache.gets metric with cache=principals.
+@Component
+public class PrincipalCache implements MeterBinder {
+
+    private static final String NAME = "principals";
+
+    private final Cache<String, UserDetails> cache;
+
+    public PrincipalCache(@Value("${bezkoder.app.principalCacheTtlMs:300000}") long ttlMs,
+            @Value("${bezkoder.app.principalCacheMaxSize:10000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        return cache.get(username, loader);
+    }
+
+    public void invalidate(String username) {
+        if (username != null) {
+            cache.invalidate(username);
+        }
+    }
+
+    // disable works on staff codes, which are not the key; the scan is bounded by the maximum size
+    public void invalidateByStaffCode(String staffCode) {
+        cache.asMap().values().removeIf(principal -> principal instanceof UserDetailsImpl
+                && staffCode.equals(((UserDetailsImpl) principal).getStaffCode()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, NAME);
+    }
+}
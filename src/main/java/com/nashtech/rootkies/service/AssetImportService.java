@@ -0,0 +1,17 @@
+package com.nashtech.rootkies.service;
+
+import java.io.InputStream;
+
+import com.nashtech.rootkies.dto.common.ResponseDTO;
+import com.nashtech.rootkies.exception.CreateDataFailException;
+import com.nashtech.rootkies.exception.InvalidRequestDataException;
+
+public interface AssetImportService {
+
+        String CSV = "text/csv";
+
+        String NDJSON = "application/x-ndjson";
+
+        public ResponseDTO importAssets(InputStream input, String contentType, Long locationId)
+                        throws InvalidRequestDataException, CreateDataFailException;
+}
@@ -30,7 +30,19 @@ public interface AssetService {
 
         public ResponseDTO retrieveAssetByAssetCode(Long locationId, String assetCode) throws DataNotFoundException;
 
+        // assignment history of the asset, a page at a time
+        public ResponseDTO retrieveAssignmentHistory(Long locationId, String assetCode, Integer pageNum,
+                        Integer numOfItems) throws DataNotFoundException;
+
         public ResponseDTO retrieveAssetHavingFilterSearchSort(Integer pageNum, Integer numOfItems,
+                        SearchFilterSortAssetDTO searchFilterSortAssetDTO, Long locationId, Boolean withTotal)
+                        throws DataNotFoundException;
+
+        // keyset (cursor) variants: a slice after the given cursor, no total
+        public ResponseDTO retrieveAssetByCursor(String cursor, Integer numOfItems, Long locationId)
+                        throws DataNotFoundException;
+
+        public ResponseDTO retrieveAssetHavingFilterSearchSortByCursor(String cursor, Integer numOfItems,
                         SearchFilterSortAssetDTO searchFilterSortAssetDTO, Long locationId)
                         throws DataNotFoundException;
 
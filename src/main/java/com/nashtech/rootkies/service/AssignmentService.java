@@ -33,6 +33,14 @@ public interface AssignmentService {
                         throws DataNotFoundException;
 
         public ResponseDTO retrieveAssignmentHavingFilterSearchSort(Integer pageNum, Integer numOfItems,
+                        SearchFilterSortAssignmentDTO searchFilterSortAssignmentDTO, Long locationId,
+                        Boolean withTotal) throws DataNotFoundException;
+
+        // keyset (cursor) variants: a slice after the given cursor, no total
+        public ResponseDTO retrieveAssignmentsByCursor(String cursor, Integer numOfItems, Long locationId)
+                        throws DataNotFoundException;
+
+        public ResponseDTO retrieveAssignmentHavingFilterSearchSortByCursor(String cursor, Integer numOfItems,
                         SearchFilterSortAssignmentDTO searchFilterSortAssignmentDTO, Long locationId)
                         throws DataNotFoundException;
 
@@ -45,7 +53,7 @@ public interface AssignmentService {
         public ResponseDTO deleteAssetByAssignmentId(Long locationId, Long assignmentId)
                         throws DataNotFoundException, DeleteDataFailException;
 
-        public ResponseDTO editAssignment(Assignment assignment, String AssetCode) throws UpdateDataFailException, DataNotFoundException;
+        public ResponseDTO editAssignment(Assignment assignment, String AssetCode, String previousAssignedTo) throws UpdateDataFailException, DataNotFoundException;
 
         public ResponseDTO acceptAssignment(Long locationId, Long assignmentId, String username)
                         throws DataNotFoundException, InvalidRequestDataException, UpdateDataFailException;
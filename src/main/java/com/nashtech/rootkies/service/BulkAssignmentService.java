@@ -0,0 +1,26 @@
+package com.nashtech.rootkies.service;
+
+import java.util.List;
+
+import com.nashtech.rootkies.dto.assignment.request.BulkCreateAssignmentDTO;
+import com.nashtech.rootkies.dto.common.ResponseDTO;
+import com.nashtech.rootkies.exception.CreateDataFailException;
+import com.nashtech.rootkies.exception.UpdateDataFailException;
+
+public interface BulkAssignmentService {
+
+        int MAX_ITEMS = 500;
+
+        public ResponseDTO createAssignments(BulkCreateAssignmentDTO dto, Long locationId)
+                        throws CreateDataFailException;
+
+        // staff side: the assignments must be assigned to staffCode
+        public ResponseDTO acceptAssignments(List<Long> assignmentIds, String staffCode)
+                        throws UpdateDataFailException;
+
+        public ResponseDTO declineAssignments(List<Long> assignmentIds, String staffCode)
+                        throws UpdateDataFailException;
+
+        public ResponseDTO createReturnRequests(List<Long> assignmentIds, String staffCode)
+                        throws CreateDataFailException;
+}
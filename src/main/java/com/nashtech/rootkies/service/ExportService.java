@@ -0,0 +1,14 @@
+package com.nashtech.rootkies.service;
+
+import com.nashtech.rootkies.export.ExportFormat;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+public interface ExportService {
+
+        public StreamingResponseBody exportAssets(Long locationId, ExportFormat format);
+
+        public StreamingResponseBody exportAssignments(Long locationId, ExportFormat format);
+
+        public StreamingResponseBody exportRequests(Long locationId, ExportFormat format);
+}
@@ -0,0 +1,20 @@
+package com.nashtech.rootkies.service;
+
+import com.nashtech.rootkies.enums.ERole;
+import com.nashtech.rootkies.model.Category;
+import com.nashtech.rootkies.model.Location;
+import com.nashtech.rootkies.model.Role;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ReferenceDataService {
+
+        public List<Category> getCategories();
+
+        public Optional<Category> findCategory(String categoryCode);
+
+        public Optional<Location> findLocation(Long locationId);
+
+        public Optional<Role> findRole(ERole roleName);
+}
@@ -25,6 +25,14 @@ public interface RequestService {
         public ResponseDTO retrieveRequestById(Long locationId, Long requestId) throws DataNotFoundException;
 
         public ResponseDTO retrieveRequestHavingFilterSearchSort(Integer pageNum, Integer numOfItems,
+                        SearchFilterSortRequestDTO searchFilterSortRequestDTO, Long locationId, Boolean withTotal)
+                        throws DataNotFoundException;
+
+        // keyset (cursor) variants: a slice after the given cursor, no total
+        public ResponseDTO retrieveRequestsByCursor(String cursor, Integer numOfItems, Long locationId)
+                        throws DataNotFoundException;
+
+        public ResponseDTO retrieveRequestHavingFilterSearchSortByCursor(String cursor, Integer numOfItems,
                         SearchFilterSortRequestDTO searchFilterSortRequestDTO, Long locationId)
                         throws DataNotFoundException;
 
@@ -0,0 +1,356 @@
+package com.nashtech.rootkies.service.impl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nashtech.rootkies.constants.ErrorCode;
+import com.nashtech.rootkies.constants.State;
+import com.nashtech.rootkies.constants.SuccessCode;
+import com.nashtech.rootkies.dto.asset.response.ImportAssetErrorDTO;
+import com.nashtech.rootkies.dto.asset.response.ImportAssetReportDTO;
+import com.nashtech.rootkies.dto.common.ResponseDTO;
+import com.nashtech.rootkies.exception.CreateDataFailException;
+import com.nashtech.rootkies.exception.InvalidRequestDataException;
+import com.nashtech.rootkies.generator.AssetCodeCounters;
+import com.nashtech.rootkies.model.Category;
+import com.nashtech.rootkies.repository.CategoryRepository;
+import com.nashtech.rootkies.repository.LocationRepository;
+import com.nashtech.rootkies.service.AssetImportService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Bulk asset import. The input is read line by line and every row is validated on its own; valid rows are
+// collected into batches of BATCH_SIZE, which get their asset codes reserved per category from AssetCodeCounters
+// and are written with one JDBC batch insert in a transaction per batch. Only the current batch and the error
+// report stay in memory, whatever the size of the input.
+@Service
+public class AssetImportServiceImpl implements AssetImportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AssetImportServiceImpl.class);
+
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String ASSET_NAME = "assetName";
+    private static final String CATEGORY_CODE = "categoryCode";
+    private static final String SPECIFICATION = "specification";
+    private static final String INSTALL_DATE = "installDate";
+    private static final String STATE = "state";
+
+    // CSV needs a header row naming these columns, in any order
+    private static final List<String> COLUMNS = List.of(ASSET_NAME, CATEGORY_CODE, SPECIFICATION, INSTALL_DATE,
+            STATE);
+
+    private static final String INSERT_SQL = "INSERT INTO assets (assetcode, assetname, installdate, isdeleted, "
+            + "specification, state, categorycode, locationid) VALUES (?, ?, ?, false, ?, ?, ?, ?)";
+
+    private final CategoryRepository categoryRepository;
+
+    private final LocationRepository locationRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public AssetImportServiceImpl(CategoryRepository categoryRepository, LocationRepository locationRepository,
+            JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.categoryRepository = categoryRepository;
+        this.locationRepository = locationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public ResponseDTO importAssets(InputStream input, String contentType, Long locationId)
+            throws InvalidRequestDataException, CreateDataFailException {
+        boolean csv = isType(contentType, CSV);
+        if (!csv && !isType(contentType, NDJSON)) {
+            throw new InvalidRequestDataException(ErrorCode.ERR_IMPORT_FORMAT_NOT_SUPPORTED);
+        }
+        if (!locationRepository.existsById(locationId)) {
+            throw new InvalidRequestDataException(ErrorCode.ERR_LOCATION_NOT_FAIL);
+        }
+        Set<String> categoryCodes = categoryRepository.findAll().stream().map(Category::getCategoryCode)
+                .collect(Collectors.toSet());
+
+        ImportAssetReportDTO report = ImportAssetReportDTO.builder().build();
+        List<ImportRow> batch = new ArrayList<>(BATCH_SIZE);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Map<String, Integer> header = null;
+            long line = 0;
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                if (csv && header == null) {
+                    header = parseHeader(text);
+                    continue;
+                }
+                report.setTotal(report.getTotal() + 1);
+                Map<String, String> fields = csv ? parseCsvRow(text, header) : parseJsonRow(text);
+                if (fields == null) {
+                    fail(report, line, ErrorCode.ERR_IMPORT_ROW_MALFORMED);
+                    continue;
+                }
+                ImportRow row = new ImportRow(line);
+                String error = validate(row, fields, categoryCodes);
+                if (error != null) {
+                    fail(report, line, error);
+                    continue;
+                }
+                batch.add(row);
+                if (batch.size() == BATCH_SIZE) {
+                    flush(batch, locationId, report);
+                    batch.clear();
+                }
+            }
+            flush(batch, locationId, report);
+        } catch (IOException e) {
+            LOGGER.error("Asset import aborted after {} rows: {}", report.getTotal(), e.getMessage());
+            throw new CreateDataFailException(ErrorCode.ERR_IMPORT_ASSET_FAIL);
+        }
+
+        ResponseDTO responseDto = new ResponseDTO();
+        responseDto.setData(report);
+        responseDto.setSuccessCode(SuccessCode.ASSET_IMPORTED_SUCCESS);
+        return responseDto;
+    }
+
+    private void flush(List<ImportRow> batch, Long locationId, ImportAssetReportDTO report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            allocateCodes(batch);
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, batch,
+                    batch.size(), (ps, row) -> {
+                        ps.setString(1, row.assetCode);
+                        ps.setString(2, row.assetName);
+                        ps.setTimestamp(3, Timestamp.valueOf(row.installDate));
+                        ps.setString(4, row.specification);
+                        ps.setShort(5, row.state);
+                        ps.setString(6, row.categoryCode);
+                        ps.setLong(7, locationId);
+                    }));
+            report.setImported(report.getImported() + batch.size());
+        } catch (Exception e) {
+            LOGGER.error("Asset import batch of {} rows failed: {}", batch.size(), e.getMessage());
+            for (ImportRow row : batch) {
+                fail(report, row.line, ErrorCode.ERR_IMPORT_ROW_NOT_SAVED);
+            }
+        }
+    }
+
+    // one counter reservation per category of the batch, each committed on its own before the insert
+    private void allocateCodes(List<ImportRow> batch) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (ImportRow row : batch) {
+            counts.merge(row.categoryCode, 1L, Long::sum);
+        }
+        Map<String, Long> next = new HashMap<>();
+        counts.forEach((categoryCode, count) -> {
+            Long hi = jdbcTemplate.execute(
+                    (ConnectionCallback<Long>) connection -> AssetCodeCounters.reserve(connection, categoryCode,
+                            count));
+            next.put(categoryCode, hi - count + 1);
+        });
+        for (ImportRow row : batch) {
+            long number = next.merge(row.categoryCode, 1L, Long::sum) - 1;
+            row.assetCode = AssetCodeCounters.format(row.categoryCode, number);
+        }
+    }
+
+    private String validate(ImportRow row, Map<String, String> fields, Set<String> categoryCodes) {
+        row.assetName = trim(fields.get(ASSET_NAME));
+        if (row.assetName == null) {
+            return ErrorCode.NAME_IS_EMPTY;
+        }
+        row.specification = trim(fields.get(SPECIFICATION));
+        if (row.specification == null) {
+            return ErrorCode.SPEC_IS_EMPTY;
+        }
+        row.categoryCode = trim(fields.get(CATEGORY_CODE));
+        if (row.categoryCode == null || !categoryCodes.contains(row.categoryCode)) {
+            return ErrorCode.ERR_CATEGORY_NOT_FOUND;
+        }
+        row.state = parseState(trim(fields.get(STATE)));
+        if (row.state == null) {
+            return ErrorCode.ERR_ASSET_STATE_NOT_CORRECT;
+        }
+        row.installDate = parseDate(trim(fields.get(INSTALL_DATE)));
+        if (row.installDate == null) {
+            return ErrorCode.DATE_INCORRECT_FORMAT;
+        }
+        return null;
+    }
+
+    // as in the create form, a new asset is either available or not available
+    private Short parseState(String state) {
+        if (state == null) {
+            return null;
+        }
+        if (state.equals(State.AVAILABLE.toString()) || state.equalsIgnoreCase("available")) {
+            return State.AVAILABLE;
+        }
+        if (state.equals(State.NOT_AVAILABLE.toString()) || state.equalsIgnoreCase("not available")) {
+            return State.NOT_AVAILABLE;
+        }
+        return null;
+    }
+
+    // yyyy-MM-dd or an ISO date time
+    private LocalDateTime parseDate(String date) {
+        if (date == null) {
+            return null;
+        }
+        try {
+            return date.length() == 10 ? LocalDate.parse(date).atStartOfDay() : LocalDateTime.parse(date);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private Map<String, Integer> parseHeader(String text) throws InvalidRequestDataException {
+        List<String> names = splitCsv(text);
+        Map<String, Integer> header = new HashMap<>();
+        for (String column : COLUMNS) {
+            int index = -1;
+            for (int i = 0; names != null && i < names.size(); i++) {
+                if (names.get(i).trim().equalsIgnoreCase(column)) {
+                    index = i;
+                }
+            }
+            if (index < 0) {
+                throw new InvalidRequestDataException(ErrorCode.ERR_IMPORT_HEADER_NOT_CORRECT);
+            }
+            header.put(column, index);
+        }
+        return header;
+    }
+
+    private Map<String, String> parseCsvRow(String text, Map<String, Integer> header) {
+        List<String> values = splitCsv(text);
+        if (values == null) {
+            return null;
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (Map.Entry<String, Integer> column : header.entrySet()) {
+            if (column.getValue() >= values.size()) {
+                return null;
+            }
+            fields.put(column.getKey(), values.get(column.getValue()));
+        }
+        return fields;
+    }
+
+    private Map<String, String> parseJsonRow(String text) {
+        JsonNode node;
+        try {
+            node = MAPPER.readTree(text);
+        } catch (IOException e) {
+            return null;
+        }
+        if (node == null || !node.isObject()) {
+            return null;
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (String column : COLUMNS) {
+            fields.put(column, node.hasNonNull(column) ? node.get(column).asText() : null);
+        }
+        return fields;
+    }
+
+    // one RFC 4180 record per line: quoted values may hold commas and doubled quotes, not line breaks.
+    // null when a quote is left open.
+    private List<String> splitCsv(String text) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private void fail(ImportAssetReportDTO report, long line, String errorCode) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new ImportAssetErrorDTO(line, errorCode));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    private static boolean isType(String contentType, String type) {
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith(type);
+    }
+
+    private static String trim(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static class ImportRow {
+        private final long line;
+        private String assetCode;
+        private String assetName;
+        private String categoryCode;
+        private String specification;
+        private LocalDateTime installDate;
+        private Short state;
+
+        private ImportRow(long line) {
+            this.line = line;
+        }
+    }
+}
@@ -6,11 +6,14 @@ import com.nashtech.rootkies.constants.State;
 import com.nashtech.rootkies.constants.SuccessCode;
 import com.nashtech.rootkies.converter.AssetConverter;
 import com.nashtech.rootkies.dto.PageDTO;
+import com.nashtech.rootkies.dto.SliceDTO;
 import com.nashtech.rootkies.dto.asset.request.EditAssetRequest;
 import com.nashtech.rootkies.dto.asset.request.SearchFilterSortAssetDTO;
 import com.nashtech.rootkies.dto.asset.response.*;
 import com.nashtech.rootkies.dto.common.ResponseDTO;
 import com.nashtech.rootkies.enums.SortType;
+import com.nashtech.rootkies.event.AssetStateChangedEvent;
+import com.nashtech.rootkies.event.DomainEventBus;
 import com.nashtech.rootkies.exception.AssetConvertException;
 import com.nashtech.rootkies.exception.CreateDataFailException;
 import com.nashtech.rootkies.exception.DataNotFoundException;
@@ -21,6 +24,8 @@ import com.nashtech.rootkies.model.Assignment;
 import com.nashtech.rootkies.repository.AssetRepository;
 import com.nashtech.rootkies.repository.AssignmentRepository;
 import com.nashtech.rootkies.repository.CategoryRepository;
+import com.nashtech.rootkies.repository.keyset.KeysetPager;
+import com.nashtech.rootkies.repository.keyset.KeysetSlice;
 import com.nashtech.rootkies.repository.specs.AssetSpecification;
 import com.nashtech.rootkies.repository.specs.SearchCriteria;
 import com.nashtech.rootkies.repository.specs.SearchOperation;
@@ -32,13 +37,14 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -54,13 +60,20 @@ public class AssetServiceImpl implements AssetService {
 
     private final CategoryRepository categoryRepository;
 
+    private final KeysetPager keysetPager;
+
+    private final DomainEventBus domainEventBus;
+
     @Autowired
     public AssetServiceImpl(AssetRepository assetRepository, AssetConverter assetConverter,
-            AssignmentRepository assignmentRepository, CategoryRepository categoryRepository) {
+            AssignmentRepository assignmentRepository, CategoryRepository categoryRepository,
+            KeysetPager keysetPager, DomainEventBus domainEventBus) {
         this.assetRepository = assetRepository;
         this.assetConverter = assetConverter;
         this.assignmentRepository = assignmentRepository;
         this.categoryRepository = categoryRepository;
+        this.keysetPager = keysetPager;
+        this.domainEventBus = domainEventBus;
     }
 
     @Override
@@ -102,18 +115,23 @@ public class AssetServiceImpl implements AssetService {
         }
     }
 
+    // three statements: the asset with its category and location, its open assignment with the live requests and
+    // the size of its history, which is paged by retrieveAssignmentHistory
     @Override
+    @Transactional(readOnly = true)
     public ResponseDTO retrieveAssetByAssetCode(Long locationId, String assetCode) throws DataNotFoundException {
         try {
             ResponseDTO responseDto = new ResponseDTO();
             Optional<Asset> asset;
 
-            asset = assetRepository.findByAssetCode(locationId, assetCode);
+            asset = assetRepository.findDetailByAssetCode(locationId, assetCode);
             if (!asset.isPresent()) {
                 throw new DataNotFoundException(ErrorCode.ERR_ASSETCODE_NOT_FOUND);
             }
 
-            DetailAssetDTO detailAssetDTO = assetConverter.convertToDetailDTO(asset.get());
+            DetailAssetDTO detailAssetDTO = assetConverter.convertToDetailDTO(asset.get(),
+                    assignmentRepository.findCurrentRowsByAssetCode(assetCode),
+                    assignmentRepository.countHistoryByAssetCode(assetCode));
 
             responseDto.setData(detailAssetDTO);
             responseDto.setSuccessCode(SuccessCode.ASSET_LOADED_SUCCESS);
@@ -123,73 +141,42 @@ public class AssetServiceImpl implements AssetService {
         }
     }
 
+    // newest first, assignmentId breaks ties of the same assigned date so pages do not overlap
     @Override
-    public ResponseDTO retrieveAssetHavingFilterSearchSort(Integer pageNum, Integer numOfItems,
-            SearchFilterSortAssetDTO searchFilterSortAssetDTO, Long locationId) throws DataNotFoundException {
+    @Transactional(readOnly = true)
+    public ResponseDTO retrieveAssignmentHistory(Long locationId, String assetCode, Integer pageNum,
+            Integer numOfItems) throws DataNotFoundException {
+        if (!Boolean.TRUE.equals(assetRepository.existsByAssetCode(locationId, assetCode))) {
+            throw new DataNotFoundException(ErrorCode.ERR_ASSETCODE_NOT_FOUND);
+        }
         try {
             ResponseDTO responseDto = new ResponseDTO();
-            Pageable page;
-            if (!(searchFilterSortAssetDTO.getSortField().isBlank()
-                    || searchFilterSortAssetDTO.getSortType().isBlank())) {
-                if (searchFilterSortAssetDTO.getSortField().equalsIgnoreCase("category")) {
-                    if (searchFilterSortAssetDTO.getSortType().equalsIgnoreCase(SortType.DSC.toString())) {
-                        page = PageRequest.of(pageNum, numOfItems, Sort.by("category.categoryName").descending());
-                    } else {
-                        page = PageRequest.of(pageNum, numOfItems, Sort.by("category.categoryName").ascending());
-                    }
-                } else {
-                    if (searchFilterSortAssetDTO.getSortType().equalsIgnoreCase(SortType.DSC.toString())) {
-                        page = PageRequest.of(pageNum, numOfItems,
-                                Sort.by(searchFilterSortAssetDTO.getSortField()).descending());
-                    } else {
-                        page = PageRequest.of(pageNum, numOfItems,
-                                Sort.by(searchFilterSortAssetDTO.getSortField()).ascending());
-                    }
-                }
-
-            } else {
-                page = PageRequest.of(pageNum, numOfItems, Sort.by("assetName").ascending());
-            }
+            Pageable page = PageRequest.of(pageNum, numOfItems,
+                    Sort.by("assignedDate").descending().and(Sort.by("assignmentId").descending()));
+            Page<Assignment> assignments = assignmentRepository.findHistoryByAssetCode(assetCode, page);
+
+            responseDto.setData(PageDTO.builder()
+                    .totalPages(assignments.getTotalPages())
+                    .totalElements(assignments.getTotalElements())
+                    .data(assetConverter.convertToHistoryDTO(assignments))
+                    .build());
+            responseDto.setSuccessCode(SuccessCode.ASSET_LOADED_SUCCESS);
+            return responseDto;
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new DataNotFoundException(ErrorCode.ERR_RETRIEVE_ASSIGNMENT_FAIL);
+        }
+    }
 
-            AssetSpecification assetState = null;
-            AssetSpecification assetCategoryCode = null;
-            AssetSpecification assetCode = null;
-            AssetSpecification assetName = null;
-            AssetSpecification assetLocation = new AssetSpecification();
-            assetLocation.add(new SearchCriteria("location", locationId, SearchOperation.EQUAL));
-            AssetSpecification assetIsDeleted = new AssetSpecification();
-            assetIsDeleted.add(new SearchCriteria("isDeleted", false, SearchOperation.EQUAL));
-
-            if (!searchFilterSortAssetDTO.getStates().isEmpty()) {
-                assetState = new AssetSpecification();
-                assetState.add(new SearchCriteria("state", searchFilterSortAssetDTO.getStates(), SearchOperation.IN));
-            }
-            if (!searchFilterSortAssetDTO.getCategoriesCode().isEmpty()) {
-                assetCategoryCode = new AssetSpecification();
-                assetCategoryCode.add(new SearchCriteria("category", searchFilterSortAssetDTO.getCategoriesCode(),
-                        SearchOperation.IN));
-            }
-            if (!searchFilterSortAssetDTO.getSearchKeyWord().isBlank()) {
-                assetCode = new AssetSpecification();
-                assetCode.add(new SearchCriteria("assetCode", searchFilterSortAssetDTO.getSearchKeyWord(),
-                        SearchOperation.MATCH));
-
-                assetName = new AssetSpecification();
-                assetName.add(new SearchCriteria("assetName", searchFilterSortAssetDTO.getSearchKeyWord(),
-                        SearchOperation.MATCH));
-            }
+    @Override
+    public ResponseDTO retrieveAssetHavingFilterSearchSort(Integer pageNum, Integer numOfItems,
+            SearchFilterSortAssetDTO searchFilterSortAssetDTO, Long locationId, Boolean withTotal)
+            throws DataNotFoundException {
+        try {
+            ResponseDTO responseDto = new ResponseDTO();
+            Pageable page = PageRequest.of(pageNum, numOfItems, getSort(searchFilterSortAssetDTO));
 
-            Specification spec = Specification.where(assetLocation).and(assetIsDeleted);
-
-            if (assetState != null) {
-                spec = spec.and(assetState);
-            }
-            if (assetCategoryCode != null) {
-                spec = spec.and(assetCategoryCode);
-            }
-            if (assetCode != null) {
-                spec = spec.and(Specification.where(assetCode).or(assetName));
-            }
+            Specification<Asset> spec = getFilterSearchSortSpecification(searchFilterSortAssetDTO, locationId);
 
             Page<Asset> assets;
             try {
@@ -200,7 +187,17 @@ public class AssetServiceImpl implements AssetService {
             }
             List<ViewAssetDTO> viewAssetsDTO = assetConverter.convertToListDTO(assets);
 
-            responseDto.setData(viewAssetsDTO);
+            // the page already carries the total from its count query, so it is returned
+            // with the data instead of asking the client for a second round trip
+            if (Boolean.TRUE.equals(withTotal)) {
+                responseDto.setData(PageDTO.builder()
+                        .totalPages(assets.getTotalPages())
+                        .totalElements(assets.getTotalElements())
+                        .data(viewAssetsDTO)
+                        .build());
+            } else {
+                responseDto.setData(viewAssetsDTO);
+            }
             responseDto.setSuccessCode(SuccessCode.ASSET_LOADED_SUCCESS);
             return responseDto;
         } catch (Exception e) {
@@ -215,58 +212,15 @@ public class AssetServiceImpl implements AssetService {
         try {
             ResponseDTO responseDto = new ResponseDTO();
 
-            AssetSpecification assetState = null;
-            AssetSpecification assetCategoryCode = null;
-            AssetSpecification assetCode = null;
-            AssetSpecification assetName = null;
-            AssetSpecification assetLocation = new AssetSpecification();
-            assetLocation.add(new SearchCriteria("location", locationId, SearchOperation.EQUAL));
-            AssetSpecification assetIsDeleted = new AssetSpecification();
-            assetIsDeleted.add(new SearchCriteria("isDeleted", false, SearchOperation.EQUAL));
-
-            if (!searchFilterSortAssetDTO.getStates().isEmpty()) {
-                assetState = new AssetSpecification();
-                assetState.add(new SearchCriteria("state", searchFilterSortAssetDTO.getStates(), SearchOperation.IN));
-            }
-            if (!searchFilterSortAssetDTO.getCategoriesCode().isEmpty()) {
-                assetCategoryCode = new AssetSpecification();
-                assetCategoryCode.add(new SearchCriteria("category", searchFilterSortAssetDTO.getCategoriesCode(),
-                        SearchOperation.IN));
-            }
-            if (!searchFilterSortAssetDTO.getSearchKeyWord().isBlank()) {
-                assetCode = new AssetSpecification();
-                assetCode.add(new SearchCriteria("assetCode", searchFilterSortAssetDTO.getSearchKeyWord(),
-                        SearchOperation.MATCH));
-
-                assetName = new AssetSpecification();
-                assetName.add(new SearchCriteria("assetName", searchFilterSortAssetDTO.getSearchKeyWord(),
-                        SearchOperation.MATCH));
-            }
-
-            Specification spec = Specification.where(assetLocation).and(assetIsDeleted);
-
-            if (assetState != null) {
-                spec = spec.and(assetState);
-            }
-            if (assetCategoryCode != null) {
-                spec = spec.and(assetCategoryCode);
-            }
-            if (assetCode != null) {
-                spec = spec.and(Specification.where(assetCode).or(assetName));
-            }
+            Specification<Asset> spec = getFilterSearchSortSpecification(searchFilterSortAssetDTO, locationId);
 
-            List<Asset> assets;
+            NumberOfAssetDTO numberOfAssetDto = new NumberOfAssetDTO();
             try {
-                assets = assetRepository.findAll(spec);
+                numberOfAssetDto.setNumberOfEntity(assetRepository.count(spec));
             } catch (Exception e) {
                 e.printStackTrace();
                 throw new DataNotFoundException(ErrorCode.ERR_RETRIEVE_ASSET_FAIL);
             }
-            List<ViewAssetDTO> viewAssetsDTO = assetConverter.convertToListDTO(assets);
-
-            NumberOfAssetDTO numberOfAssetDto = new NumberOfAssetDTO();
-
-            numberOfAssetDto.setNumberOfEntity((long) viewAssetsDTO.size());
 
             responseDto.setData(numberOfAssetDto);
             responseDto.setSuccessCode(SuccessCode.ASSET_COUNT_SUCCESS);
@@ -276,6 +230,110 @@ public class AssetServiceImpl implements AssetService {
             throw new DataNotFoundException(ErrorCode.ERR_COUNT_ASSET_FAIL);
         }
     }
+
+    @Override
+    public ResponseDTO retrieveAssetByCursor(String cursor, Integer numOfItems, Long locationId)
+            throws DataNotFoundException {
+        AssetSpecification assetLocation = new AssetSpecification();
+        assetLocation.add(new SearchCriteria("location", locationId, SearchOperation.EQUAL));
+        assetLocation.add(new SearchCriteria("isDeleted", false, SearchOperation.EQUAL));
+        assetLocation.add(new SearchCriteria("state",
+                Arrays.asList(State.AVAILABLE, State.NOT_AVAILABLE, State.ASSIGNED), SearchOperation.IN));
+
+        return retrieveAssetSlice(assetLocation, Sort.by("assetName").ascending(), cursor, numOfItems);
+    }
+
+    @Override
+    public ResponseDTO retrieveAssetHavingFilterSearchSortByCursor(String cursor, Integer numOfItems,
+            SearchFilterSortAssetDTO searchFilterSortAssetDTO, Long locationId) throws DataNotFoundException {
+        return retrieveAssetSlice(getFilterSearchSortSpecification(searchFilterSortAssetDTO, locationId),
+                getSort(searchFilterSortAssetDTO), cursor, numOfItems);
+    }
+
+    private ResponseDTO retrieveAssetSlice(Specification<Asset> spec, Sort sort, String cursor, Integer numOfItems)
+            throws DataNotFoundException {
+        try {
+            ResponseDTO responseDto = new ResponseDTO();
+            KeysetSlice<Asset> assets = keysetPager.findSlice(Asset.class, spec, sort, cursor, numOfItems);
+
+            responseDto.setData(SliceDTO.builder()
+                    .data(assetConverter.convertToListDTO(assets.getContent()))
+                    .hasNext(assets.isHasNext())
+                    .nextCursor(assets.getNextCursor())
+                    .build());
+            responseDto.setSuccessCode(SuccessCode.ASSET_LOADED_SUCCESS);
+            return responseDto;
+        } catch (ApiRequestException e) {
+            throw e;
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new DataNotFoundException(ErrorCode.ERR_RETRIEVE_ASSET_FAIL);
+        }
+    }
+
+    private Sort getSort(SearchFilterSortAssetDTO searchFilterSortAssetDTO) {
+        if (!(searchFilterSortAssetDTO.getSortField().isBlank() || searchFilterSortAssetDTO.getSortType().isBlank())) {
+            if (searchFilterSortAssetDTO.getSortField().equalsIgnoreCase("category")) {
+                if (searchFilterSortAssetDTO.getSortType().equalsIgnoreCase(SortType.DSC.toString())) {
+                    return Sort.by("category.categoryName").descending();
+                } else {
+                    return Sort.by("category.categoryName").ascending();
+                }
+            } else {
+                if (searchFilterSortAssetDTO.getSortType().equalsIgnoreCase(SortType.DSC.toString())) {
+                    return Sort.by(searchFilterSortAssetDTO.getSortField()).descending();
+                } else {
+                    return Sort.by(searchFilterSortAssetDTO.getSortField()).ascending();
+                }
+            }
+        }
+        return Sort.by("assetName").ascending();
+    }
+
+    private Specification<Asset> getFilterSearchSortSpecification(SearchFilterSortAssetDTO searchFilterSortAssetDTO,
+            Long locationId) {
+        AssetSpecification assetState = null;
+        AssetSpecification assetCategoryCode = null;
+        AssetSpecification assetCode = null;
+        AssetSpecification assetName = null;
+        AssetSpecification assetLocation = new AssetSpecification();
+        assetLocation.add(new SearchCriteria("location", locationId, SearchOperation.EQUAL));
+        AssetSpecification assetIsDeleted = new AssetSpecification();
+        assetIsDeleted.add(new SearchCriteria("isDeleted", false, SearchOperation.EQUAL));
+
+        if (!searchFilterSortAssetDTO.getStates().isEmpty()) {
+            assetState = new AssetSpecification();
+            assetState.add(new SearchCriteria("state", searchFilterSortAssetDTO.getStates(), SearchOperation.IN));
+        }
+        if (!searchFilterSortAssetDTO.getCategoriesCode().isEmpty()) {
+            assetCategoryCode = new AssetSpecification();
+            assetCategoryCode.add(new SearchCriteria("category", searchFilterSortAssetDTO.getCategoriesCode(),
+                    SearchOperation.IN));
+        }
+        if (!searchFilterSortAssetDTO.getSearchKeyWord().isBlank()) {
+            assetCode = new AssetSpecification();
+            assetCode.add(new SearchCriteria("assetCode", searchFilterSortAssetDTO.getSearchKeyWord(),
+                    SearchOperation.MATCH));
+
+            assetName = new AssetSpecification();
+            assetName.add(new SearchCriteria("assetName", searchFilterSortAssetDTO.getSearchKeyWord(),
+                    SearchOperation.MATCH));
+        }
+
+        Specification<Asset> spec = Specification.where(assetLocation).and(assetIsDeleted);
+
+        if (assetState != null) {
+            spec = spec.and(assetState);
+        }
+        if (assetCategoryCode != null) {
+            spec = spec.and(assetCategoryCode);
+        }
+        if (assetCode != null) {
+            spec = spec.and(Specification.where(assetCode).or(assetName));
+        }
+        return spec;
+    }
+
     // Edit Asset
 
     public Boolean checkFormatDate(String date) {
@@ -328,6 +386,7 @@ public class AssetServiceImpl implements AssetService {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         LocalDateTime dateTime = LocalDateTime.parse(installDate + " 00:00:00", formatter);
 
+        Short previousState = asset.getState();
         asset.setAssetName(name);
         asset.setSpecification(specification);
         asset.setInstallDate(dateTime);
@@ -342,13 +401,26 @@ public class AssetServiceImpl implements AssetService {
             asset.setState(State.RECYLED);
         }
 
+        Short nextState = asset.getState();
+        if (!nextState.equals(previousState)) {
+            asset.setStateChangedDate(LocalDateTime.now());
+        }
+
+        // compare-and-set on the state read above, an asset assigned since then is not overwritten
+        int updated;
         try {
-            asset = assetRepository.save(asset);
-            EditAssetDTO dto = assetConverter.toDTO(asset);
-            return dto;
+            updated = assetRepository.editIfState(assetCode, previousState, name, specification, dateTime,
+                    nextState);
         } catch (Exception e) {
             throw new ApiRequestException(ErrorCode.ERR_EDIT_ASSET);
         }
+        if (updated == 0) {
+            throw new ApiRequestException(ErrorCode.ASSET_ALREADY_ASSIGNED);
+        }
+        if (!nextState.equals(previousState)) {
+            domainEventBus.publish(new AssetStateChangedEvent(assetCode, previousState, nextState));
+        }
+        return assetConverter.toDTO(asset);
     }
 
     @Override
@@ -450,39 +522,7 @@ public class AssetServiceImpl implements AssetService {
     }
 
     public List<ReportDTO> getAssetReport(Long locationId) throws AssetConvertException {
-        var reportList = new ArrayList<ReportDTO>();
-        var categoryList = categoryRepository.findAll();
-
-        for (var category : categoryList) {
-            var report = assetConverter
-                    .convertToReportDTO(assetRepository.getAssetReportByCategoryCode(
-                            category.getCategoryCode(), locationId));
-
-            // if category have no asset ,will get no report from database
-            if (report != null) {
-                reportList.add(report);
-            }
-
-        }
-
-        // because if category have no asset database will return no report
-        // so detect category have no asset and add it to reportList with data 0 0 0 0 0
-        if (categoryList.size() != reportList.size()) {
-            for (var category : categoryList) {
-                boolean isHaveAsset = false;
-                for (var report : reportList) {
-                    if (category.getCategoryName().equals(report.getCategory())) {
-                        isHaveAsset = true;
-                        break;
-                    }
-                }
-                if (isHaveAsset == false) {
-                    reportList.add(new ReportDTO(category.getCategoryName(), 0, 0, 0, 0, 0, 0));
-                }
-            }
-        }
-
-        return reportList;
+        return assetConverter.convertToReportDTO(assetRepository.getAssetReport(locationId));
     }
 
 }
@@ -1,10 +1,10 @@
 package com.nashtech.rootkies.service.impl;
 
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Date;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import com.nashtech.rootkies.constants.ErrorCode;
@@ -13,6 +13,8 @@ import com.nashtech.rootkies.constants.SuccessCode;
 import com.nashtech.rootkies.converter.AssignmentConverter;
 import com.nashtech.rootkies.converter.ownassignment.OwnAssignmentResponseConverter;
 import com.nashtech.rootkies.converter.ownassignment.OwnAssignmentDetailConverter;
+import com.nashtech.rootkies.dto.PageDTO;
+import com.nashtech.rootkies.dto.SliceDTO;
 import com.nashtech.rootkies.dto.assignment.request.CreateAssignmentDTO;
 import com.nashtech.rootkies.dto.assignment.request.SearchFilterSortAssignmentDTO;
 import com.nashtech.rootkies.dto.assignment.response.NumberOfAssignmentDTO;
@@ -22,6 +24,9 @@ import com.nashtech.rootkies.dto.ownassignment.request.OwnAssignmentRequest;
 import com.nashtech.rootkies.dto.ownassignment.response.OwnAssignmentDetail;
 import com.nashtech.rootkies.dto.ownassignment.response.OwnAssignmentResponse;
 import com.nashtech.rootkies.enums.SortType;
+import com.nashtech.rootkies.event.AssetStateChangedEvent;
+import com.nashtech.rootkies.event.AssignmentStateChangedEvent;
+import com.nashtech.rootkies.event.DomainEventBus;
 import com.nashtech.rootkies.exception.DataNotFoundException;
 import com.nashtech.rootkies.exception.DeleteDataFailException;
 import com.nashtech.rootkies.exception.InvalidRequestDataException;
@@ -29,10 +34,11 @@ import com.nashtech.rootkies.exception.UpdateDataFailException;
 import com.nashtech.rootkies.exception.custom.ApiRequestException;
 import com.nashtech.rootkies.model.Asset;
 import com.nashtech.rootkies.model.Assignment;
-import com.nashtech.rootkies.model.User;
 import com.nashtech.rootkies.repository.AssetRepository;
 import com.nashtech.rootkies.repository.AssignmentRepository;
 import com.nashtech.rootkies.repository.UserRepository;
+import com.nashtech.rootkies.repository.keyset.KeysetPager;
+import com.nashtech.rootkies.repository.keyset.KeysetSlice;
 import com.nashtech.rootkies.repository.specs.AssignmentSpecification;
 import com.nashtech.rootkies.repository.specs.SearchCriteria;
 import com.nashtech.rootkies.repository.specs.SearchOperation;
@@ -45,10 +51,21 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class AssignmentServiceImpl implements AssignmentService {
 
+    // orderBy values of the own assignment list, anything else sorts by assigned date
+    private static final Map<String, String> OWN_ASSIGNMENT_ORDERS = Map.of(
+            "assetCode", "asset.assetCode",
+            "assetName", "asset.assetName",
+            "category", "asset.category.categoryName",
+            "state", "state");
+
+    // declined and returned assignments are left out of the own assignment list
+    private static final List<Short> OWN_ASSIGNMENT_STATES = List.of(State.ACCEPTED, State.WAITING_FOR_ACCEPTANCE);
+
     private final AssignmentRepository assignmentRepository;
 
     private final AssignmentConverter assignmentConverter;
@@ -61,16 +78,26 @@ public class AssignmentServiceImpl implements AssignmentService {
 
     private final OwnAssignmentDetailConverter detailConverter;
 
+    private final KeysetPager keysetPager;
+
+    private final OwnAssignmentCache ownAssignmentCache;
+
+    private final DomainEventBus domainEventBus;
+
     @Autowired
     public AssignmentServiceImpl(AssignmentRepository assignmentRepository, AssignmentConverter assignmentConverter,
             AssetRepository assetRepository, UserRepository userRepository,
-            OwnAssignmentResponseConverter responseConverter, OwnAssignmentDetailConverter detailConverter) {
+            OwnAssignmentResponseConverter responseConverter, OwnAssignmentDetailConverter detailConverter,
+            KeysetPager keysetPager, OwnAssignmentCache ownAssignmentCache, DomainEventBus domainEventBus) {
         this.assignmentRepository = assignmentRepository;
         this.assignmentConverter = assignmentConverter;
         this.assetRepository = assetRepository;
         this.userRepository = userRepository;
         this.responseConverter = responseConverter;
         this.detailConverter = detailConverter;
+        this.keysetPager = keysetPager;
+        this.ownAssignmentCache = ownAssignmentCache;
+        this.domainEventBus = domainEventBus;
     }
 
     @Override
@@ -204,61 +231,14 @@ public class AssignmentServiceImpl implements AssignmentService {
 
     @Override
     public ResponseDTO retrieveAssignmentHavingFilterSearchSort(Integer pageNum, Integer numOfItems,
-            SearchFilterSortAssignmentDTO searchFilterSortAssignmentDTO, Long locationId) throws DataNotFoundException {
+            SearchFilterSortAssignmentDTO searchFilterSortAssignmentDTO, Long locationId, Boolean withTotal)
+            throws DataNotFoundException {
         try {
             ResponseDTO responseDto = new ResponseDTO();
             Pageable page = this.getPaging(pageNum, numOfItems, searchFilterSortAssignmentDTO);
 
-            // search assignment (by asset code or asset name or assignee’s username) and
-            // filter assignment (by state, assigned date)
-
-            AssignmentSpecification assetCode = null;
-            AssignmentSpecification assetName = null;
-            AssignmentSpecification assignedTo = null;
-            AssignmentSpecification state = null;
-            AssignmentSpecification date = null;
-            AssignmentSpecification assignmentLocation = new AssignmentSpecification();
-            assignmentLocation.add(new SearchCriteria("assignedBy", locationId, SearchOperation.EQUAL));
-            AssignmentSpecification assignmentIsDeleted = new AssignmentSpecification();
-            assignmentIsDeleted.add(new SearchCriteria("isDeleted", false, SearchOperation.EQUAL));
-            AssignmentSpecification assignmentHadCompletedAssetHadReturned = new AssignmentSpecification();
-            assignmentHadCompletedAssetHadReturned.add(new SearchCriteria("state",
-                    State.ASSIGNMENT_HAD_COMPLETED_ASSET_HAD_RETURNED, SearchOperation.NOT_EQUAL));
-
-            if (!searchFilterSortAssignmentDTO.getStates().isEmpty()) {
-                state = new AssignmentSpecification();
-                state.add(new SearchCriteria("state", searchFilterSortAssignmentDTO.getStates(), SearchOperation.IN));
-            }
-            if (searchFilterSortAssignmentDTO.getLocalDateTime() != null) {
-                date = new AssignmentSpecification();
-                date.add(new SearchCriteria("assignedDate", searchFilterSortAssignmentDTO.getLocalDateTime(),
-                        SearchOperation.EQUAL));
-            }
-            if (!searchFilterSortAssignmentDTO.getSearchKeyWord().isBlank()) {
-                assetCode = new AssignmentSpecification();
-                assetCode.add(new SearchCriteria("assetCode", searchFilterSortAssignmentDTO.getSearchKeyWord(),
-                        SearchOperation.MATCH));
-
-                assetName = new AssignmentSpecification();
-                assetName.add(new SearchCriteria("assetName", searchFilterSortAssignmentDTO.getSearchKeyWord(),
-                        SearchOperation.MATCH));
-
-                assignedTo = new AssignmentSpecification();
-                assignedTo.add(new SearchCriteria("assignedTo", searchFilterSortAssignmentDTO.getSearchKeyWord(),
-                        SearchOperation.MATCH));
-            }
-            
-            Specification spec = Specification.where(assignmentLocation).and(assignmentIsDeleted).and(assignmentHadCompletedAssetHadReturned);
-
-            if (state != null) {
-                spec = spec.and(state);
-            }
-            if (date != null) {
-                spec = spec.and(date);
-            }
-            if (assetCode != null) {
-                spec = spec.and(Specification.where(assetCode).or(assetName).or(assignedTo));
-            }
+            Specification<Assignment> spec = getFilterSearchSortSpecification(searchFilterSortAssignmentDTO,
+                    locationId);
 
             Page<Assignment> assignments;
 
@@ -270,7 +250,15 @@ public class AssignmentServiceImpl implements AssignmentService {
             }
             List<ViewAssignmentDTO> viewAssignmentDTO = assignmentConverter.convertToListDTO(assignments);
 
-            responseDto.setData(viewAssignmentDTO);
+            if (Boolean.TRUE.equals(withTotal)) {
+                responseDto.setData(PageDTO.builder()
+                        .totalPages(assignments.getTotalPages())
+                        .totalElements(assignments.getTotalElements())
+                        .data(viewAssignmentDTO)
+                        .build());
+            } else {
+                responseDto.setData(viewAssignmentDTO);
+            }
             responseDto.setSuccessCode(SuccessCode.ASSIGNMENT_LOADED_SUCCESS);
             return responseDto;
 
@@ -285,69 +273,17 @@ public class AssignmentServiceImpl implements AssignmentService {
             SearchFilterSortAssignmentDTO searchFilterSortAssignmentDTO, Long locationId) throws DataNotFoundException {
         try {
             ResponseDTO responseDto = new ResponseDTO();
-            // search assignment (by asset code or asset name or assignee’s username) and
-            // filter assignment (by state, assigned date)
-
-            AssignmentSpecification assetCode = null;
-            AssignmentSpecification assetName = null;
-            AssignmentSpecification assignedTo = null;
-            AssignmentSpecification state = null;
-            AssignmentSpecification date = null;
-            AssignmentSpecification assignmentLocation = new AssignmentSpecification();
-            assignmentLocation.add(new SearchCriteria("assignedBy", locationId, SearchOperation.EQUAL));
-            AssignmentSpecification assignmentIsDeleted = new AssignmentSpecification();
-            assignmentIsDeleted.add(new SearchCriteria("isDeleted", false, SearchOperation.EQUAL));
-            AssignmentSpecification assignmentHadCompletedAssetHadReturned = new AssignmentSpecification();
-            assignmentHadCompletedAssetHadReturned.add(new SearchCriteria("state",
-                    State.ASSIGNMENT_HAD_COMPLETED_ASSET_HAD_RETURNED, SearchOperation.NOT_EQUAL));
-
-            if (!searchFilterSortAssignmentDTO.getStates().isEmpty()) {
-                state = new AssignmentSpecification();
-                state.add(new SearchCriteria("state", searchFilterSortAssignmentDTO.getStates(), SearchOperation.IN));
-            }
-            if (searchFilterSortAssignmentDTO.getLocalDateTime() != null) {
-                date = new AssignmentSpecification();
-                date.add(new SearchCriteria("assignedDate", searchFilterSortAssignmentDTO.getLocalDateTime(),
-                        SearchOperation.EQUAL));
-            }
-            if (!searchFilterSortAssignmentDTO.getSearchKeyWord().isBlank()) {
-                assetCode = new AssignmentSpecification();
-                assetCode.add(new SearchCriteria("assetCode", searchFilterSortAssignmentDTO.getSearchKeyWord(),
-                        SearchOperation.MATCH));
-
-                assetName = new AssignmentSpecification();
-                assetName.add(new SearchCriteria("assetName", searchFilterSortAssignmentDTO.getSearchKeyWord(),
-                        SearchOperation.MATCH));
-
-                assignedTo = new AssignmentSpecification();
-                assignedTo.add(new SearchCriteria("assignedTo", searchFilterSortAssignmentDTO.getSearchKeyWord(),
-                        SearchOperation.MATCH));
-            }
-
-            Specification spec = Specification.where(assignmentLocation).and(assignmentIsDeleted).and(assignmentHadCompletedAssetHadReturned);
-
-            if (state != null) {
-                spec = spec.and(state);
-            }
-            if (date != null) {
-                spec = spec.and(date);
-            }
-            if (assetCode != null) {
-                spec = spec.and(Specification.where(assetCode).or(assetName).or(assignedTo));
-            }
 
-            List<Assignment> assignments;
+            Specification<Assignment> spec = getFilterSearchSortSpecification(searchFilterSortAssignmentDTO,
+                    locationId);
 
+            NumberOfAssignmentDTO numberOfAssignmentDTO = new NumberOfAssignmentDTO();
             try {
-                assignments = assignmentRepository.findAll(spec);
+                numberOfAssignmentDTO.setNumberOfEntity(assignmentRepository.count(spec));
             } catch (Exception e) {
                 e.printStackTrace();
                 throw new DataNotFoundException(ErrorCode.ERR_COUNT_ASSIGNMENT_FAIL);
             }
-            List<ViewAssignmentDTO> viewAssignmentDTO = assignmentConverter.convertToListDTO(assignments);
-            NumberOfAssignmentDTO numberOfAssignmentDTO = new NumberOfAssignmentDTO();
-
-            numberOfAssignmentDTO.setNumberOfEntity((long) viewAssignmentDTO.size());
 
             responseDto.setData(numberOfAssignmentDTO);
             responseDto.setSuccessCode(SuccessCode.ASSIGNMENT_COUNT_SUCCESS);
@@ -360,6 +296,103 @@ public class AssignmentServiceImpl implements AssignmentService {
     }
 
     @Override
+    public ResponseDTO retrieveAssignmentsByCursor(String cursor, Integer numOfItems, Long locationId)
+            throws DataNotFoundException {
+        AssignmentSpecification assignmentLocation = new AssignmentSpecification();
+        assignmentLocation.add(new SearchCriteria("assignedBy", locationId, SearchOperation.EQUAL));
+        assignmentLocation.add(new SearchCriteria("isDeleted", false, SearchOperation.EQUAL));
+        assignmentLocation.add(new SearchCriteria("state",
+                Arrays.asList(State.ACCEPTED, State.WAITING_FOR_ACCEPTANCE, State.DECLINED), SearchOperation.IN));
+
+        return retrieveAssignmentSlice(assignmentLocation, Sort.by("assignedDate").descending(), cursor, numOfItems);
+    }
+
+    @Override
+    public ResponseDTO retrieveAssignmentHavingFilterSearchSortByCursor(String cursor, Integer numOfItems,
+            SearchFilterSortAssignmentDTO searchFilterSortAssignmentDTO, Long locationId) throws DataNotFoundException {
+        return retrieveAssignmentSlice(getFilterSearchSortSpecification(searchFilterSortAssignmentDTO, locationId),
+                getPaging(0, numOfItems, searchFilterSortAssignmentDTO).getSort(), cursor, numOfItems);
+    }
+
+    private ResponseDTO retrieveAssignmentSlice(Specification<Assignment> spec, Sort sort, String cursor,
+            Integer numOfItems) throws DataNotFoundException {
+        try {
+            ResponseDTO responseDto = new ResponseDTO();
+            KeysetSlice<Assignment> assignments = keysetPager.findSlice(Assignment.class, spec, sort, cursor, numOfItems,
+                    Assignment.LIST_GRAPH);
+
+            responseDto.setData(SliceDTO.builder()
+                    .data(assignmentConverter.convertToListDTO(assignments.getContent()))
+                    .hasNext(assignments.isHasNext())
+                    .nextCursor(assignments.getNextCursor())
+                    .build());
+            responseDto.setSuccessCode(SuccessCode.ASSIGNMENT_LOADED_SUCCESS);
+            return responseDto;
+        } catch (ApiRequestException e) {
+            throw e;
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new DataNotFoundException(ErrorCode.ERR_RETRIEVE_ASSIGNMENT_FAIL);
+        }
+    }
+
+    // search assignment (by asset code or asset name or assignee’s username) and
+    // filter assignment (by state, assigned date)
+    private Specification<Assignment> getFilterSearchSortSpecification(
+            SearchFilterSortAssignmentDTO searchFilterSortAssignmentDTO, Long locationId) {
+        AssignmentSpecification assetCode = null;
+        AssignmentSpecification assetName = null;
+        AssignmentSpecification assignedTo = null;
+        AssignmentSpecification state = null;
+        AssignmentSpecification date = null;
+        AssignmentSpecification assignmentLocation = new AssignmentSpecification();
+        assignmentLocation.add(new SearchCriteria("assignedBy", locationId, SearchOperation.EQUAL));
+        AssignmentSpecification assignmentIsDeleted = new AssignmentSpecification();
+        assignmentIsDeleted.add(new SearchCriteria("isDeleted", false, SearchOperation.EQUAL));
+        AssignmentSpecification assignmentHadCompletedAssetHadReturned = new AssignmentSpecification();
+        assignmentHadCompletedAssetHadReturned.add(new SearchCriteria("state",
+                State.ASSIGNMENT_HAD_COMPLETED_ASSET_HAD_RETURNED, SearchOperation.NOT_EQUAL));
+
+        if (!searchFilterSortAssignmentDTO.getStates().isEmpty()) {
+            state = new AssignmentSpecification();
+            state.add(new SearchCriteria("state", searchFilterSortAssignmentDTO.getStates(), SearchOperation.IN));
+        }
+        if (searchFilterSortAssignmentDTO.getLocalDateTime() != null) {
+            date = new AssignmentSpecification();
+            date.add(new SearchCriteria("assignedDate", searchFilterSortAssignmentDTO.getLocalDateTime(),
+                    SearchOperation.EQUAL));
+        }
+        if (!searchFilterSortAssignmentDTO.getSearchKeyWord().isBlank()) {
+            assetCode = new AssignmentSpecification();
+            assetCode.add(new SearchCriteria("assetCode", searchFilterSortAssignmentDTO.getSearchKeyWord(),
+                    SearchOperation.MATCH));
+
+            assetName = new AssignmentSpecification();
+            assetName.add(new SearchCriteria("assetName", searchFilterSortAssignmentDTO.getSearchKeyWord(),
+                    SearchOperation.MATCH));
+
+            assignedTo = new AssignmentSpecification();
+            assignedTo.add(new SearchCriteria("assignedTo", searchFilterSortAssignmentDTO.getSearchKeyWord(),
+                    SearchOperation.MATCH));
+        }
+
+        Specification<Assignment> spec = Specification.where(assignmentLocation).and(assignmentIsDeleted)
+                .and(assignmentHadCompletedAssetHadReturned);
+
+        if (state != null) {
+            spec = spec.and(state);
+        }
+        if (date != null) {
+            spec = spec.and(date);
+        }
+        if (assetCode != null) {
+            spec = spec.and(Specification.where(assetCode).or(assetName).or(assignedTo));
+        }
+        return spec;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
     public Assignment createAssignment(CreateAssignmentDTO createAssignmentDTO) throws DataNotFoundException {
         Optional<Asset> asset = assetRepository.findById(createAssignmentDTO.getAssetCode());
         if (!asset.isPresent()) {
@@ -369,12 +402,22 @@ public class AssignmentServiceImpl implements AssignmentService {
         }
 
         Assignment assignment = assignmentConverter.createDTOToEntity(createAssignmentDTO);
-        // change state of asset
-        assetRepository.updateStateWhenIsAssigned(createAssignmentDTO.getAssetCode());
+        // change state of asset, only one of concurrent assignments of the asset finds it still available
+        if (assetRepository.compareAndSetState(createAssignmentDTO.getAssetCode(), State.AVAILABLE,
+                State.ASSIGNED) == 0) {
+            throw new DataNotFoundException(ErrorCode.ASSET_IS_NOT_AVAILABLE);
+        }
 
-        return assignmentRepository.save(assignment);
+        Assignment saved = assignmentRepository.save(assignment);
+        ownAssignmentCache.evict(assignment.getAssignedTo());
+        domainEventBus.publish(new AssetStateChangedEvent(createAssignmentDTO.getAssetCode(), State.AVAILABLE,
+                State.ASSIGNED));
+        domainEventBus.publish(new AssignmentStateChangedEvent(saved.getAssignmentId(),
+                createAssignmentDTO.getAssetCode(), saved.getAssignedTo().getStaffCode(), null, saved.getState()));
+        return saved;
     }
 
+    @Transactional(rollbackFor = Exception.class)
     public ResponseDTO deleteAssetByAssignmentId(Long locationId, Long assignmentId)
             throws DataNotFoundException, DeleteDataFailException {
 
@@ -389,10 +432,19 @@ public class AssignmentServiceImpl implements AssignmentService {
         if (assignmentSave.getState() != State.WAITING_FOR_ACCEPTANCE && assignmentSave.getState() != State.DECLINED) {
             throw new DeleteDataFailException(ErrorCode.ERR_ASSIGNMENT_DELETE_FAIL_DUE_TO_STATE);
         }
+        if (assignmentRepository.deleteIfState(assignmentSave.getAssignmentId(), assignmentSave.getState()) == 0) {
+            throw new DeleteDataFailException(ErrorCode.ERR_ASSIGNMENT_DELETE_FAIL_DUE_TO_STATE);
+        }
         try {
-            assignmentSave.setIsDeleted(true);
-            assignmentSave.getAsset().setState(State.AVAILABLE);
-            assignmentRepository.save(assignmentSave);
+            // a declined assignment has given its asset back already, it may be assigned again since
+            String assetCode = assignmentSave.getAsset().getAssetCode();
+            if (State.WAITING_FOR_ACCEPTANCE.equals(assignmentSave.getState())
+                    && assetRepository.compareAndSetState(assetCode, State.ASSIGNED, State.AVAILABLE) == 1) {
+                domainEventBus.publish(new AssetStateChangedEvent(assetCode, State.ASSIGNED, State.AVAILABLE));
+            }
+            ownAssignmentCache.evict(assignmentSave.getAssignedTo());
+            domainEventBus.publish(new AssignmentStateChangedEvent(assignmentId, assetCode,
+                    assignmentSave.getAssignedTo().getStaffCode(), assignmentSave.getState(), null));
 
             responseDto.setSuccessCode(SuccessCode.ASSIGNMENT_DELETE_SUCCESS);
             return responseDto;
@@ -401,26 +453,40 @@ public class AssignmentServiceImpl implements AssignmentService {
         }
     }
 
+    // the assignment is the edited copy made by AssignmentConverter.convertEditAssignmentDTOToEntity, it is written
+    // only if the assignment still waits for acceptance. previousAssignedTo is the staff code of the assignee before
+    // the edit, both assignees' own assignments are evicted again after commit
     @Override
-    public ResponseDTO editAssignment(Assignment assignment, String assetCode)
+    @Transactional(rollbackFor = Exception.class)
+    public ResponseDTO editAssignment(Assignment assignment, String assetCode, String previousAssignedTo)
             throws UpdateDataFailException, DataNotFoundException {
         ResponseDTO responseDto = new ResponseDTO();
 
         Asset assetUp = assetRepository.findById(assetCode)
                 .orElseThrow(() -> new DataNotFoundException(ErrorCode.ASSET_NOT_FOUND));
-        try {
-            if (!assignment.getAsset().getAssetCode().equalsIgnoreCase(assetCode)) {
-                Asset assetCur = assignment.getAsset();
-                assetCur.setState(State.AVAILABLE);
-                assetRepository.save(assetCur);
-
-                assetUp.setState(State.ASSIGNED);
-                // assetRepository.save(assetUp);
-                assignment.setAsset(assetUp);
-            }
+        Asset assetCur = assignment.getAsset();
+        boolean assetChanged = !assetCur.getAssetCode().equalsIgnoreCase(assetCode);
 
-            ViewAssignmentDTO viewAssignmentDTO = assignmentConverter
-                    .convertToViewDTO(assignmentRepository.save(assignment));
+        if (assignmentRepository.updateIfState(assignment.getAssignmentId(), assetChanged ? assetUp : assetCur,
+                assignment.getAssignedTo(), assignment.getAssignedBy(), assignment.getAssignedDate(),
+                assignment.getNote(), State.WAITING_FOR_ACCEPTANCE) == 0) {
+            throw new UpdateDataFailException(ErrorCode.ERR_ASSIGNMENT_ALREADY_ACCEPTED_OR_DECLINED);
+        }
+        if (assetChanged) {
+            if (assetRepository.compareAndSetState(assetCode, State.AVAILABLE, State.ASSIGNED) == 0) {
+                throw new UpdateDataFailException(ErrorCode.ERR_ASSET_NOT_AVAILABLE);
+            }
+            domainEventBus.publish(new AssetStateChangedEvent(assetCode, State.AVAILABLE, State.ASSIGNED));
+            if (assetRepository.compareAndSetState(assetCur.getAssetCode(), State.ASSIGNED, State.AVAILABLE) == 1) {
+                domainEventBus.publish(new AssetStateChangedEvent(assetCur.getAssetCode(), State.ASSIGNED,
+                        State.AVAILABLE));
+            }
+            assignment.setAsset(assetUp);
+        }
+        try {
+            ViewAssignmentDTO viewAssignmentDTO = assignmentConverter.convertToViewDTO(assignment);
+            ownAssignmentCache.evict(previousAssignedTo);
+            ownAssignmentCache.evict(assignment.getAssignedTo());
 
             responseDto.setData(viewAssignmentDTO);
             responseDto.setSuccessCode(SuccessCode.ASSIGNMENT_UPDATE_SUCCESS);
@@ -444,11 +510,19 @@ public class AssignmentServiceImpl implements AssignmentService {
             throw new InvalidRequestDataException(ErrorCode.ERR_ASSIGNMENT_NOT_YOUR);
         }
 
+        // accepted, declined or deleted by someone else since it was read
+        if (assignmentRepository.compareAndSetState(assignment.getAssignmentId(), State.WAITING_FOR_ACCEPTANCE,
+                State.ACCEPTED) == 0) {
+            throw new InvalidRequestDataException(ErrorCode.ERR_ASSIGNMENT_ALREADY_ACCEPTED_OR_DECLINED);
+        }
+
         try {
             ResponseDTO responseDto = new ResponseDTO();
 
-            assignment.setState(State.ACCEPTED);
-            assignmentRepository.save(assignment);
+            ownAssignmentCache.evict(assignment.getAssignedTo());
+            domainEventBus.publish(new AssignmentStateChangedEvent(assignment.getAssignmentId(),
+                    assignment.getAsset().getAssetCode(), assignment.getAssignedTo().getStaffCode(),
+                    State.WAITING_FOR_ACCEPTANCE, State.ACCEPTED));
 
             responseDto.setSuccessCode(SuccessCode.ASSIGNMENT_ACCEPTED_SUCCESS);
             return responseDto;
@@ -458,6 +532,7 @@ public class AssignmentServiceImpl implements AssignmentService {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public ResponseDTO declineAssignment(Long locationId, Long assignmentId, String username)
             throws DataNotFoundException, InvalidRequestDataException, UpdateDataFailException {
         Assignment assignment = assignmentRepository.findByAssignmentId(locationId, assignmentId)
@@ -471,14 +546,21 @@ public class AssignmentServiceImpl implements AssignmentService {
             throw new InvalidRequestDataException(ErrorCode.ERR_ASSIGNMENT_NOT_YOUR);
         }
 
+        if (assignmentRepository.compareAndSetState(assignment.getAssignmentId(), State.WAITING_FOR_ACCEPTANCE,
+                State.DECLINED) == 0) {
+            throw new InvalidRequestDataException(ErrorCode.ERR_ASSIGNMENT_ALREADY_ACCEPTED_OR_DECLINED);
+        }
+
         try {
             ResponseDTO responseDto = new ResponseDTO();
 
-            assignment.setState(State.DECLINED);
-            Asset asset = assignment.getAsset();
-            asset.setState(State.AVAILABLE);
-            assignmentRepository.save(assignment);
-            assetRepository.save(asset);
+            String assetCode = assignment.getAsset().getAssetCode();
+            if (assetRepository.compareAndSetState(assetCode, State.ASSIGNED, State.AVAILABLE) == 1) {
+                domainEventBus.publish(new AssetStateChangedEvent(assetCode, State.ASSIGNED, State.AVAILABLE));
+            }
+            ownAssignmentCache.evict(assignment.getAssignedTo());
+            domainEventBus.publish(new AssignmentStateChangedEvent(assignment.getAssignmentId(), assetCode,
+                    assignment.getAssignedTo().getStaffCode(), State.WAITING_FOR_ACCEPTANCE, State.DECLINED));
 
             responseDto.setSuccessCode(SuccessCode.ASSIGNMENT_DECLINED_SUCCESS);
             return responseDto;
@@ -487,76 +569,37 @@ public class AssignmentServiceImpl implements AssignmentService {
         }
     }
 
-    public LocalDateTime getTimeForComparing() {
-        String date = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        LocalDateTime dateTime = LocalDateTime.parse(date + " 23:59:59", formatter);
-        return dateTime;
-    }
-
     @Override
     public OwnAssignmentResponse viewOwnAssignment(OwnAssignmentRequest request) {
-        int pageNum = request.getPageNum();
-        int pageSize = request.getPageSize();
         String staffCode = request.getStaffCode();
-        String orderBy = request.getOrderBy();
-        String typeOrder = request.getTypeOrder();
-
-        User assignedTo = userRepository.findById(staffCode)
-                .orElseThrow(() -> new ApiRequestException(ErrorCode.USER_NOT_FOUND));
-        if (assignedTo.getIsDeleted()) {
-            throw new ApiRequestException(ErrorCode.USER_IS_DISABLED);
-        }
-
-        try {
-            Pageable pageable;
-            if (typeOrder.equalsIgnoreCase("ASC")) {
-                switch (orderBy) {
-                    case "assetCode":
-                        pageable = PageRequest.of(pageNum - 1, pageSize, Sort.by("asset.assetCode").ascending());
-                        break;
-                    case "assetName":
-                        pageable = PageRequest.of(pageNum - 1, pageSize, Sort.by("asset.assetName").ascending());
-                        break;
-                    case "category":
-                        pageable = PageRequest.of(pageNum - 1, pageSize,
-                                Sort.by("asset.category.categoryName").ascending());
-                        break;
-                    case "state":
-                        pageable = PageRequest.of(pageNum - 1, pageSize, Sort.by("state").ascending());
-                        break;
-                    default:
-                        pageable = PageRequest.of(pageNum - 1, pageSize, Sort.by("assignedDate").ascending());
-                }
-            } else {
-                switch (orderBy) {
-                    case "assetCode":
-                        pageable = PageRequest.of(pageNum - 1, pageSize, Sort.by("asset.assetCode").descending());
-                        break;
-                    case "assetName":
-                        pageable = PageRequest.of(pageNum - 1, pageSize, Sort.by("asset.assetName").descending());
-                        break;
-                    case "category":
-                        pageable = PageRequest.of(pageNum - 1, pageSize,
-                                Sort.by("asset.category.categoryName").descending());
-                        break;
-                    case "state":
-                        pageable = PageRequest.of(pageNum - 1, pageSize, Sort.by("state").descending());
-                        break;
-                    default:
-                        pageable = PageRequest.of(pageNum - 1, pageSize, Sort.by("assignedDate").descending());
-                }
+        // assignments dated up to the end of today, the day is part of the key so pages roll over at midnight
+        LocalDate today = LocalDate.now();
+        LocalDateTime assignedBefore = today.plusDays(1).atStartOfDay();
+        String pageKey = today + "/" + request.getPageNum() + "/" + request.getPageSize() + "/"
+                + request.getOrderBy() + "/" + request.getTypeOrder();
+
+        return ownAssignmentCache.get(staffCode, pageKey, () -> {
+            Boolean isDeleted = userRepository.findIsDeletedByStaffCode(staffCode)
+                    .orElseThrow(() -> new ApiRequestException(ErrorCode.USER_NOT_FOUND));
+            if (isDeleted) {
+                throw new ApiRequestException(ErrorCode.USER_IS_DISABLED);
             }
 
-            LocalDateTime current = getTimeForComparing();
+            try {
+                Sort.Direction direction = "ASC".equalsIgnoreCase(request.getTypeOrder())
+                        ? Sort.Direction.ASC : Sort.Direction.DESC;
+                String property = OWN_ASSIGNMENT_ORDERS.getOrDefault(request.getOrderBy(), "assignedDate");
+                Pageable pageable = PageRequest.of(request.getPageNum() - 1, request.getPageSize(),
+                        Sort.by(direction, property).and(Sort.by(direction, "assignmentId")));
 
-            Page<Assignment> page = assignmentRepository.findByAssignedToAndStateNotAndStateNotAndAssignedDateLessThanAndIsDeleted(
-                    assignedTo, State.DECLINED, State.ASSIGNMENT_HAD_COMPLETED_ASSET_HAD_RETURNED, current, false, pageable);
+                Page<Object[]> page = assignmentRepository.findOwnAssignmentRows(staffCode, OWN_ASSIGNMENT_STATES,
+                        assignedBefore, pageable);
 
-            return responseConverter.convert(pageNum, page);
-        } catch (Exception e) {
-            throw new ApiRequestException(ErrorCode.ERR_LOAD_OWN_ASSIGNMENT);
-        }
+                return responseConverter.convert(request.getPageNum(), page);
+            } catch (Exception e) {
+                throw new ApiRequestException(ErrorCode.ERR_LOAD_OWN_ASSIGNMENT);
+            }
+        });
     }
 
     @Override
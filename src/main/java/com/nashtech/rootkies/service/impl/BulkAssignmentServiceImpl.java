@@ -0,0 +1,388 @@
+package com.nashtech.rootkies.service.impl;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.nashtech.rootkies.constants.ErrorCode;
+import com.nashtech.rootkies.constants.State;
+import com.nashtech.rootkies.constants.SuccessCode;
+import com.nashtech.rootkies.dto.assignment.request.BulkAssignmentItemDTO;
+import com.nashtech.rootkies.dto.assignment.request.BulkCreateAssignmentDTO;
+import com.nashtech.rootkies.dto.assignment.response.BulkAssignmentReportDTO;
+import com.nashtech.rootkies.dto.assignment.response.BulkAssignmentResultDTO;
+import com.nashtech.rootkies.dto.assignment.response.BulkTransitionReportDTO;
+import com.nashtech.rootkies.dto.assignment.response.BulkTransitionResultDTO;
+import com.nashtech.rootkies.dto.common.ResponseDTO;
+import com.nashtech.rootkies.event.AssetStateChangedEvent;
+import com.nashtech.rootkies.event.AssignmentStateChangedEvent;
+import com.nashtech.rootkies.event.DomainEventBus;
+import com.nashtech.rootkies.event.RequestStateChangedEvent;
+import com.nashtech.rootkies.exception.CreateDataFailException;
+import com.nashtech.rootkies.exception.UpdateDataFailException;
+import com.nashtech.rootkies.repository.AssetRepository;
+import com.nashtech.rootkies.repository.AssignmentRepository;
+import com.nashtech.rootkies.repository.UserRepository;
+import com.nashtech.rootkies.service.BulkAssignmentService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+// Assignments for many (asset, assignee) pairs at once. The assets and assignees of the whole request are checked
+// with one query each, the available assets are moved to ASSIGNED with one conditional UPDATE that returns the
+// codes it changed, and the assignments of those are written with one JDBC batch insert. An asset taken by a
+// concurrent assignment between the check and the UPDATE is reported as not available, like the other failed
+// items; the rest of the request still goes through.
+//
+// The staff side works the same way on a list of assignment ids: ownership and state of all of them are checked
+// with one query, and accepting, declining and requesting returns are each one conditional statement over the
+// ids that passed, returning the rows it changed. A state change event is published for every changed row.
+@Service
+public class BulkAssignmentServiceImpl implements BulkAssignmentService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkAssignmentServiceImpl.class);
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private static final String ASSIGN_ASSETS_SQL = "UPDATE assets SET state = ?, statechangeddate = now() "
+            + "WHERE assetcode = ANY (?) AND state = ? AND isdeleted = false RETURNING assetcode";
+
+    // the ids Hibernate would have given, assignments use hibernate_sequence
+    private static final String NEXT_IDS_SQL = "SELECT nextval('hibernate_sequence') FROM generate_series(1, ?)";
+
+    private static final String INSERT_SQL = "INSERT INTO assignments (assignmentid, assigneddate, isdeleted, note, "
+            + "state, assetcode, assignedby, assignedto) VALUES (?, ?, false, ?, ?, ?, ?, ?)";
+
+    private static final String SET_ASSIGNMENT_STATE_SQL = "UPDATE assignments SET state = ? "
+            + "WHERE assignmentid = ANY (?) AND assignedto = ? AND state = ? AND isdeleted = false "
+            + "RETURNING assignmentid, assetcode";
+
+    private static final String RETURN_ASSETS_SQL = "UPDATE assets SET state = ?, statechangeddate = now() "
+            + "WHERE assetcode = ANY (?) AND state = ? AND isdeleted = false RETURNING assetcode";
+
+    // an assignment with a waiting return request, even one inserted by a concurrent transaction that has not
+    // committed yet, is skipped on the partial unique index request_assignmentid_waiting_idx (see
+    // config.RequestIndexInitializer) instead of getting a second one
+    private static final String INSERT_REQUESTS_SQL = "INSERT INTO requests (requestid, isdeleted, state, "
+            + "assignmentid, requestedby) "
+            + "SELECT nextval('hibernate_sequence'), false, ?, s.assignmentid, s.assignedto FROM assignments s "
+            + "WHERE s.assignmentid = ANY (?) AND s.assignedto = ? AND s.state = ? AND s.isdeleted = false "
+            + "ON CONFLICT DO NOTHING "
+            + "RETURNING requestid, assignmentid";
+
+    private final AssetRepository assetRepository;
+
+    private final AssignmentRepository assignmentRepository;
+
+    private final UserRepository userRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final OwnAssignmentCache ownAssignmentCache;
+
+    private final DomainEventBus domainEventBus;
+
+    @Autowired
+    public BulkAssignmentServiceImpl(AssetRepository assetRepository, AssignmentRepository assignmentRepository,
+            UserRepository userRepository, JdbcTemplate jdbcTemplate, OwnAssignmentCache ownAssignmentCache,
+            DomainEventBus domainEventBus) {
+        this.assetRepository = assetRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.ownAssignmentCache = ownAssignmentCache;
+        this.domainEventBus = domainEventBus;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public ResponseDTO createAssignments(BulkCreateAssignmentDTO dto, Long locationId)
+            throws CreateDataFailException {
+        List<BulkAssignmentItemDTO> items = dto.getItems();
+        LocalDateTime assignedDate = LocalDateTime.parse(dto.getAssignedDate(), FORMATTER);
+
+        List<BulkAssignmentResultDTO> results = new ArrayList<>(items.size());
+        Set<String> assetCodes = new LinkedHashSet<>();
+        Set<String> staffCodes = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            BulkAssignmentItemDTO item = items.get(i);
+            results.add(new BulkAssignmentResultDTO(i, item.getAssetCode(), item.getAssignedTo(), null, null));
+            assetCodes.add(item.getAssetCode());
+            staffCodes.add(item.getAssignedTo());
+        }
+
+        Map<String, Short> assetStates = new HashMap<>();
+        for (Object[] row : assetRepository.findStatesByAssetCodes(locationId, assetCodes)) {
+            assetStates.put((String) row[0], (Short) row[1]);
+        }
+        Set<String> assignees = new HashSet<>(userRepository.findStaffCodesByLocation(locationId, staffCodes));
+
+        Set<String> seen = new HashSet<>();
+        List<BulkAssignmentResultDTO> candidates = new ArrayList<>();
+        for (BulkAssignmentResultDTO result : results) {
+            String assetCode = result.getAssetCode();
+            if (!seen.add(assetCode)) {
+                result.setErrorCode(ErrorCode.ERR_ASSET_DUPLICATED_IN_REQUEST);
+            } else if (!assetStates.containsKey(assetCode)) {
+                result.setErrorCode(ErrorCode.ASSET_NOT_FOUND);
+            } else if (!State.AVAILABLE.equals(assetStates.get(assetCode))) {
+                result.setErrorCode(ErrorCode.ASSET_IS_NOT_AVAILABLE);
+            } else if (!assignees.contains(result.getAssignedTo())) {
+                result.setErrorCode(ErrorCode.USER_NOT_FOUND);
+            } else {
+                candidates.add(result);
+            }
+        }
+
+        try {
+            insert(candidates, dto, assignedDate);
+        } catch (DataAccessException e) {
+            LOGGER.error("Bulk assignment of {} assets failed: {}", candidates.size(), e.getMessage());
+            throw new CreateDataFailException(ErrorCode.ERR_CREATE_ASSIGNMENT);
+        }
+
+        BulkAssignmentReportDTO report = BulkAssignmentReportDTO.builder().results(results).total(results.size())
+                .build();
+        for (BulkAssignmentResultDTO result : results) {
+            if (result.getAssignmentId() != null) {
+                report.setCreated(report.getCreated() + 1);
+                ownAssignmentCache.evict(result.getAssignedTo());
+                domainEventBus.publish(new AssetStateChangedEvent(result.getAssetCode(), State.AVAILABLE,
+                        State.ASSIGNED));
+                domainEventBus.publish(new AssignmentStateChangedEvent(result.getAssignmentId(),
+                        result.getAssetCode(), result.getAssignedTo(), null, State.WAITING_FOR_ACCEPTANCE));
+            }
+        }
+        report.setFailed(report.getTotal() - report.getCreated());
+
+        ResponseDTO responseDto = new ResponseDTO();
+        responseDto.setData(report);
+        responseDto.setSuccessCode(SuccessCode.CREATE_ASSIGNMENTS_SUCCESS);
+        return responseDto;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public ResponseDTO acceptAssignments(List<Long> assignmentIds, String staffCode)
+            throws UpdateDataFailException {
+        BulkTransitionReportDTO report = check(assignmentIds, staffCode,
+                row -> State.WAITING_FOR_ACCEPTANCE.equals(row.state) ? null
+                        : ErrorCode.ERR_ASSIGNMENT_ALREADY_ACCEPTED_OR_DECLINED);
+        try {
+            setState(report, staffCode, State.ACCEPTED);
+        } catch (DataAccessException e) {
+            LOGGER.error("Bulk accept of {} assignments failed: {}", assignmentIds.size(), e.getMessage());
+            throw new UpdateDataFailException(ErrorCode.ERR_ASSIGNMENT_ACCEPTED_FAIL);
+        }
+        return finish(report, staffCode, SuccessCode.ASSIGNMENTS_ACCEPTED_SUCCESS);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public ResponseDTO declineAssignments(List<Long> assignmentIds, String staffCode)
+            throws UpdateDataFailException {
+        BulkTransitionReportDTO report = check(assignmentIds, staffCode,
+                row -> State.WAITING_FOR_ACCEPTANCE.equals(row.state) ? null
+                        : ErrorCode.ERR_ASSIGNMENT_ALREADY_ACCEPTED_OR_DECLINED);
+        try {
+            Map<Long, String> declined = setState(report, staffCode, State.DECLINED);
+            if (!declined.isEmpty()) {
+                String[] codes = declined.values().toArray(new String[0]);
+                jdbcTemplate.query(RETURN_ASSETS_SQL, ps -> {
+                    ps.setShort(1, State.AVAILABLE);
+                    ps.setArray(2, ps.getConnection().createArrayOf("varchar", codes));
+                    ps.setShort(3, State.ASSIGNED);
+                }, (RowCallbackHandler) rs -> domainEventBus.publish(
+                        new AssetStateChangedEvent(rs.getString(1), State.ASSIGNED, State.AVAILABLE)));
+            }
+        } catch (DataAccessException e) {
+            LOGGER.error("Bulk decline of {} assignments failed: {}", assignmentIds.size(), e.getMessage());
+            throw new UpdateDataFailException(ErrorCode.ERR_ASSIGNMENT_DECLINED_FAIL);
+        }
+        return finish(report, staffCode, SuccessCode.ASSIGNMENTS_DECLINED_SUCCESS);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public ResponseDTO createReturnRequests(List<Long> assignmentIds, String staffCode)
+            throws CreateDataFailException {
+        BulkTransitionReportDTO report = check(assignmentIds, staffCode, row -> {
+            if (!State.ACCEPTED.equals(row.state)) {
+                return ErrorCode.ERR_REQUEST_ASSIGNMENT_NOT_ACCEPT;
+            }
+            return row.waitingRequests > 0 ? ErrorCode.ERR_REQUEST_ALREADY_WAITING : null;
+        });
+        List<BulkTransitionResultDTO> candidates = candidates(report);
+        if (!candidates.isEmpty()) {
+            Long[] ids = candidates.stream().map(BulkTransitionResultDTO::getAssignmentId).toArray(Long[]::new);
+            Map<Long, Long> created = new HashMap<>();
+            try {
+                jdbcTemplate.query(INSERT_REQUESTS_SQL, ps -> {
+                    ps.setShort(1, State.WAITING_FOR_RETURNING);
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", ids));
+                    ps.setString(3, staffCode);
+                    ps.setShort(4, State.ACCEPTED);
+                }, (RowCallbackHandler) rs -> created.put(rs.getLong(2), rs.getLong(1)));
+            } catch (DataAccessException e) {
+                LOGGER.error("Bulk return request of {} assignments failed: {}", ids.length, e.getMessage());
+                throw new CreateDataFailException(ErrorCode.ERR_CREATE_REQUEST_FAIL);
+            }
+            // returned, or requested by someone else, since the check
+            for (BulkTransitionResultDTO candidate : candidates) {
+                candidate.setRequestId(created.get(candidate.getAssignmentId()));
+                if (candidate.getRequestId() == null) {
+                    candidate.setErrorCode(ErrorCode.ERR_REQUEST_ALREADY_WAITING);
+                } else {
+                    domainEventBus.publish(new RequestStateChangedEvent(candidate.getRequestId(),
+                            candidate.getAssignmentId(), null, State.WAITING_FOR_RETURNING));
+                }
+            }
+        }
+        return finish(report, staffCode, SuccessCode.REQUESTS_CREATE_SUCCESS);
+    }
+
+    // one result per id, with the error of those that are duplicated, missing, not assigned to staffCode or
+    // rejected by stateCheck
+    private BulkTransitionReportDTO check(List<Long> assignmentIds, String staffCode,
+            Function<AssignmentRow, String> stateCheck) {
+        Map<Long, AssignmentRow> rows = new HashMap<>();
+        for (Object[] row : assignmentRepository.findStateRowsByAssignmentIds(new HashSet<>(assignmentIds))) {
+            rows.put((Long) row[0], new AssignmentRow((String) row[1], (Short) row[2], (Long) row[3]));
+        }
+
+        BulkTransitionReportDTO report = BulkTransitionReportDTO.builder().total(assignmentIds.size()).build();
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < assignmentIds.size(); i++) {
+            Long assignmentId = assignmentIds.get(i);
+            AssignmentRow row = rows.get(assignmentId);
+            BulkTransitionResultDTO result = new BulkTransitionResultDTO(i, assignmentId, null, null);
+            if (!seen.add(assignmentId)) {
+                result.setErrorCode(ErrorCode.ERR_ASSIGNMENT_DUPLICATED_IN_REQUEST);
+            } else if (row == null) {
+                result.setErrorCode(ErrorCode.ERR_ASSIGNMENT_ID_NOT_FOUND);
+            } else if (!row.assignedTo.equalsIgnoreCase(staffCode)) {
+                result.setErrorCode(ErrorCode.ERR_ASSIGNMENT_NOT_YOUR);
+            } else {
+                result.setErrorCode(stateCheck.apply(row));
+            }
+            report.getResults().add(result);
+        }
+        return report;
+    }
+
+    // moves the candidates still waiting for acceptance to state, the others lost to a concurrent change and get
+    // the error they would have got a moment later. The asset codes of the changed assignments, by assignment id.
+    private Map<Long, String> setState(BulkTransitionReportDTO report, String staffCode, Short state) {
+        List<BulkTransitionResultDTO> candidates = candidates(report);
+        Map<Long, String> changed = new LinkedHashMap<>();
+        if (candidates.isEmpty()) {
+            return changed;
+        }
+        Long[] ids = candidates.stream().map(BulkTransitionResultDTO::getAssignmentId).toArray(Long[]::new);
+        jdbcTemplate.query(SET_ASSIGNMENT_STATE_SQL, ps -> {
+            ps.setShort(1, state);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", ids));
+            ps.setString(3, staffCode);
+            ps.setShort(4, State.WAITING_FOR_ACCEPTANCE);
+        }, (RowCallbackHandler) rs -> changed.put(rs.getLong(1), rs.getString(2)));
+        for (BulkTransitionResultDTO candidate : candidates) {
+            String assetCode = changed.get(candidate.getAssignmentId());
+            if (assetCode == null) {
+                candidate.setErrorCode(ErrorCode.ERR_ASSIGNMENT_ALREADY_ACCEPTED_OR_DECLINED);
+            } else {
+                domainEventBus.publish(new AssignmentStateChangedEvent(candidate.getAssignmentId(), assetCode,
+                        staffCode, State.WAITING_FOR_ACCEPTANCE, state));
+            }
+        }
+        return changed;
+    }
+
+    private List<BulkTransitionResultDTO> candidates(BulkTransitionReportDTO report) {
+        List<BulkTransitionResultDTO> candidates = new ArrayList<>();
+        for (BulkTransitionResultDTO result : report.getResults()) {
+            if (result.getErrorCode() == null) {
+                candidates.add(result);
+            }
+        }
+        return candidates;
+    }
+
+    private ResponseDTO finish(BulkTransitionReportDTO report, String staffCode, String successCode) {
+        report.setSucceeded(candidates(report).size());
+        report.setFailed(report.getTotal() - report.getSucceeded());
+        if (report.getSucceeded() > 0) {
+            ownAssignmentCache.evict(staffCode);
+        }
+
+        ResponseDTO responseDto = new ResponseDTO();
+        responseDto.setData(report);
+        responseDto.setSuccessCode(successCode);
+        return responseDto;
+    }
+
+    private void insert(List<BulkAssignmentResultDTO> candidates, BulkCreateAssignmentDTO dto,
+            LocalDateTime assignedDate) {
+        if (candidates.isEmpty()) {
+            return;
+        }
+        String[] codes = candidates.stream().map(BulkAssignmentResultDTO::getAssetCode).toArray(String[]::new);
+        Set<String> assigned = new HashSet<>(jdbcTemplate.query(ASSIGN_ASSETS_SQL, ps -> {
+            ps.setShort(1, State.ASSIGNED);
+            ps.setArray(2, ps.getConnection().createArrayOf("varchar", codes));
+            ps.setShort(3, State.AVAILABLE);
+        }, (rs, rowNum) -> rs.getString(1)));
+
+        List<BulkAssignmentResultDTO> winners = new ArrayList<>(assigned.size());
+        for (BulkAssignmentResultDTO candidate : candidates) {
+            if (assigned.contains(candidate.getAssetCode())) {
+                winners.add(candidate);
+            } else {
+                candidate.setErrorCode(ErrorCode.ASSET_IS_NOT_AVAILABLE);
+            }
+        }
+        if (winners.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = jdbcTemplate.queryForList(NEXT_IDS_SQL, Long.class, winners.size());
+        for (int i = 0; i < winners.size(); i++) {
+            winners.get(i).setAssignmentId(ids.get(i));
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, winners, winners.size(), (ps, winner) -> {
+            ps.setLong(1, winner.getAssignmentId());
+            ps.setTimestamp(2, Timestamp.valueOf(assignedDate));
+            ps.setString(3, dto.getNote());
+            ps.setShort(4, State.WAITING_FOR_ACCEPTANCE);
+            ps.setString(5, winner.getAssetCode());
+            ps.setString(6, dto.getAssignedBy());
+            ps.setString(7, winner.getAssignedTo());
+        });
+    }
+
+    private static class AssignmentRow {
+        private final String assignedTo;
+        private final Short state;
+        private final long waitingRequests;
+
+        private AssignmentRow(String assignedTo, Short state, long waitingRequests) {
+            this.assignedTo = assignedTo;
+            this.state = state;
+            this.waitingRequests = waitingRequests;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.nashtech.rootkies.service.impl;
 
+import com.nashtech.rootkies.constants.CacheName;
 import com.nashtech.rootkies.constants.ErrorCode;
 import com.nashtech.rootkies.constants.SuccessCode;
 import com.nashtech.rootkies.converter.CategoryConverter;
@@ -10,9 +11,11 @@ import com.nashtech.rootkies.exception.DataNotFoundException;
 import com.nashtech.rootkies.model.Category;
 import com.nashtech.rootkies.repository.CategoryRepository;
 import com.nashtech.rootkies.service.CategoryService;
+import com.nashtech.rootkies.service.ReferenceDataService;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.*;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 import java.util.List;
 
@@ -23,10 +26,14 @@ public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
 
+    private final ReferenceDataService referenceDataService;
+
     @Autowired
-    public CategoryServiceImpl(CategoryConverter categoryConverter, CategoryRepository categoryRepository) {
+    public CategoryServiceImpl(CategoryConverter categoryConverter, CategoryRepository categoryRepository,
+                               ReferenceDataService referenceDataService) {
         this.categoryConverter = categoryConverter;
         this.categoryRepository = categoryRepository;
+        this.referenceDataService = referenceDataService;
     }
 
     @Override
@@ -35,7 +42,7 @@ public class CategoryServiceImpl implements CategoryService {
             ResponseDTO responseDto = new ResponseDTO();
             List<Category> categories;
             try {
-                categories = categoryRepository.findAll(Sort.by("categoryName").ascending());
+                categories = referenceDataService.getCategories();
             } catch (Exception e) {
                 throw new DataNotFoundException(ErrorCode.ERR_RETRIEVE_CATEGORY_FAIL);
             }
@@ -50,6 +57,8 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
+    @Caching(evict = { @CacheEvict(cacheNames = CacheName.CATEGORIES, allEntries = true),
+            @CacheEvict(cacheNames = CacheName.CATEGORY, key = "#category.categoryCode") })
     public ResponseDTO saveCategory(Category category) throws CreateDataFailException {
         try {
             ResponseDTO responseDto = new ResponseDTO();
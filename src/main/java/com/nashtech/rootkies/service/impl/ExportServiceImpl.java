@@ -0,0 +1,137 @@
+package com.nashtech.rootkies.service.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import com.nashtech.rootkies.export.ExportFormat;
+import com.nashtech.rootkies.export.ExportWriter;
+import com.nashtech.rootkies.model.Asset;
+import com.nashtech.rootkies.model.Assignment;
+import com.nashtech.rootkies.model.Request;
+import com.nashtech.rootkies.model.User;
+import com.nashtech.rootkies.repository.AssetRepository;
+import com.nashtech.rootkies.repository.AssignmentRepository;
+import com.nashtech.rootkies.repository.RequestRepository;
+import com.nashtech.rootkies.service.ExportService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+// Full exports of a location. The body is written on an MVC async thread: it opens its own read only transaction,
+// reads the rows through the streaming repository queries (a server side cursor with a fetch size) and writes
+// each row as soon as it is read. Written rows are detached, and the persistence context is cleared every
+// CLEAR_ROWS rows to drop the users, categories and locations they pulled in, so the heap stays flat.
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportServiceImpl.class);
+
+    private static final int CLEAR_ROWS = 1000;
+
+    private static final List<String> ASSET_COLUMNS = List.of("assetCode", "assetName", "categoryCode",
+            "categoryName", "state", "installDate", "specification");
+
+    private static final List<String> ASSIGNMENT_COLUMNS = List.of("assignmentId", "assetCode", "assetName",
+            "assignedTo", "assignedBy", "assignedDate", "state", "note");
+
+    private static final List<String> REQUEST_COLUMNS = List.of("requestId", "assetCode", "assetName",
+            "requestedBy", "assignedDate", "acceptedBy", "returnedDate", "state");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final AssetRepository assetRepository;
+
+    private final AssignmentRepository assignmentRepository;
+
+    private final RequestRepository requestRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public ExportServiceImpl(AssetRepository assetRepository, AssignmentRepository assignmentRepository,
+            RequestRepository requestRepository, PlatformTransactionManager transactionManager) {
+        this.assetRepository = assetRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.requestRepository = requestRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public StreamingResponseBody exportAssets(Long locationId, ExportFormat format) {
+        return out -> export(format, ASSET_COLUMNS, out, () -> assetRepository.streamAllByLocation(locationId),
+                asset -> Arrays.asList(asset.getAssetCode(), asset.getAssetName(),
+                        asset.getCategory().getCategoryCode(), asset.getCategory().getCategoryName(),
+                        asset.getState(), asset.getInstallDate(), asset.getSpecification()));
+    }
+
+    @Override
+    public StreamingResponseBody exportAssignments(Long locationId, ExportFormat format) {
+        return out -> export(format, ASSIGNMENT_COLUMNS, out,
+                () -> assignmentRepository.streamAllByLocation(locationId),
+                assignment -> Arrays.asList(assignment.getAssignmentId(), assignment.getAsset().getAssetCode(),
+                        assignment.getAsset().getAssetName(), username(assignment.getAssignedTo()),
+                        username(assignment.getAssignedBy()), assignment.getAssignedDate(), assignment.getState(),
+                        assignment.getNote()));
+    }
+
+    @Override
+    public StreamingResponseBody exportRequests(Long locationId, ExportFormat format) {
+        return out -> export(format, REQUEST_COLUMNS, out, () -> requestRepository.streamAllByLocation(locationId),
+                request -> {
+                    Assignment assignment = request.getAssignment();
+                    Asset asset = assignment.getAsset();
+                    return Arrays.asList(request.getRequestId(), asset.getAssetCode(), asset.getAssetName(),
+                            username(request.getRequestedBy()), assignment.getAssignedDate(),
+                            username(request.getAcceptedBy()), request.getReturnedDate(), request.getState());
+                });
+    }
+
+    private <T> void export(ExportFormat format, List<String> columns, OutputStream out,
+            Supplier<Stream<T>> query, Function<T, List<?>> toRow) throws IOException {
+        ExportWriter writer = new ExportWriter(format, columns, out);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                long count = 0;
+                try (Stream<T> rows = query.get()) {
+                    Iterator<T> iterator = rows.iterator();
+                    while (iterator.hasNext()) {
+                        T row = iterator.next();
+                        writer.write(toRow.apply(row));
+                        entityManager.detach(row);
+                        if (++count % CLEAR_ROWS == 0) {
+                            entityManager.clear();
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // mostly the client closing the connection half way
+            LOGGER.warn("Export aborted: {}", e.getCause().getMessage());
+            throw e.getCause();
+        }
+        writer.finish();
+    }
+
+    private static String username(User user) {
+        return user == null ? null : user.getUsername();
+    }
+}
@@ -0,0 +1,69 @@
+package com.nashtech.rootkies.service.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.nashtech.rootkies.constants.CacheName;
+import com.nashtech.rootkies.dto.ownassignment.response.OwnAssignmentResponse;
+import com.nashtech.rootkies.model.User;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Own assignment pages per staff user. The cache entry of a user is a map of the pages that user has read, so one
+// eviction drops all of them. Anything that changes what a user sees on their own list (an assignment created for
+// them, edited, accepted, declined, deleted, or a return request made, cancelled or completed) must call evict
+// after the change is saved.
+@Component
+public class OwnAssignmentCache {
+
+    private final CacheManager cacheManager;
+
+    @Autowired
+    public OwnAssignmentCache(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    public OwnAssignmentResponse get(String staffCode, String pageKey, Supplier<OwnAssignmentResponse> loader) {
+        Cache cache = cacheManager.getCache(CacheName.OWN_ASSIGNMENTS);
+        if (cache == null) {
+            return loader.get();
+        }
+        Map<String, OwnAssignmentResponse> pages = cache.get(staffCode, ConcurrentHashMap::new);
+        OwnAssignmentResponse page = pages.get(pageKey);
+        if (page == null) {
+            // a load racing with an eviction writes into the map already dropped from the cache
+            page = loader.get();
+            pages.put(pageKey, page);
+        }
+        return page;
+    }
+
+    // inside a transaction the entry is evicted again after commit, a read in between may have cached the old rows
+    public void evict(String staffCode) {
+        Cache cache = cacheManager.getCache(CacheName.OWN_ASSIGNMENTS);
+        if (cache == null || staffCode == null) {
+            return;
+        }
+        cache.evict(staffCode);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.evict(staffCode);
+                }
+            });
+        }
+    }
+
+    public void evict(User assignedTo) {
+        if (assignedTo != null) {
+            evict(assignedTo.getStaffCode());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.nashtech.rootkies.service.impl;
+
+import com.nashtech.rootkies.constants.CacheName;
+import com.nashtech.rootkies.enums.ERole;
+import com.nashtech.rootkies.model.Category;
+import com.nashtech.rootkies.model.Location;
+import com.nashtech.rootkies.model.Role;
+import com.nashtech.rootkies.repository.CategoryRepository;
+import com.nashtech.rootkies.repository.LocationRepository;
+import com.nashtech.rootkies.repository.RoleRepository;
+import com.nashtech.rootkies.service.ReferenceDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+// Categories, locations and roles are read on most writes but change rarely. Lookups that find nothing are not
+// cached, so a code created after the miss is found on the next call. Category changes must evict
+// CacheName.CATEGORIES and CacheName.CATEGORY, as CategoryServiceImpl.saveCategory does.
+@Service
+public class ReferenceDataServiceImpl implements ReferenceDataService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReferenceDataServiceImpl.class);
+
+    public static final String ALL_CATEGORIES_KEY = "all";
+
+    private final CategoryRepository categoryRepository;
+
+    private final LocationRepository locationRepository;
+
+    private final RoleRepository roleRepository;
+
+    private final CacheManager cacheManager;
+
+    @Autowired
+    public ReferenceDataServiceImpl(CategoryRepository categoryRepository, LocationRepository locationRepository,
+                                    RoleRepository roleRepository, CacheManager cacheManager) {
+        this.categoryRepository = categoryRepository;
+        this.locationRepository = locationRepository;
+        this.roleRepository = roleRepository;
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    @Cacheable(cacheNames = CacheName.CATEGORIES, key = "'" + ALL_CATEGORIES_KEY + "'", unless = "#result == null")
+    public List<Category> getCategories() {
+        return categoryRepository.findAll(Sort.by("categoryName").ascending());
+    }
+
+    @Override
+    @Cacheable(cacheNames = CacheName.CATEGORY, unless = "#result == null")
+    public Optional<Category> findCategory(String categoryCode) {
+        return categoryRepository.findById(categoryCode);
+    }
+
+    @Override
+    @Cacheable(cacheNames = CacheName.LOCATION, unless = "#result == null")
+    public Optional<Location> findLocation(Long locationId) {
+        return locationRepository.findById(locationId);
+    }
+
+    @Override
+    @Cacheable(cacheNames = CacheName.ROLE, unless = "#result == null")
+    public Optional<Role> findRole(ERole roleName) {
+        return roleRepository.findByRoleName(roleName);
+    }
+
+    // one query per table instead of a miss per key on the first requests
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            // calls within the bean skip the cache proxy, so the entries are put directly
+            List<Category> categories = categoryRepository.findAll(Sort.by("categoryName").ascending());
+            Cache categoriesCache = cacheManager.getCache(CacheName.CATEGORIES);
+            Cache categoryCache = cacheManager.getCache(CacheName.CATEGORY);
+            if (categoriesCache != null) {
+                categoriesCache.put(ALL_CATEGORIES_KEY, categories);
+            }
+            if (categoryCache != null) {
+                categories.forEach(category -> categoryCache.put(category.getCategoryCode(), category));
+            }
+
+            Cache locationCache = cacheManager.getCache(CacheName.LOCATION);
+            if (locationCache != null) {
+                locationRepository.findAll().forEach(location ->
+                        locationCache.put(location.getLocationId(), location));
+            }
+
+            Cache roleCache = cacheManager.getCache(CacheName.ROLE);
+            if (roleCache != null) {
+                roleRepository.findAll().forEach(role -> roleCache.put(role.getRoleName(), role));
+            }
+            LOGGER.info("Reference data cache warmed with {} categories", categories.size());
+        } catch (Exception e) {
+            // the caches fill on demand instead
+            LOGGER.warn("Could not warm reference data cache: {}", e.getMessage());
+        }
+    }
+}
@@ -7,19 +7,30 @@ import com.nashtech.rootkies.constants.ErrorCode;
 import com.nashtech.rootkies.constants.State;
 import com.nashtech.rootkies.constants.SuccessCode;
 import com.nashtech.rootkies.converter.RequestConverter;
+import com.nashtech.rootkies.dto.PageDTO;
+import com.nashtech.rootkies.dto.SliceDTO;
 import com.nashtech.rootkies.dto.common.ResponseDTO;
 import com.nashtech.rootkies.dto.request.request.CreateRequestDTO;
 import com.nashtech.rootkies.dto.request.request.SearchFilterSortRequestDTO;
 import com.nashtech.rootkies.enums.ERole;
+import com.nashtech.rootkies.event.AssetStateChangedEvent;
+import com.nashtech.rootkies.event.AssignmentStateChangedEvent;
+import com.nashtech.rootkies.event.DomainEventBus;
+import com.nashtech.rootkies.event.RequestStateChangedEvent;
 import com.nashtech.rootkies.exception.CreateDataFailException;
 import com.nashtech.rootkies.exception.DataNotFoundException;
 import com.nashtech.rootkies.exception.InvalidRequestDataException;
 import com.nashtech.rootkies.exception.UpdateDataFailException;
+import com.nashtech.rootkies.exception.custom.ApiRequestException;
+import com.nashtech.rootkies.model.Assignment;
 import com.nashtech.rootkies.model.Request;
 import com.nashtech.rootkies.model.User;
+import com.nashtech.rootkies.repository.AssetRepository;
 import com.nashtech.rootkies.repository.AssignmentRepository;
 import com.nashtech.rootkies.repository.RequestRepository;
 import com.nashtech.rootkies.repository.UserRepository;
+import com.nashtech.rootkies.repository.keyset.KeysetPager;
+import com.nashtech.rootkies.repository.keyset.KeysetSlice;
 import com.nashtech.rootkies.repository.specs.RequestSpecification;
 import com.nashtech.rootkies.service.RequestService;
 import com.nashtech.rootkies.dto.request.response.NumberOfRequestDTO;
@@ -29,6 +40,7 @@ import com.nashtech.rootkies.repository.specs.SearchOperation;
 import com.nashtech.rootkies.enums.SortType;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -36,6 +48,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.jpa.domain.Specification;
 
 @Service
@@ -49,13 +62,27 @@ public class RequestServiceImpl implements RequestService {
 
     private final RequestConverter requestConverter;
 
+    private final KeysetPager keysetPager;
+
+    private final AssetRepository assetRepository;
+
+    private final OwnAssignmentCache ownAssignmentCache;
+
+    private final DomainEventBus domainEventBus;
+
     @Autowired
     public RequestServiceImpl(RequestRepository requestRepository, UserRepository userRepository,
-                              AssignmentRepository assignmentRepository, RequestConverter requestConverter) {
+                              AssignmentRepository assignmentRepository, RequestConverter requestConverter,
+                              KeysetPager keysetPager, AssetRepository assetRepository,
+                              OwnAssignmentCache ownAssignmentCache, DomainEventBus domainEventBus) {
         this.requestRepository = requestRepository;
         this.userRepository = userRepository;
         this.assignmentRepository = assignmentRepository;
         this.requestConverter = requestConverter;
+        this.keysetPager = keysetPager;
+        this.assetRepository = assetRepository;
+        this.ownAssignmentCache = ownAssignmentCache;
+        this.domainEventBus = domainEventBus;
     }
 
     @Override
@@ -69,13 +96,18 @@ public class RequestServiceImpl implements RequestService {
         User admin = userRepository.findByUsername(locationId, username)
                 .orElseThrow(() -> new DataNotFoundException(ErrorCode.ERR_USER_NOT_FOUND));
 
+        LocalDateTime currentTime = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
+        // completed or cancelled by someone else since it was read
+        if (requestRepository.closeIfWaiting(request.getRequestId(), State.WAITING_FOR_RETURNING, true, admin,
+                currentTime) == 0) {
+            throw new InvalidRequestDataException(ErrorCode.ERR_REQUEST_ALREADY_COMPLETE);
+        }
+
         try {
             ResponseDTO responseDto = new ResponseDTO();
-            request.setIsDeleted(true);
-            request.setAcceptedBy(admin);
-            LocalDateTime currentTime = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
-            request.setReturnedDate(currentTime);
-            requestRepository.save(request);
+            ownAssignmentCache.evict(request.getAssignment().getAssignedTo());
+            domainEventBus.publish(new RequestStateChangedEvent(request.getRequestId(),
+                    request.getAssignment().getAssignmentId(), State.WAITING_FOR_RETURNING, null));
 
             responseDto.setSuccessCode(SuccessCode.REQUEST_CANCEL_SUCCESS);
             return responseDto;
@@ -85,6 +117,7 @@ public class RequestServiceImpl implements RequestService {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public ResponseDTO completeRequest(Long locationId, Long requestId, String username)
             throws DataNotFoundException, InvalidRequestDataException, UpdateDataFailException {
         Request request = requestRepository.findByRequestId(locationId, requestId)
@@ -98,15 +131,29 @@ public class RequestServiceImpl implements RequestService {
         User admin = userRepository.findByUsername(locationId, username)
                 .orElseThrow(() -> new DataNotFoundException(ErrorCode.ERR_USER_NOT_FOUND));
 
+        LocalDateTime currentTime = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
+        if (requestRepository.closeIfWaiting(request.getRequestId(), State.COMPLETED, false, admin,
+                currentTime) == 0) {
+            throw new InvalidRequestDataException(ErrorCode.ERR_REQUEST_ALREADY_COMPLETE);
+        }
+
         try {
             ResponseDTO responseDto = new ResponseDTO();
-            request.setState(State.COMPLETED);
-            request.setAcceptedBy(admin);
-            request.getAssignment().getAsset().setState(State.AVAILABLE);
-            request.getAssignment().setState(State.ASSIGNMENT_HAD_COMPLETED_ASSET_HAD_RETURNED);
-            LocalDateTime currentTime = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
-            request.setReturnedDate(currentTime);
-            requestRepository.save(request);
+            Assignment assignment = request.getAssignment();
+            if (assignmentRepository.compareAndSetState(assignment.getAssignmentId(), State.ACCEPTED,
+                    State.ASSIGNMENT_HAD_COMPLETED_ASSET_HAD_RETURNED) == 0) {
+                throw new UpdateDataFailException(ErrorCode.ERR_REQUEST_COMPLETE_FAIL);
+            }
+            String assetCode = assignment.getAsset().getAssetCode();
+            if (assetRepository.compareAndSetState(assetCode, State.ASSIGNED, State.AVAILABLE) == 1) {
+                domainEventBus.publish(new AssetStateChangedEvent(assetCode, State.ASSIGNED, State.AVAILABLE));
+            }
+            ownAssignmentCache.evict(assignment.getAssignedTo());
+            domainEventBus.publish(new RequestStateChangedEvent(request.getRequestId(), assignment.getAssignmentId(),
+                    State.WAITING_FOR_RETURNING, State.COMPLETED));
+            domainEventBus.publish(new AssignmentStateChangedEvent(assignment.getAssignmentId(), assetCode,
+                    assignment.getAssignedTo().getStaffCode(), State.ACCEPTED,
+                    State.ASSIGNMENT_HAD_COMPLETED_ASSET_HAD_RETURNED));
 
             responseDto.setSuccessCode(SuccessCode.REQUEST_COMPLETE_SUCCESS);
             return responseDto;
@@ -232,58 +279,13 @@ public class RequestServiceImpl implements RequestService {
 
     @Override
     public ResponseDTO retrieveRequestHavingFilterSearchSort(Integer pageNum, Integer numOfItems,
-            SearchFilterSortRequestDTO searchFilterSortRequestDTO, Long locationId) throws DataNotFoundException {
+            SearchFilterSortRequestDTO searchFilterSortRequestDTO, Long locationId, Boolean withTotal)
+            throws DataNotFoundException {
         try {
             ResponseDTO responseDto = new ResponseDTO();
             Pageable page = this.getPaging(pageNum, numOfItems, searchFilterSortRequestDTO);
 
-            // search assignment (by asset code or asset name or requester’s username) and
-            // filter assignment (by state and returned date)
-
-            RequestSpecification assetCode = null;
-            RequestSpecification assetName = null;
-            RequestSpecification requestedBy = null;
-            RequestSpecification state = null;
-            RequestSpecification returnedDate = null;
-            RequestSpecification requestLocation = new RequestSpecification();
-            requestLocation.add(new SearchCriteria("requestedBy", locationId, SearchOperation.EQUAL));
-            RequestSpecification requestIsDeleted = new RequestSpecification();
-            requestIsDeleted.add(new SearchCriteria("isDeleted", false, SearchOperation.EQUAL));
-
-            if (!searchFilterSortRequestDTO.getStates().isEmpty()) {
-                state = new RequestSpecification();
-                state.add(new SearchCriteria("state", searchFilterSortRequestDTO.getStates(), SearchOperation.IN));
-            }
-            if (searchFilterSortRequestDTO.getLocalDateTime() != null) {
-                returnedDate = new RequestSpecification();
-                returnedDate.add(new SearchCriteria("returnedDate", searchFilterSortRequestDTO.getLocalDateTime(),
-                        SearchOperation.EQUAL));
-            }
-            if (!searchFilterSortRequestDTO.getSearchKeyWord().isBlank()) {
-                assetCode = new RequestSpecification();
-                assetCode.add(new SearchCriteria("assetCode", searchFilterSortRequestDTO.getSearchKeyWord(),
-                        SearchOperation.MATCH));
-
-                assetName = new RequestSpecification();
-                assetName.add(new SearchCriteria("assetName", searchFilterSortRequestDTO.getSearchKeyWord(),
-                        SearchOperation.MATCH));
-
-                requestedBy = new RequestSpecification();
-                requestedBy.add(new SearchCriteria("requestedBy", searchFilterSortRequestDTO.getSearchKeyWord(),
-                        SearchOperation.MATCH));
-            }
-
-            Specification spec = Specification.where(requestLocation).and(requestIsDeleted);
-
-            if (state != null) {
-                spec = spec.and(state);
-            }
-            if (returnedDate != null) {
-                spec = spec.and(returnedDate);
-            }
-            if (assetCode != null) {
-                spec = spec.and(Specification.where(assetCode).or(assetName).or(requestedBy));
-            }
+            Specification<Request> spec = getFilterSearchSortSpecification(searchFilterSortRequestDTO, locationId);
 
             Page<Request> Requests;
 
@@ -295,7 +297,15 @@ public class RequestServiceImpl implements RequestService {
             }
             List<ViewRequestDTO> viewRequestDTO = requestConverter.convertToListDTO(Requests);
 
-            responseDto.setData(viewRequestDTO);
+            if (Boolean.TRUE.equals(withTotal)) {
+                responseDto.setData(PageDTO.builder()
+                        .totalPages(Requests.getTotalPages())
+                        .totalElements(Requests.getTotalElements())
+                        .data(viewRequestDTO)
+                        .build());
+            } else {
+                responseDto.setData(viewRequestDTO);
+            }
             responseDto.setSuccessCode(SuccessCode.REQUEST_LOADED_SUCCESS);
             return responseDto;
 
@@ -311,66 +321,15 @@ public class RequestServiceImpl implements RequestService {
         try {
             ResponseDTO responseDto = new ResponseDTO();
 
-            // search assignment (by asset code or asset name or requester’s username) and
-            // filter assignment (by state and returned date)
-
-            RequestSpecification assetCode = null;
-            RequestSpecification assetName = null;
-            RequestSpecification requestedBy = null;
-            RequestSpecification state = null;
-            RequestSpecification returnedDate = null;
-            RequestSpecification requestLocation = new RequestSpecification();
-            requestLocation.add(new SearchCriteria("requestedBy", locationId, SearchOperation.EQUAL));
-            RequestSpecification requestIsDeleted = new RequestSpecification();
-            requestIsDeleted.add(new SearchCriteria("isDeleted", false, SearchOperation.EQUAL));
-
-            if (!searchFilterSortRequestDTO.getStates().isEmpty()) {
-                state = new RequestSpecification();
-                state.add(new SearchCriteria("state", searchFilterSortRequestDTO.getStates(), SearchOperation.IN));
-            }
-            if (searchFilterSortRequestDTO.getLocalDateTime() != null) {
-                returnedDate = new RequestSpecification();
-                returnedDate.add(new SearchCriteria("returnedDate", searchFilterSortRequestDTO.getLocalDateTime(),
-                        SearchOperation.EQUAL));
-            }
-            if (!searchFilterSortRequestDTO.getSearchKeyWord().isBlank()) {
-                assetCode = new RequestSpecification();
-                assetCode.add(new SearchCriteria("assetCode", searchFilterSortRequestDTO.getSearchKeyWord(),
-                        SearchOperation.MATCH));
-
-                assetName = new RequestSpecification();
-                assetName.add(new SearchCriteria("assetName", searchFilterSortRequestDTO.getSearchKeyWord(),
-                        SearchOperation.MATCH));
-
-                requestedBy = new RequestSpecification();
-                requestedBy.add(new SearchCriteria("requestedBy", searchFilterSortRequestDTO.getSearchKeyWord(),
-                        SearchOperation.MATCH));
-            }
-
-            Specification spec = Specification.where(requestLocation).and(requestIsDeleted);
-
-            if (state != null) {
-                spec = spec.and(state);
-            }
-            if (returnedDate != null) {
-                spec = spec.and(returnedDate);
-            }
-            if (assetCode != null) {
-                spec = spec.and(Specification.where(assetCode).or(assetName).or(requestedBy));
-            }
-
-            List<Request> Requests;
+            Specification<Request> spec = getFilterSearchSortSpecification(searchFilterSortRequestDTO, locationId);
 
+            NumberOfRequestDTO NumberOfrequestDTO = new NumberOfRequestDTO();
             try {
-                Requests = requestRepository.findAll(spec);
+                NumberOfrequestDTO.setNumberOfEntity(requestRepository.count(spec));
             } catch (Exception e) {
                 e.printStackTrace();
                 throw new DataNotFoundException(ErrorCode.ERR_COUNT_REQUEST_FAIL);
             }
-            List<ViewRequestDTO> viewRequestDTO = requestConverter.convertToListDTO(Requests);
-            NumberOfRequestDTO NumberOfrequestDTO = new NumberOfRequestDTO();
-
-            NumberOfrequestDTO.setNumberOfEntity((long) viewRequestDTO.size());
 
             responseDto.setData(NumberOfrequestDTO);
             responseDto.setSuccessCode(SuccessCode.REQUEST_COUNT_SUCCESS);
@@ -382,6 +341,97 @@ public class RequestServiceImpl implements RequestService {
         }
     }
 
+    @Override
+    public ResponseDTO retrieveRequestsByCursor(String cursor, Integer numOfItems, Long locationId)
+            throws DataNotFoundException {
+        RequestSpecification requestLocation = new RequestSpecification();
+        requestLocation.add(new SearchCriteria("requestedBy", locationId, SearchOperation.EQUAL));
+        requestLocation.add(new SearchCriteria("isDeleted", false, SearchOperation.EQUAL));
+
+        return retrieveRequestSlice(requestLocation, Sort.by("assignment.assignedDate").descending(), cursor,
+                numOfItems);
+    }
+
+    @Override
+    public ResponseDTO retrieveRequestHavingFilterSearchSortByCursor(String cursor, Integer numOfItems,
+            SearchFilterSortRequestDTO searchFilterSortRequestDTO, Long locationId) throws DataNotFoundException {
+        return retrieveRequestSlice(getFilterSearchSortSpecification(searchFilterSortRequestDTO, locationId),
+                getPaging(0, numOfItems, searchFilterSortRequestDTO).getSort(), cursor, numOfItems);
+    }
+
+    private ResponseDTO retrieveRequestSlice(Specification<Request> spec, Sort sort, String cursor,
+            Integer numOfItems) throws DataNotFoundException {
+        try {
+            ResponseDTO responseDto = new ResponseDTO();
+            KeysetSlice<Request> requests = keysetPager.findSlice(Request.class, spec, sort, cursor, numOfItems,
+                    Request.LIST_GRAPH);
+
+            responseDto.setData(SliceDTO.builder()
+                    .data(requestConverter.convertToListDTO(requests.getContent()))
+                    .hasNext(requests.isHasNext())
+                    .nextCursor(requests.getNextCursor())
+                    .build());
+            responseDto.setSuccessCode(SuccessCode.REQUEST_LOADED_SUCCESS);
+            return responseDto;
+        } catch (ApiRequestException e) {
+            throw e;
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new DataNotFoundException(ErrorCode.ERR_RETRIEVE_REQUEST_FAIL);
+        }
+    }
+
+    // search assignment (by asset code or asset name or requester’s username) and
+    // filter assignment (by state and returned date)
+    private Specification<Request> getFilterSearchSortSpecification(
+            SearchFilterSortRequestDTO searchFilterSortRequestDTO, Long locationId) {
+        RequestSpecification assetCode = null;
+        RequestSpecification assetName = null;
+        RequestSpecification requestedBy = null;
+        RequestSpecification state = null;
+        RequestSpecification returnedDate = null;
+        RequestSpecification requestLocation = new RequestSpecification();
+        requestLocation.add(new SearchCriteria("requestedBy", locationId, SearchOperation.EQUAL));
+        RequestSpecification requestIsDeleted = new RequestSpecification();
+        requestIsDeleted.add(new SearchCriteria("isDeleted", false, SearchOperation.EQUAL));
+
+        if (!searchFilterSortRequestDTO.getStates().isEmpty()) {
+            state = new RequestSpecification();
+            state.add(new SearchCriteria("state", searchFilterSortRequestDTO.getStates(), SearchOperation.IN));
+        }
+        if (searchFilterSortRequestDTO.getLocalDateTime() != null) {
+            returnedDate = new RequestSpecification();
+            returnedDate.add(new SearchCriteria("returnedDate", searchFilterSortRequestDTO.getLocalDateTime(),
+                    SearchOperation.EQUAL));
+        }
+        if (!searchFilterSortRequestDTO.getSearchKeyWord().isBlank()) {
+            assetCode = new RequestSpecification();
+            assetCode.add(new SearchCriteria("assetCode", searchFilterSortRequestDTO.getSearchKeyWord(),
+                    SearchOperation.MATCH));
+
+            assetName = new RequestSpecification();
+            assetName.add(new SearchCriteria("assetName", searchFilterSortRequestDTO.getSearchKeyWord(),
+                    SearchOperation.MATCH));
+
+            requestedBy = new RequestSpecification();
+            requestedBy.add(new SearchCriteria("requestedBy", searchFilterSortRequestDTO.getSearchKeyWord(),
+                    SearchOperation.MATCH));
+        }
+
+        Specification<Request> spec = Specification.where(requestLocation).and(requestIsDeleted);
+
+        if (state != null) {
+            spec = spec.and(state);
+        }
+        if (returnedDate != null) {
+            spec = spec.and(returnedDate);
+        }
+        if (assetCode != null) {
+            spec = spec.and(Specification.where(assetCode).or(assetName).or(requestedBy));
+        }
+        return spec;
+    }
+
     @Override
     public ResponseDTO createRequest(CreateRequestDTO createRequestDTO) throws CreateDataFailException {
         ResponseDTO responseDTO = new ResponseDTO();
@@ -399,9 +449,15 @@ public class RequestServiceImpl implements RequestService {
 
         try {
             Request saveRequest = requestRepository.save(request);
+            ownAssignmentCache.evict(request.getAssignment().getAssignedTo());
+            domainEventBus.publish(new RequestStateChangedEvent(saveRequest.getRequestId(),
+                    request.getAssignment().getAssignmentId(), null, State.WAITING_FOR_RETURNING));
             responseDTO.setSuccessCode(SuccessCode.REQUEST_CREATE_SUCCESS);
             responseDTO.setData(requestConverter.convertToViewDTO(saveRequest));
             return responseDTO;
+        } catch (DataIntegrityViolationException e) {
+            // request_assignmentid_waiting_idx, the assignment already has a waiting return request
+            throw new CreateDataFailException(ErrorCode.ERR_REQUEST_ALREADY_WAITING);
         } catch (Exception e) {
             e.printStackTrace();
             throw new CreateDataFailException(ErrorCode.ERR_CREATE_REQUEST_FAIL);
@@ -20,9 +20,10 @@ import com.nashtech.rootkies.exception.CreateDataFailException;
 import com.nashtech.rootkies.model.Role;
 import com.nashtech.rootkies.model.User;
 import com.nashtech.rootkies.repository.AssignmentRepository;
-import com.nashtech.rootkies.repository.RoleRepository;
 import com.nashtech.rootkies.repository.UserRepository;
+import com.nashtech.rootkies.security.service.PrincipalCache;
 import com.nashtech.rootkies.service.AuthService;
+import com.nashtech.rootkies.service.ReferenceDataService;
 import com.nashtech.rootkies.service.UserService;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -64,7 +65,7 @@ public class UserServiceImpl implements UserService {
     private UserRepository userRepository;
 
     @Autowired
-    private RoleRepository roleRepository;
+    private ReferenceDataService referenceDataService;
 
     @Autowired
     PasswordEncoder encoder;
@@ -75,6 +76,12 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private OwnAssignmentCache ownAssignmentCache;
+
     @Override
     public PageDTO findAllUser(Pageable pageable, Specification specification) throws DataNotFoundException {
         try{
@@ -111,6 +118,7 @@ public class UserServiceImpl implements UserService {
             user.setPassword(encoder.encode(newPassword));
             user.setFirstLogin(true);
             user = userRepository.save(user);
+            principalCache.invalidate(user.getUsername());
             LoginRequest loginRequest = new LoginRequest(user.getUsername(), newPassword);
             return authService.signIn(loginRequest);
         }
@@ -156,6 +164,7 @@ public class UserServiceImpl implements UserService {
             User user = optionalUser.get();
             user.setPassword(encoder.encode(newPassword));
             userRepository.save(user);
+            principalCache.invalidate(username);
             return "Success to change password.";
         }
         catch(Exception e){
@@ -183,7 +192,7 @@ public class UserServiceImpl implements UserService {
     public User updateUser(String userId, User user) throws UserNotFoundException, ResourceNotFoundException {
         User userExist = userRepository.findByStaffCode(userId).orElseThrow(() ->
                 new UserNotFoundException(ErrorCode.ERR_USER_NOT_FOUND));
-        Role roleExist = roleRepository.findByRoleName(user.getRole().getRoleName()).orElseThrow(() ->
+        Role roleExist = referenceDataService.findRole(user.getRole().getRoleName()).orElseThrow(() ->
                 new ResourceNotFoundException(ErrorCode.ERR_ROLE_NOT_FOUND));
 
         userExist.setDateOfBirth(user.getDateOfBirth());
@@ -192,6 +201,7 @@ public class UserServiceImpl implements UserService {
         userExist.setRole(roleExist);
 
         user = userRepository.save(userExist);
+        principalCache.invalidate(userExist.getUsername());
         return userExist;
     }
 
@@ -200,6 +210,7 @@ public class UserServiceImpl implements UserService {
         User user = userRepository.findByStaffCode(userId).orElseThrow(() -> new UserNotFoundException(ErrorCode.ERR_USER_NOT_FOUND));
         //user.setIsDeleted(Boolean.TRUE);
         this.userRepository.delete(user);
+        principalCache.invalidate(user.getUsername());
         return true;
     }
     /*@Autowired
@@ -250,6 +261,8 @@ public class UserServiceImpl implements UserService {
 
         repository.disableUser(staffCode);
         repository.disableUserRole(staffCode);
+        principalCache.invalidateByStaffCode(staffCode);
+        ownAssignmentCache.evict(staffCode);
     }
 
     public boolean checkAnyValidAssignment(String staffCode) throws DataNotFoundException {
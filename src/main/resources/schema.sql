@@ -15,7 +15,8 @@ CREATE TABLE public.assets
     state smallint NOT NULL,
     categorycode character varying
     (255) NOT NULL,
-    locationid bigint NOT NULL
+    locationid bigint NOT NULL,
+    statechangeddate timestamp without time zone NOT NULL DEFAULT now()
 );
 
 
@@ -54,6 +55,48 @@ CREATE TABLE public.assets
         );
 
 
+        --
+        -- Name: asset_code_counters; Type: TABLE; Schema: public; Owner: -
+        --
+
+        CREATE TABLE public.asset_code_counters
+        (
+            categorycode character varying(255) NOT NULL,
+            lastvalue bigint NOT NULL
+        );
+
+
+        --
+        -- Name: lifecycle_runs; Type: TABLE; Schema: public; Owner: -
+        --
+
+        CREATE TABLE public.lifecycle_runs
+        (
+            runid bigint NOT NULL,
+            rule character varying(255) NOT NULL,
+            starteddate timestamp without time zone NOT NULL,
+            finisheddate timestamp without time zone,
+            chunks integer NOT NULL,
+            changed bigint NOT NULL,
+            error character varying(1000)
+        );
+
+
+        --
+        -- Name: lifecycle_changes; Type: TABLE; Schema: public; Owner: -
+        --
+
+        CREATE TABLE public.lifecycle_changes
+        (
+            changeid bigint NOT NULL,
+            runid bigint NOT NULL,
+            entity character varying(255) NOT NULL,
+            entitykey character varying(255) NOT NULL,
+            fromstate smallint NOT NULL,
+            tostate smallint NOT NULL
+        );
+
+
         --
         -- TOC entry 207 (class 1259 OID 25777)
         -- Name: hibernate_sequence; Type: SEQUENCE; Schema: public; Owner: -
@@ -195,6 +238,33 @@ CREATE TABLE public.assets
                 (categorycode);
 
 
+                --
+                -- Name: asset_code_counters asset_code_counters_pkey; Type: CONSTRAINT; Schema: public; Owner: -
+                --
+
+                ALTER TABLE ONLY public.asset_code_counters
+                ADD CONSTRAINT asset_code_counters_pkey PRIMARY KEY
+                (categorycode);
+
+
+                --
+                -- Name: lifecycle_runs lifecycle_runs_pkey; Type: CONSTRAINT; Schema: public; Owner: -
+                --
+
+                ALTER TABLE ONLY public.lifecycle_runs
+                ADD CONSTRAINT lifecycle_runs_pkey PRIMARY KEY
+                (runid);
+
+
+                --
+                -- Name: lifecycle_changes lifecycle_changes_pkey; Type: CONSTRAINT; Schema: public; Owner: -
+                --
+
+                ALTER TABLE ONLY public.lifecycle_changes
+                ADD CONSTRAINT lifecycle_changes_pkey PRIMARY KEY
+                (changeid);
+
+
                 --
                 -- TOC entry 4149 (class 2606 OID 25733)
                 -- Name: locations locations_pkey; Type: CONSTRAINT; Schema: public; Owner: -
@@ -293,12 +363,43 @@ CREATE TABLE public.assets
 
 
                 --
-                -- TOC entry 4137 (class 1259 OID 25759)
-                -- Name: assignment_assetcode_idx; Type: INDEX; Schema: public; Owner: -
+                -- Name: asset_location_category_state_idx; Type: INDEX; Schema: public; Owner: -
                 --
 
-                CREATE INDEX assignment_assetcode_idx ON public.assignments USING btree
-                (assetcode);
+                CREATE INDEX asset_location_category_state_idx ON public.assets USING btree
+                (locationid, categorycode, state);
+
+
+                --
+                -- Name: asset_state_statechangeddate_idx; Type: INDEX; Schema: public; Owner: -
+                --
+
+                CREATE INDEX asset_state_statechangeddate_idx ON public.assets USING btree
+                (state, statechangeddate);
+
+
+                --
+                -- Name: assignment_assetcode_assigneddate_idx; Type: INDEX; Schema: public; Owner: -
+                --
+
+                CREATE INDEX assignment_assetcode_assigneddate_idx ON public.assignments USING btree
+                (assetcode, assigneddate DESC);
+
+
+                --
+                -- Name: assignment_state_assigneddate_idx; Type: INDEX; Schema: public; Owner: -
+                --
+
+                CREATE INDEX assignment_state_assigneddate_idx ON public.assignments USING btree
+                (state, assigneddate);
+
+
+                --
+                -- Name: lifecycle_change_runid_idx; Type: INDEX; Schema: public; Owner: -
+                --
+
+                CREATE INDEX lifecycle_change_runid_idx ON public.lifecycle_changes USING btree
+                (runid);
 
 
                 --
@@ -328,6 +429,14 @@ CREATE TABLE public.assets
                 (state);
 
 
+                --
+                -- Name: assignment_assignedto_isdeleted_state_assigneddate_idx; Type: INDEX; Schema: public; Owner: -
+                --
+
+                CREATE INDEX assignment_assignedto_isdeleted_state_assigneddate_idx ON public.assignments USING btree
+                (assignedto, isdeleted, state, assigneddate);
+
+
                 --
                 -- TOC entry 4145 (class 1259 OID 25762)
                 -- Name: category_name_idx; Type: INDEX; Schema: public; Owner: -
@@ -346,6 +455,14 @@ CREATE TABLE public.assets
                 (assignmentid);
 
 
+                --
+                -- Name: request_assignmentid_waiting_idx; Type: INDEX; Schema: public; Owner: -
+                --
+
+                CREATE UNIQUE INDEX request_assignmentid_waiting_idx ON public.requests USING btree
+                (assignmentid) WHERE state = 1 AND isdeleted = false;
+
+
                 --
                 -- TOC entry 4153 (class 1259 OID 25767)
                 -- Name: request_requestedby_idx; Type: INDEX; Schema: public; Owner: -
@@ -409,6 +526,37 @@ CREATE TABLE public.assets
                 (username);
 
 
+                --
+                -- Name: pg_trgm; Type: EXTENSION; Schema: public; Owner: -
+                --
+
+                CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+
+                --
+                -- Name: asset_assetcode_trgm_idx; Type: INDEX; Schema: public; Owner: -
+                --
+
+                CREATE INDEX asset_assetcode_trgm_idx ON public.assets USING gin
+                (lower(assetcode) gin_trgm_ops);
+
+
+                --
+                -- Name: asset_assetname_trgm_idx; Type: INDEX; Schema: public; Owner: -
+                --
+
+                CREATE INDEX asset_assetname_trgm_idx ON public.assets USING gin
+                (lower(assetname) gin_trgm_ops);
+
+
+                --
+                -- Name: user_username_trgm_idx; Type: INDEX; Schema: public; Owner: -
+                --
+
+                CREATE INDEX user_username_trgm_idx ON public.users USING gin
+                (lower(username) gin_trgm_ops);
+
+
                 --
                 -- TOC entry 4175 (class 2606 OID 25818)
                 -- Name: requests fk1ha6o2qgpjwvu7xftxcfdw0eq; Type: FK CONSTRAINT; Schema: public; Owner: -
@@ -0,0 +1,99 @@
+package com.nashtech.rootkies.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.nashtech.rootkies.constants.State;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DomainEventBusTest {
+
+    private final List<Object> delivered = new CopyOnWriteArrayList<>();
+
+    private MeterRegistry meterRegistry;
+
+    private DomainEventBus domainEventBus;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        domainEventBus = new DomainEventBus(delivered::add, meterRegistry, 2, 100);
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void eventOutsideTransactionIsDeliveredTest() throws Exception {
+        AssetStateChangedEvent event = new AssetStateChangedEvent("LA000001", State.AVAILABLE, State.ASSIGNED);
+
+        domainEventBus.publish(event);
+        // waits for the queue to drain
+        domainEventBus.destroy();
+
+        assertEquals(List.of(event), delivered);
+        assertEquals(1, count("AssetStateChangedEvent", "delivered"), 0);
+    }
+
+    @Test
+    public void eventIsHeldUntilCommitTest() throws Exception {
+        RequestStateChangedEvent event = new RequestStateChangedEvent(1L, 2L, null, State.WAITING_FOR_RETURNING);
+        TransactionSynchronizationManager.initSynchronization();
+
+        domainEventBus.publish(event);
+        assertTrue(delivered.isEmpty());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+        domainEventBus.destroy();
+
+        assertEquals(List.of(event), delivered);
+    }
+
+    @Test
+    public void eventOfRolledBackTransactionIsDroppedTest() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+
+        domainEventBus.publish(new AssignmentStateChangedEvent(1L, "LA000001", "SD0001",
+                State.WAITING_FOR_ACCEPTANCE, State.ACCEPTED));
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+        domainEventBus.destroy();
+
+        assertTrue(delivered.isEmpty());
+        assertEquals(1, count("AssignmentStateChangedEvent", "published"), 0);
+    }
+
+    @Test
+    public void failingListenerIsCountedTest() throws Exception {
+        domainEventBus = new DomainEventBus(event -> {
+            throw new IllegalStateException();
+        }, meterRegistry, 1, 100);
+
+        domainEventBus.publish(new AssetStateChangedEvent("LA000001", State.ASSIGNED, State.AVAILABLE));
+        domainEventBus.destroy();
+
+        assertEquals(1, count("AssetStateChangedEvent", "failed"), 0);
+    }
+
+    private double count(String type, String outcome) {
+        return meterRegistry.counter(DomainEventBus.COUNTER_NAME, "type", type, "outcome", outcome).count();
+    }
+}
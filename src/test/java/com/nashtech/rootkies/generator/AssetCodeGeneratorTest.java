@@ -0,0 +1,111 @@
+package com.nashtech.rootkies.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.nashtech.rootkies.constants.State;
+import com.nashtech.rootkies.model.Asset;
+import com.nashtech.rootkies.model.Category;
+import com.nashtech.rootkies.model.Location;
+import com.nashtech.rootkies.repository.AssetRepository;
+import com.nashtech.rootkies.repository.CategoryRepository;
+import com.nashtech.rootkies.repository.LocationRepository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class AssetCodeGeneratorTest {
+
+    private static final String CATEGORY_CODE = "ZQX";
+
+    private static final int THREADS = 8;
+
+    private static final int ASSETS_PER_THREAD = 40;
+
+    @Autowired
+    private AssetRepository assetRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Category category;
+
+    private Location location;
+
+    private final Set<String> codes = ConcurrentHashMap.newKeySet();
+
+    @Before
+    public void setUp() {
+        category = categoryRepository.save(Category.builder().categoryCode(CATEGORY_CODE)
+                .categoryName("Asset code generator test").build());
+        location = locationRepository.save(Location.builder().address("Asset code generator test").build());
+    }
+
+    @After
+    public void tearDown() {
+        codes.forEach(assetRepository::deleteById);
+        jdbcTemplate.update("DELETE FROM asset_code_counters WHERE categorycode = ?", CATEGORY_CODE);
+        categoryRepository.deleteById(CATEGORY_CODE);
+        locationRepository.deleteById(location.getLocationId());
+    }
+
+    @Test
+    public void concurrentInsertsGetDistinctCodesTest() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<String>>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                Callable<List<String>> insert = () -> {
+                    List<String> saved = new ArrayList<>();
+                    for (int i = 0; i < ASSETS_PER_THREAD; i++) {
+                        String code = assetRepository.save(newAsset()).getAssetCode();
+                        codes.add(code);
+                        saved.add(code);
+                    }
+                    return saved;
+                };
+                results.add(pool.submit(insert));
+            }
+            int total = 0;
+            for (Future<List<String>> result : results) {
+                total += result.get().size();
+            }
+
+            assertEquals(THREADS * ASSETS_PER_THREAD, total);
+            assertEquals(total, codes.size());
+            codes.forEach(code -> assertTrue(code.matches(CATEGORY_CODE + "\\d{6,}")));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Asset newAsset() {
+        return Asset.builder().assetName("Generator test").category(category).location(location)
+                .installDate(LocalDateTime.now()).specification("test").isDeleted(false)
+                .state(State.AVAILABLE).build();
+    }
+}
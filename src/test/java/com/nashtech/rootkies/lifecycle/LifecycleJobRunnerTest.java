@@ -0,0 +1,103 @@
+package com.nashtech.rootkies.lifecycle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import com.nashtech.rootkies.model.LifecycleRun;
+import com.nashtech.rootkies.repository.LifecycleRunRepository;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class LifecycleJobRunnerTest {
+
+    private static final int CHUNK_SIZE = 10;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final LifecycleRunRepository lifecycleRunRepository = mock(LifecycleRunRepository.class);
+
+    private LifecycleJobRunner runner;
+
+    @Before
+    public void setUp() {
+        when(lifecycleRunRepository.save(any(LifecycleRun.class))).thenAnswer(invocation -> {
+            LifecycleRun run = invocation.getArgument(0);
+            if (run.getRunId() == null) {
+                run.setRunId(1L);
+            }
+            return run;
+        });
+        runner = new LifecycleJobRunner(List.of(), lifecycleRunRepository, mock(JdbcTemplate.class),
+                mock(PlatformTransactionManager.class), meterRegistry, CHUNK_SIZE, 0, 5, 2000);
+    }
+
+    @Test
+    public void runStopsAtFirstShortChunkTest() {
+        LifecycleRun run = runner.run(new FakeRule(10, 10, 3, 10));
+
+        assertEquals(3, run.getChunks().intValue());
+        assertEquals(23, run.getChanged().longValue());
+        assertNull(run.getError());
+        assertNotNull(run.getFinishedDate());
+        assertEquals(23, meterRegistry.counter(LifecycleJobRunner.COUNTER_NAME, "rule", "fake").count(), 0);
+    }
+
+    @Test
+    public void runStopsAfterMaxChunksTest() {
+        LifecycleRun run = runner.run(new FakeRule(10, 10, 10, 10, 10, 10, 10));
+
+        assertEquals(5, run.getChunks().intValue());
+        assertEquals(50, run.getChanged().longValue());
+    }
+
+    @Test
+    public void failedChunkIsRecordedWithTheRunTest() {
+        LifecycleRun run = runner.run(new FakeRule(10, -1));
+
+        assertEquals(1, run.getChunks().intValue());
+        assertEquals(10, run.getChanged().longValue());
+        assertEquals("lock timeout", run.getError());
+    }
+
+    // changes the given number of rows per chunk, -1 fails the chunk
+    private static class FakeRule implements LifecycleRule {
+        private final Deque<Integer> chunks = new ArrayDeque<>();
+
+        private FakeRule(Integer... chunks) {
+            this.chunks.addAll(List.of(chunks));
+        }
+
+        @Override
+        public String getName() {
+            return "fake";
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public int applyChunk(long runId, int limit) {
+            int changed = chunks.isEmpty() ? 0 : chunks.poll();
+            if (changed < 0) {
+                throw new IllegalStateException("lock timeout");
+            }
+            return changed;
+        }
+    }
+}
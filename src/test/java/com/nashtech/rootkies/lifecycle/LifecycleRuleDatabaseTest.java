@@ -0,0 +1,141 @@
+package com.nashtech.rootkies.lifecycle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import com.nashtech.rootkies.constants.State;
+import com.nashtech.rootkies.model.LifecycleRun;
+import com.nashtech.rootkies.repository.LifecycleRunRepository;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Runs one chunk of each rule against the test database. A chunk picks every overdue row of the shared database,
+// not only the seeded one, so each test seeds, runs and checks in one transaction that is rolled back.
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class LifecycleRuleDatabaseTest {
+
+    private static final String ASSET_CODE = "ZQL999001";
+
+    private static final int LIMIT = 10000;
+
+    @Autowired
+    private StaleAssignmentRule staleAssignmentRule;
+
+    @Autowired
+    private RecyclingRule recyclingRule;
+
+    @Autowired
+    private LifecycleRunRepository lifecycleRunRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final Timestamp overdue = Timestamp.valueOf(LocalDateTime.now().minusDays(400));
+
+    @Before
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    public void staleAssignmentIsDeclinedAndAssetFreedTest() {
+        inRolledBackTransaction(() -> {
+            insertAsset(State.ASSIGNED);
+            Long assignmentId = jdbcTemplate.queryForObject("INSERT INTO assignments (assignmentid, assigneddate, "
+                    + "isdeleted, note, state, assetcode, assignedby, assignedto) "
+                    + "VALUES (nextval('hibernate_sequence'), ?, false, 'stale', ?, ?, 'SD0001', 'SD0002') "
+                    + "RETURNING assignmentid", Long.class, overdue, State.WAITING_FOR_ACCEPTANCE, ASSET_CODE);
+            long runId = newRun(StaleAssignmentRule.NAME);
+
+            int changed = staleAssignmentRule.applyChunk(runId, LIMIT);
+
+            assertTrue(changed >= 1);
+            assertEquals(State.DECLINED, jdbcTemplate.queryForObject(
+                    "SELECT state FROM assignments WHERE assignmentid = ?", Short.class, assignmentId));
+            assertAssetChanged(State.AVAILABLE);
+            assertLogged(runId, "assignment", String.valueOf(assignmentId), State.WAITING_FOR_ACCEPTANCE,
+                    State.DECLINED);
+            assertLogged(runId, "asset", ASSET_CODE, State.ASSIGNED, State.AVAILABLE);
+            assertEquals(changed, count("SELECT COUNT(*) FROM lifecycle_changes WHERE runid = ? "
+                    + "AND entity = 'assignment'", runId));
+        });
+    }
+
+    @Test
+    public void assetWaitingForRecyclingIsRecycledTest() {
+        inRolledBackTransaction(() -> {
+            insertAsset(State.WAITING_FOR_RECYCLING);
+            long runId = newRun(RecyclingRule.NAME);
+
+            int changed = recyclingRule.applyChunk(runId, LIMIT);
+
+            assertTrue(changed >= 1);
+            assertAssetChanged(State.RECYLED);
+            assertLogged(runId, "asset", ASSET_CODE, State.WAITING_FOR_RECYCLING, State.RECYLED);
+            assertEquals(changed, count("SELECT COUNT(*) FROM lifecycle_changes WHERE runid = ?", runId));
+        });
+    }
+
+    private void inRolledBackTransaction(Runnable test) {
+        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                status.setRollbackOnly();
+                test.run();
+            }
+        });
+    }
+
+    private void insertAsset(Short state) {
+        jdbcTemplate.update("INSERT INTO assets (assetcode, assetname, installdate, isdeleted, specification, "
+                + "state, categorycode, locationid, statechangeddate) VALUES (?, 'Lifecycle test', ?, false, "
+                + "'test', ?, 'LA', 101, ?)", ASSET_CODE, overdue, state, overdue);
+    }
+
+    private long newRun(String rule) {
+        return lifecycleRunRepository.saveAndFlush(LifecycleRun.builder().rule(rule)
+                .startedDate(LocalDateTime.now()).chunks(0).changed(0L).build()).getRunId();
+    }
+
+    // the new state, with statechangeddate moved from the seeded date to the time of the chunk
+    private void assertAssetChanged(Short state) {
+        Map<String, Object> asset = jdbcTemplate.queryForMap(
+                "SELECT state, statechangeddate FROM assets WHERE assetcode = ?", ASSET_CODE);
+        assertEquals(state.intValue(), ((Number) asset.get("state")).intValue());
+        assertTrue(((Timestamp) asset.get("statechangeddate")).after(overdue));
+    }
+
+    private void assertLogged(long runId, String entity, String entityKey, Short fromState, Short toState) {
+        List<Map<String, Object>> changes = jdbcTemplate.queryForList("SELECT fromstate, tostate "
+                + "FROM lifecycle_changes WHERE runid = ? AND entity = ? AND entitykey = ?", runId, entity,
+                entityKey);
+        assertEquals(1, changes.size());
+        assertEquals(fromState.intValue(), ((Number) changes.get(0).get("fromstate")).intValue());
+        assertEquals(toState.intValue(), ((Number) changes.get(0).get("tostate")).intValue());
+    }
+
+    private long count(String sql, long runId) {
+        return jdbcTemplate.queryForObject(sql, Long.class, runId);
+    }
+}
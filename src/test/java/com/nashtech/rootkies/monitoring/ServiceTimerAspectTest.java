@@ -0,0 +1,50 @@
+package com.nashtech.rootkies.monitoring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import com.nashtech.rootkies.exception.CreateDataFailException;
+import com.nashtech.rootkies.model.Category;
+import com.nashtech.rootkies.repository.CategoryRepository;
+import com.nashtech.rootkies.service.CategoryService;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+public class ServiceTimerAspectTest {
+
+    @MockBean
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void failedCallIsTimedWithItsExceptionTest() {
+        when(categoryRepository.save(any(Category.class))).thenThrow(new IllegalStateException());
+
+        assertThrows(CreateDataFailException.class, () -> categoryService.saveCategory(new Category()));
+
+        Timer timer = meterRegistry.find(ServiceTimerAspect.TIMER_NAME)
+                .tags("class", "CategoryServiceImpl", "method", "saveCategory",
+                        "outcome", "ERROR", "exception", "CreateDataFailException")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+    }
+}
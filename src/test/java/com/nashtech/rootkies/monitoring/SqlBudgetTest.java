@@ -0,0 +1,96 @@
+package com.nashtech.rootkies.monitoring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.nashtech.rootkies.constants.CacheName;
+import com.nashtech.rootkies.security.jwt.JwtPrincipal;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@RunWith(SpringRunner.class)
+public class SqlBudgetTest {
+
+    // the admin of location 101 in data.sql, whose assignments and requests the list endpoints return
+    private static final JwtPrincipal ADMIN = new JwtPrincipal("nhimh", "SD0001", 101L, "ROLE_ADMIN");
+
+    private static final String FILTER_SEARCH_SORT = "{\"states\": [], \"localDateTime\": null, "
+            + "\"sortField\": \"assetCode\", \"sortType\": \"ASC\", \"searchKeyWord\": \"\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    @WithMockUser(username = "test", roles = { "ADMIN" })
+    public void retrieveCategoriesStaysWithinBudgetTest() throws Exception {
+        cacheManager.getCache(CacheName.CATEGORIES).clear();
+
+        MvcResult result = mockMvc.perform(get("/category"))
+                .andExpect(status().isOk())
+                .andExpect(SqlStatementBudget.withinDeclaredBudget())
+                .andReturn();
+
+        assertEquals("1", result.getResponse().getHeader(SqlStatisticsResponseAdvice.STATEMENTS_HEADER));
+        assertThrows(AssertionError.class, () -> SqlStatementBudget.atMost(0).match(result));
+    }
+
+    // the list endpoints load the users, assets and assignments of a page with the rows, in as many statements
+    // whatever the page size; a lazy association read per row breaks the budget
+    @Test
+    @WithMockUser(username = "nhimh", roles = { "ADMIN" })
+    public void retrieveAssignmentsStaysWithinBudgetTest() throws Exception {
+        expectWithinBudget(get("/assignment").param("size", "20"));
+        expectWithinBudget(get("/assignment").param("size", "20").param("cursor", ""));
+    }
+
+    @Test
+    @WithMockUser(username = "nhimh", roles = { "ADMIN" })
+    public void retrieveAssignmentsHavingFilterSearchSortStaysWithinBudgetTest() throws Exception {
+        expectWithinBudget(post("/assignment/filter-search-sort").param("size", "20")
+                .contentType(MediaType.APPLICATION_JSON).content(FILTER_SEARCH_SORT));
+        expectWithinBudget(post("/assignment/filter-search-sort").param("size", "20").param("cursor", "")
+                .contentType(MediaType.APPLICATION_JSON).content(FILTER_SEARCH_SORT));
+    }
+
+    @Test
+    @WithMockUser(username = "nhimh", roles = { "ADMIN" })
+    public void retrieveRequestsStaysWithinBudgetTest() throws Exception {
+        expectWithinBudget(get("/request").param("size", "20"));
+        expectWithinBudget(get("/request").param("size", "20").param("cursor", ""));
+    }
+
+    @Test
+    @WithMockUser(username = "nhimh", roles = { "ADMIN" })
+    public void retrieveRequestsHavingFilterSearchSortStaysWithinBudgetTest() throws Exception {
+        expectWithinBudget(post("/request/filter-search-sort").param("size", "20")
+                .contentType(MediaType.APPLICATION_JSON).content(FILTER_SEARCH_SORT));
+        expectWithinBudget(post("/request/filter-search-sort").param("size", "20").param("cursor", "")
+                .contentType(MediaType.APPLICATION_JSON).content(FILTER_SEARCH_SORT));
+    }
+
+    // with filters off, the principal AuthTokenFilter would have verified is handed to @CurrentUser directly
+    private void expectWithinBudget(MockHttpServletRequestBuilder request) throws Exception {
+        mockMvc.perform(request.requestAttr(JwtPrincipal.REQUEST_ATTRIBUTE, ADMIN))
+                .andExpect(status().isOk())
+                .andExpect(SqlStatementBudget.withinDeclaredBudget());
+    }
+}
@@ -0,0 +1,38 @@
+package com.nashtech.rootkies.monitoring;
+
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+// MockMvc matchers over the X-SQL-* headers of SqlStatisticsResponseAdvice, on in the test profile. The endpoint
+// must run against the database rather than mocked repositories for the count to mean anything.
+public final class SqlStatementBudget {
+
+    private SqlStatementBudget() {
+    }
+
+    public static ResultMatcher atMost(int statements) {
+        return result -> check(result.getResponse(), statements);
+    }
+
+    // the budget declared with @SqlBudget on the handler method
+    public static ResultMatcher withinDeclaredBudget() {
+        return result -> {
+            String budget = result.getResponse().getHeader(SqlStatisticsResponseAdvice.BUDGET_HEADER);
+            if (budget == null) {
+                throw new AssertionError("Handler declares no @SqlBudget: " + result.getRequest().getRequestURI());
+            }
+            check(result.getResponse(), Integer.parseInt(budget));
+        };
+    }
+
+    private static void check(MockHttpServletResponse response, int budget) {
+        String statements = response.getHeader(SqlStatisticsResponseAdvice.STATEMENTS_HEADER);
+        if (statements == null) {
+            throw new AssertionError("No " + SqlStatisticsResponseAdvice.STATEMENTS_HEADER + " header, is "
+                    + "bezkoder.app.sqlStatisticsHeaders on?");
+        }
+        if (Integer.parseInt(statements) > budget) {
+            throw new AssertionError("Ran " + statements + " SQL statements, budget is " + budget);
+        }
+    }
+}
@@ -2,18 +2,14 @@ package com.nashtech.rootkies.repository;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
-import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Date;
 import java.util.List;
 
 import com.nashtech.rootkies.constants.State;
-import com.nashtech.rootkies.model.Asset;
 import com.nashtech.rootkies.model.Assignment;
-import com.nashtech.rootkies.model.User;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -22,38 +18,51 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.junit4.SpringRunner;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
 public class AssignmentRepositoryTest {
     
-    @Autowired
-    private UserRepository userRepository;
-
     @Autowired
     private AssignmentRepository assignmentRepository;
 
     @Test
     public void viewOwnAssignment() throws Exception {
-        User assignedTo = userRepository.findById("SD0002").orElseThrow();
-        String date = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        LocalDateTime dateTime = LocalDateTime.parse(date + " 23:59:59", formatter);
-        Pageable pageable = PageRequest.of(0, 10);
-
-        Page<Assignment> page = assignmentRepository.findByAssignedToAndStateNotAndStateNotAndAssignedDateLessThanAndIsDeleted(
-            assignedTo, State.DECLINED, State.ASSIGNMENT_HAD_COMPLETED_ASSET_HAD_RETURNED, dateTime, false, pageable);
-        
-        List<Assignment> assignments = page.getContent();
+        LocalDateTime dateTime = LocalDate.now().plusDays(1).atStartOfDay();
+        Pageable pageable = PageRequest.of(0, 10, Sort.by("assignedDate").descending());
+
+        Page<Object[]> page = assignmentRepository.findOwnAssignmentRows("SD0002",
+            List.of(State.ACCEPTED, State.WAITING_FOR_ACCEPTANCE), dateTime, pageable);
+
+        List<Object[]> rows = page.getContent();
         Boolean checkState = false;
-        for (Assignment assignment : assignments) {
-            if(assignment.getState() == State.ASSIGNMENT_HAD_COMPLETED_ASSET_HAD_RETURNED || 
-               assignment.getState() == State.DECLINED)
+        for (Object[] row : rows) {
+            Short state = (Short) row[5];
+            if(State.ASSIGNMENT_HAD_COMPLETED_ASSET_HAD_RETURNED.equals(state) ||
+               State.DECLINED.equals(state))
             {
                 checkState = true;
             }
+            assertNotNull(row[1]);
         }
         assertEquals(false, checkState);
     }
+
+    @Test
+    public void assignmentHistoryIsNewestFirst() throws Exception {
+        Pageable pageable = PageRequest.of(0, 10,
+                Sort.by("assignedDate").descending().and(Sort.by("assignmentId").descending()));
+
+        Page<Assignment> page = assignmentRepository.findHistoryByAssetCode("LA000001", pageable);
+
+        assertEquals(assignmentRepository.countHistoryByAssetCode("LA000001"), page.getTotalElements());
+        for (int i = 1; i < page.getNumberOfElements(); i++) {
+            Assignment newer = page.getContent().get(i - 1);
+            Assignment older = page.getContent().get(i);
+            assertTrue(!newer.getAssignedDate().isBefore(older.getAssignedDate()));
+            assertEquals("LA000001", older.getAsset().getAssetCode());
+        }
+    }
 }
@@ -0,0 +1,107 @@
+package com.nashtech.rootkies.service;
+
+import com.nashtech.rootkies.constants.ErrorCode;
+import com.nashtech.rootkies.dto.asset.response.ImportAssetReportDTO;
+import com.nashtech.rootkies.exception.InvalidRequestDataException;
+import com.nashtech.rootkies.model.Category;
+import com.nashtech.rootkies.repository.CategoryRepository;
+import com.nashtech.rootkies.repository.LocationRepository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+public class AssetImportServiceTest {
+
+    @MockBean
+    private CategoryRepository categoryRepository;
+
+    @MockBean
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private AssetImportService assetImportService;
+
+    @Before
+    public void setUp() {
+        Category category = new Category();
+        category.setCategoryCode("LA");
+        category.setCategoryName("Laptop");
+        when(categoryRepository.findAll()).thenReturn(List.of(category));
+        when(locationRepository.existsById(anyLong())).thenReturn(true);
+    }
+
+    // only rejected rows, so nothing reaches the database
+    @Test
+    public void importCsvReportsRejectedRowsByLine() throws Exception {
+        String csv = "assetName,categoryCode,specification,installDate,state\n"
+                + ",LA,Core i5,2021-08-01,1\n"
+                + "Laptop 1,LA,,2021-08-01,1\n"
+                + "Laptop 2,XX,Core i5,2021-08-01,1\n"
+                + "Laptop 3,LA,Core i5,2021-08-01,assigned\n"
+                + "Laptop 4,LA,Core i5,01/08/2021,available\n"
+                + "\"Laptop 5,LA,Core i5,2021-08-01,1\n";
+
+        ImportAssetReportDTO report = (ImportAssetReportDTO) assetImportService
+                .importAssets(stream(csv), AssetImportService.CSV, 1L).getData();
+
+        assertEquals(6, report.getTotal());
+        assertEquals(0, report.getImported());
+        assertEquals(6, report.getFailed());
+        assertEquals(2, report.getErrors().get(0).getLine());
+        assertEquals(ErrorCode.NAME_IS_EMPTY, report.getErrors().get(0).getErrorCode());
+        assertEquals(ErrorCode.SPEC_IS_EMPTY, report.getErrors().get(1).getErrorCode());
+        assertEquals(ErrorCode.ERR_CATEGORY_NOT_FOUND, report.getErrors().get(2).getErrorCode());
+        assertEquals(ErrorCode.ERR_ASSET_STATE_NOT_CORRECT, report.getErrors().get(3).getErrorCode());
+        assertEquals(ErrorCode.DATE_INCORRECT_FORMAT, report.getErrors().get(4).getErrorCode());
+        assertEquals(ErrorCode.ERR_IMPORT_ROW_MALFORMED, report.getErrors().get(5).getErrorCode());
+    }
+
+    @Test
+    public void importNdjsonReportsMalformedRows() throws Exception {
+        String ndjson = "{\"assetName\":\"Laptop 1\",\"categoryCode\":\"MO\",\"specification\":\"x\","
+                + "\"installDate\":\"2021-08-01\",\"state\":1}\n"
+                + "not json\n";
+
+        ImportAssetReportDTO report = (ImportAssetReportDTO) assetImportService
+                .importAssets(stream(ndjson), AssetImportService.NDJSON, 1L).getData();
+
+        assertEquals(2, report.getFailed());
+        assertEquals(ErrorCode.ERR_CATEGORY_NOT_FOUND, report.getErrors().get(0).getErrorCode());
+        assertEquals(ErrorCode.ERR_IMPORT_ROW_MALFORMED, report.getErrors().get(1).getErrorCode());
+    }
+
+    @Test
+    public void importCsvWithoutHeaderFails() {
+        InvalidRequestDataException exception = assertThrows(InvalidRequestDataException.class,
+                () -> assetImportService.importAssets(stream("Laptop 1,LA,x,2021-08-01,1\n"),
+                        AssetImportService.CSV, 1L));
+        assertEquals(ErrorCode.ERR_IMPORT_HEADER_NOT_CORRECT, exception.getMessage());
+    }
+
+    @Test
+    public void importOtherFormatFails() {
+        assertThrows(InvalidRequestDataException.class,
+                () -> assetImportService.importAssets(stream("{}"), "application/json", 1L));
+    }
+
+    private InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
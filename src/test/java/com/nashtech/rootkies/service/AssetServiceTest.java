@@ -39,6 +39,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.test.context.junit4.SpringRunner;
 
 @SpringBootTest
@@ -182,12 +183,39 @@ public class AssetServiceTest {
         List<Assignment> assignments = new ArrayList<>();
 
         when(assetRepository.findById(anyString())).thenReturn(Optional.of(asset));
+        when(assetRepository.editIfState(anyString(), any(), anyString(), anyString(), any(), any()))
+                .thenThrow(new QueryTimeoutException("timeout"));
         ApiRequestException exception = assertThrows(ApiRequestException.class, () -> {
             assetService.editAsset("LA0002", editRequest);
         });
         assertEquals(ErrorCode.ERR_EDIT_ASSET, exception.getMessage());
     }
     @Test
+    public void updateEditAssetAssignedMeanwhile() throws Exception {
+        EditAssetRequest editRequest = new EditAssetRequest();
+        editRequest.setName("Laptop");
+        editRequest.setSpecification("intel core i9");
+        editRequest.setInstallDate("2021-02-08");
+        editRequest.setState("not available");
+
+        Asset asset = new Asset();
+        asset.setAssetCode("test");
+        asset.setAssetName("test");
+        asset.setInstallDate(LocalDateTime.now());
+        asset.setIsDeleted(false);
+        asset.setSpecification("test");
+        asset.setState(State.AVAILABLE);
+
+        // assigned between the read and the update
+        when(assetRepository.findById(anyString())).thenReturn(Optional.of(asset));
+        when(assetRepository.editIfState(anyString(), any(), anyString(), anyString(), any(), any()))
+                .thenReturn(0);
+        ApiRequestException exception = assertThrows(ApiRequestException.class, () -> {
+            assetService.editAsset("LA0002", editRequest);
+        });
+        assertEquals(ErrorCode.ASSET_ALREADY_ASSIGNED, exception.getMessage());
+    }
+    @Test
     public void updateEditAssetFailState() throws Exception {
         EditAssetRequest editRequest = new EditAssetRequest();
         editRequest.setName("Laptop");
@@ -2,21 +2,28 @@ package com.nashtech.rootkies.service;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.List;
 import java.util.Optional;
 
 import com.nashtech.rootkies.constants.ErrorCode;
 import com.nashtech.rootkies.constants.State;
 import com.nashtech.rootkies.constants.SuccessCode;
 import com.nashtech.rootkies.dto.common.ResponseDTO;
+import com.nashtech.rootkies.dto.ownassignment.request.OwnAssignmentRequest;
 import com.nashtech.rootkies.exception.InvalidRequestDataException;
 import com.nashtech.rootkies.exception.UpdateDataFailException;
 import com.nashtech.rootkies.exception.custom.ApiRequestException;
 import com.nashtech.rootkies.model.Assignment;
 import com.nashtech.rootkies.model.Location;
 import com.nashtech.rootkies.repository.AssignmentRepository;
+import com.nashtech.rootkies.service.impl.OwnAssignmentCache;
 
 import com.nashtech.rootkies.converter.AssignmentConverter;
 import com.nashtech.rootkies.dto.assignment.request.CreateAssignmentDTO;
@@ -35,6 +42,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.AutoConfigureOrder;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import java.time.LocalDateTime;
@@ -60,6 +68,9 @@ public class AssignmentServiceTest {
     @MockBean
     private AssignmentConverter assignmentConverter;
 
+    @Autowired
+    private OwnAssignmentCache ownAssignmentCache;
+
     @Test
     public void getOwnDetailFailByIsDeleted() {
         Assignment assignment = new Assignment();
@@ -124,6 +135,7 @@ public class AssignmentServiceTest {
 
         when(assignmentConverter.createDTOToEntity(dto)).thenReturn(assignment);
         when(assetRepository.findById(dto.getAssetCode())).thenReturn(Optional.of(asset));
+        when(assetRepository.compareAndSetState(dto.getAssetCode(), State.AVAILABLE, State.ASSIGNED)).thenReturn(1);
         when(assignmentRepository.save(assignment)).thenReturn(assignment);
 
         assertEquals(assignment ,assignmentService.createAssignment(dto));
@@ -203,6 +215,8 @@ public class AssignmentServiceTest {
 
         //state = 2
         assignment.setState((short) 2);
+        when(assignmentRepository.compareAndSetState(any(), eq(State.WAITING_FOR_ACCEPTANCE), eq(State.ACCEPTED)))
+                .thenReturn(1);
         ResponseDTO responseDTO = new ResponseDTO();
         responseDTO.setSuccessCode(SuccessCode.ASSIGNMENT_ACCEPTED_SUCCESS);
         assertEquals(responseDTO, assignmentService.acceptAssignment(user1.getLocation().getLocationId(), assignment.getAssignmentId(), user2.getUsername()));
@@ -251,10 +265,72 @@ public class AssignmentServiceTest {
 
         //state = 2
         assignment.setState((short) 2);
+        when(assignmentRepository.compareAndSetState(any(), eq(State.WAITING_FOR_ACCEPTANCE), eq(State.DECLINED)))
+                .thenReturn(1);
         ResponseDTO responseDTO = new ResponseDTO();
         responseDTO.setSuccessCode(SuccessCode.ASSIGNMENT_DECLINED_SUCCESS);
         assertEquals(responseDTO, assignmentService.declineAssignment(user1.getLocation().getLocationId(), assignment.getAssignmentId(), user2.getUsername()));
-        assertEquals(State.AVAILABLE, assignment.getAsset().getState());
+        verify(assetRepository).compareAndSetState("LA00001", State.ASSIGNED, State.AVAILABLE);
+    }
+
+    @Test
+    public void acceptAssignmentLosesRaceTest() {
+        User user = User.builder().staffCode("SD0002").username("nhimh2").build();
+        Assignment assignment = Assignment.builder()
+                .assignmentId(1L)
+                .assignedTo(user)
+                .asset(Asset.builder().assetCode("LA00001").build())
+                .state(State.WAITING_FOR_ACCEPTANCE)
+                .isDeleted(false)
+                .build();
+
+        // read as waiting, declined by the time the update runs
+        when(assignmentRepository.findByAssignmentId(101L, 1L)).thenReturn(Optional.of(assignment));
+        when(assignmentRepository.compareAndSetState(1L, State.WAITING_FOR_ACCEPTANCE, State.ACCEPTED))
+                .thenReturn(0);
+
+        Exception exception = Assertions.assertThrows(InvalidRequestDataException.class, () -> {
+            assignmentService.acceptAssignment(101L, 1L, "nhimh2");
+        });
+        assertEquals(ErrorCode.ERR_ASSIGNMENT_ALREADY_ACCEPTED_OR_DECLINED, exception.getMessage());
+    }
+
+    @Test
+    public void viewOwnAssignmentIsCachedUntilAccepted() throws Exception {
+        User user1 = User.builder()
+                .staffCode("SD0001")
+                .username("nhimh1")
+                .location(Location.builder().locationId(101L).build()).build();
+
+        User user2 = User.builder()
+                .staffCode("SD0002")
+                .username("nhimh2")
+                .location(Location.builder().locationId(101L).build()).build();
+
+        Assignment assignment = Assignment.builder()
+                .assignmentId(1L)
+                .assignedBy(user1)
+                .assignedTo(user2)
+                .asset(Asset.builder().assetCode("LA00001").build())
+                .state(State.WAITING_FOR_ACCEPTANCE)
+                .isDeleted(false)
+                .build();
+
+        when(assignmentRepository.findOwnAssignmentRows(eq("SD0002"), any(), any(), any()))
+                .thenReturn(new PageImpl<>(List.of()));
+        when(assignmentRepository.findByAssignmentId(101L, 1L)).thenReturn(Optional.of(assignment));
+        when(assignmentRepository.compareAndSetState(1L, State.WAITING_FOR_ACCEPTANCE, State.ACCEPTED))
+                .thenReturn(1);
+
+        ownAssignmentCache.evict("SD0002");
+        OwnAssignmentRequest request = new OwnAssignmentRequest(1, 10, "SD0002", "assignedDate", "DESC");
+        assignmentService.viewOwnAssignment(request);
+        assignmentService.viewOwnAssignment(request);
+        verify(assignmentRepository, times(1)).findOwnAssignmentRows(eq("SD0002"), any(), any(), any());
+
+        assignmentService.acceptAssignment(101L, 1L, "nhimh2");
+        assignmentService.viewOwnAssignment(request);
+        verify(assignmentRepository, times(2)).findOwnAssignmentRows(eq("SD0002"), any(), any(), any());
     }
 
     @Test
@@ -263,7 +339,7 @@ public class AssignmentServiceTest {
 
         // When
         Exception exception = assertThrows(Exception.class, () -> {
-            assignmentService.editAssignment(new Assignment(),"test");
+            assignmentService.editAssignment(new Assignment(),"test", null);
         });
 
         // Then
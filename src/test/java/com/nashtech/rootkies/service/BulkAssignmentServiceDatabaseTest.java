@@ -0,0 +1,235 @@
+package com.nashtech.rootkies.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.nashtech.rootkies.config.RequestIndexInitializer;
+import com.nashtech.rootkies.constants.ErrorCode;
+import com.nashtech.rootkies.constants.State;
+import com.nashtech.rootkies.dto.assignment.request.BulkAssignmentItemDTO;
+import com.nashtech.rootkies.dto.assignment.request.BulkCreateAssignmentDTO;
+import com.nashtech.rootkies.dto.assignment.response.BulkAssignmentReportDTO;
+import com.nashtech.rootkies.dto.assignment.response.BulkAssignmentResultDTO;
+import com.nashtech.rootkies.dto.assignment.response.BulkTransitionReportDTO;
+import com.nashtech.rootkies.model.Asset;
+import com.nashtech.rootkies.model.Category;
+import com.nashtech.rootkies.model.Location;
+import com.nashtech.rootkies.repository.AssetRepository;
+import com.nashtech.rootkies.repository.CategoryRepository;
+import com.nashtech.rootkies.repository.LocationRepository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+// runs the bulk statements against the test database, BulkAssignmentServiceTest covers the checks with mocks
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class BulkAssignmentServiceDatabaseTest {
+
+    private static final String CATEGORY_CODE = "ZQB";
+
+    private static final Long LOCATION_ID = 101L;
+
+    @Autowired
+    private BulkAssignmentService bulkAssignmentService;
+
+    @Autowired
+    private AssetRepository assetRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Category category;
+
+    private Location location;
+
+    private final List<String> codes = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        category = categoryRepository.save(Category.builder().categoryCode(CATEGORY_CODE)
+                .categoryName("Bulk assignment test").build());
+        location = locationRepository.findById(LOCATION_ID).get();
+    }
+
+    @After
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM requests WHERE assignmentid IN "
+                + "(SELECT assignmentid FROM assignments WHERE assetcode = ANY (?))", this::setCodes);
+        jdbcTemplate.update("DELETE FROM assignments WHERE assetcode = ANY (?)", this::setCodes);
+        codes.forEach(assetRepository::deleteById);
+        jdbcTemplate.update("DELETE FROM asset_code_counters WHERE categorycode = ?", CATEGORY_CODE);
+        categoryRepository.deleteById(CATEGORY_CODE);
+    }
+
+    @Test
+    public void createAssignmentsReportsEveryItemTest() throws Exception {
+        String first = newAsset(State.AVAILABLE);
+        String second = newAsset(State.AVAILABLE);
+        String third = newAsset(State.AVAILABLE);
+        String notAvailable = newAsset(State.NOT_AVAILABLE);
+        long sequenceBefore = sequenceValue();
+
+        BulkAssignmentReportDTO report = (BulkAssignmentReportDTO) bulkAssignmentService.createAssignments(
+                BulkCreateAssignmentDTO.builder().assignedBy("SD0001").assignedDate("2021-08-10 09:00")
+                        .note("bulk").items(List.of(
+                                item(first, "SD0002"),
+                                item(second, "SD0004"),
+                                item(first, "SD0005"),
+                                item(CATEGORY_CODE + "999999", "SD0002"),
+                                item(notAvailable, "SD0002"),
+                                // SD0003 works in location 102
+                                item(third, "SD0003")))
+                        .build(),
+                LOCATION_ID).getData();
+        long sequenceAfter = sequenceValue();
+
+        assertEquals(6, report.getTotal());
+        assertEquals(2, report.getCreated());
+        assertEquals(4, report.getFailed());
+        List<BulkAssignmentResultDTO> results = report.getResults();
+        assertNull(results.get(0).getErrorCode());
+        assertNull(results.get(1).getErrorCode());
+        assertEquals(ErrorCode.ERR_ASSET_DUPLICATED_IN_REQUEST, results.get(2).getErrorCode());
+        assertEquals(ErrorCode.ASSET_NOT_FOUND, results.get(3).getErrorCode());
+        assertEquals(ErrorCode.ASSET_IS_NOT_AVAILABLE, results.get(4).getErrorCode());
+        assertEquals(ErrorCode.USER_NOT_FOUND, results.get(5).getErrorCode());
+        for (int i = 2; i < results.size(); i++) {
+            assertNull(results.get(i).getAssignmentId());
+        }
+
+        assertEquals(State.ASSIGNED, assetState(first));
+        assertEquals(State.ASSIGNED, assetState(second));
+        assertEquals(State.AVAILABLE, assetState(third));
+        assertEquals(State.NOT_AVAILABLE, assetState(notAvailable));
+
+        for (BulkAssignmentResultDTO created : results.subList(0, 2)) {
+            long id = created.getAssignmentId();
+            assertTrue(id > sequenceBefore && id <= sequenceAfter);
+            Map<String, Object> row = jdbcTemplate.queryForMap(
+                    "SELECT assetcode, assignedto, assignedby, state FROM assignments WHERE assignmentid = ?", id);
+            assertEquals(created.getAssetCode(), row.get("assetcode"));
+            assertEquals(created.getAssignedTo(), row.get("assignedto"));
+            assertEquals("SD0001", row.get("assignedby"));
+            assertEquals(State.WAITING_FOR_ACCEPTANCE.intValue(), ((Number) row.get("state")).intValue());
+        }
+    }
+
+    @Test
+    public void acceptAssignmentsTest() throws Exception {
+        String asset = newAsset(State.AVAILABLE);
+        Long assignmentId = assign(asset, "SD0002");
+
+        BulkTransitionReportDTO report = (BulkTransitionReportDTO) bulkAssignmentService
+                .acceptAssignments(List.of(assignmentId, assignmentId), "SD0002").getData();
+
+        assertEquals(1, report.getSucceeded());
+        assertNull(report.getResults().get(0).getErrorCode());
+        assertEquals(ErrorCode.ERR_ASSIGNMENT_DUPLICATED_IN_REQUEST, report.getResults().get(1).getErrorCode());
+        assertEquals(State.ACCEPTED, assignmentState(assignmentId));
+        assertEquals(State.ASSIGNED, assetState(asset));
+    }
+
+    @Test
+    public void declineAssignmentsMakesAssetAvailableTest() throws Exception {
+        String asset = newAsset(State.AVAILABLE);
+        Long assignmentId = assign(asset, "SD0002");
+
+        BulkTransitionReportDTO report = (BulkTransitionReportDTO) bulkAssignmentService
+                .declineAssignments(List.of(assignmentId), "SD0002").getData();
+
+        assertEquals(1, report.getSucceeded());
+        assertEquals(State.DECLINED, assignmentState(assignmentId));
+        assertEquals(State.AVAILABLE, assetState(asset));
+    }
+
+    @Test
+    public void secondWaitingReturnRequestIsSuppressedTest() throws Exception {
+        Long assignmentId = assign(newAsset(State.AVAILABLE), "SD0002");
+        bulkAssignmentService.acceptAssignments(List.of(assignmentId), "SD0002");
+
+        BulkTransitionReportDTO first = (BulkTransitionReportDTO) bulkAssignmentService
+                .createReturnRequests(List.of(assignmentId), "SD0002").getData();
+        BulkTransitionReportDTO second = (BulkTransitionReportDTO) bulkAssignmentService
+                .createReturnRequests(List.of(assignmentId), "SD0002").getData();
+
+        assertEquals(1, first.getSucceeded());
+        assertEquals(0, second.getSucceeded());
+        assertEquals(ErrorCode.ERR_REQUEST_ALREADY_WAITING, second.getResults().get(0).getErrorCode());
+        assertEquals(1, waitingRequests(assignmentId));
+
+        // a request the check did not see, as one inserted by a concurrent transaction would be
+        try {
+            jdbcTemplate.update("INSERT INTO requests (requestid, isdeleted, state, assignmentid, requestedby) "
+                    + "VALUES (nextval('hibernate_sequence'), false, ?, ?, 'SD0002')",
+                    State.WAITING_FOR_RETURNING, assignmentId);
+            fail("expected " + RequestIndexInitializer.INDEX_NAME + " to reject the second waiting request");
+        } catch (DuplicateKeyException e) {
+            assertEquals(1, waitingRequests(assignmentId));
+        }
+    }
+
+    private Long assign(String assetCode, String assignedTo) throws Exception {
+        BulkAssignmentReportDTO report = (BulkAssignmentReportDTO) bulkAssignmentService.createAssignments(
+                BulkCreateAssignmentDTO.builder().assignedBy("SD0001").assignedDate("2021-08-10 09:00")
+                        .items(List.of(item(assetCode, assignedTo))).build(),
+                LOCATION_ID).getData();
+        return report.getResults().get(0).getAssignmentId();
+    }
+
+    private String newAsset(Short state) {
+        String code = assetRepository.save(Asset.builder().assetName("Bulk assignment test").category(category)
+                .location(location).installDate(LocalDateTime.now()).specification("test").isDeleted(false)
+                .state(state).build()).getAssetCode();
+        codes.add(code);
+        return code;
+    }
+
+    private BulkAssignmentItemDTO item(String assetCode, String assignedTo) {
+        return BulkAssignmentItemDTO.builder().assetCode(assetCode).assignedTo(assignedTo).build();
+    }
+
+    private Short assetState(String assetCode) {
+        return jdbcTemplate.queryForObject("SELECT state FROM assets WHERE assetcode = ?", Short.class, assetCode);
+    }
+
+    private Short assignmentState(Long assignmentId) {
+        return jdbcTemplate.queryForObject("SELECT state FROM assignments WHERE assignmentid = ?", Short.class,
+                assignmentId);
+    }
+
+    private long waitingRequests(Long assignmentId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM requests WHERE assignmentid = ? AND state = ? "
+                + "AND isdeleted = false", Long.class, assignmentId, State.WAITING_FOR_RETURNING);
+    }
+
+    private void setCodes(PreparedStatement ps) throws SQLException {
+        ps.setArray(1, ps.getConnection().createArrayOf("varchar", codes.toArray()));
+    }
+
+    private long sequenceValue() {
+        return jdbcTemplate.queryForObject("SELECT last_value FROM hibernate_sequence", Long.class);
+    }
+}
@@ -0,0 +1,108 @@
+package com.nashtech.rootkies.service;
+
+import com.nashtech.rootkies.constants.ErrorCode;
+import com.nashtech.rootkies.constants.State;
+import com.nashtech.rootkies.dto.assignment.request.BulkAssignmentItemDTO;
+import com.nashtech.rootkies.dto.assignment.request.BulkCreateAssignmentDTO;
+import com.nashtech.rootkies.dto.assignment.response.BulkAssignmentReportDTO;
+import com.nashtech.rootkies.dto.assignment.response.BulkTransitionReportDTO;
+import com.nashtech.rootkies.repository.AssetRepository;
+import com.nashtech.rootkies.repository.AssignmentRepository;
+import com.nashtech.rootkies.repository.UserRepository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+public class BulkAssignmentServiceTest {
+
+    @MockBean
+    private AssetRepository assetRepository;
+
+    @MockBean
+    private AssignmentRepository assignmentRepository;
+
+    @MockBean
+    private UserRepository userRepository;
+
+    @Autowired
+    private BulkAssignmentService bulkAssignmentService;
+
+    // every item is rejected by the checks, so nothing reaches the database
+    @Test
+    public void createAssignmentsReportsRejectedItemsInOrder() throws Exception {
+        when(assetRepository.findStatesByAssetCodes(eq(1L), any())).thenReturn(List.of(
+                new Object[] { "LA000001", State.AVAILABLE },
+                new Object[] { "LA000002", State.ASSIGNED }));
+        when(userRepository.findStaffCodesByLocation(eq(1L), any())).thenReturn(List.of("SD0002"));
+
+        BulkCreateAssignmentDTO dto = BulkCreateAssignmentDTO.builder()
+                .assignedBy("SD0001")
+                .assignedDate("2099-01-01 00:00")
+                .items(List.of(
+                        new BulkAssignmentItemDTO("LA000001", "SD9999"),
+                        new BulkAssignmentItemDTO("LA000002", "SD0002"),
+                        new BulkAssignmentItemDTO("LA000003", "SD0002"),
+                        new BulkAssignmentItemDTO("LA000002", "SD0002")))
+                .build();
+
+        BulkAssignmentReportDTO report = (BulkAssignmentReportDTO) bulkAssignmentService
+                .createAssignments(dto, 1L).getData();
+
+        assertEquals(4, report.getTotal());
+        assertEquals(0, report.getCreated());
+        assertEquals(4, report.getFailed());
+        assertEquals(ErrorCode.USER_NOT_FOUND, report.getResults().get(0).getErrorCode());
+        assertEquals(ErrorCode.ASSET_IS_NOT_AVAILABLE, report.getResults().get(1).getErrorCode());
+        assertEquals(ErrorCode.ASSET_NOT_FOUND, report.getResults().get(2).getErrorCode());
+        assertEquals(ErrorCode.ERR_ASSET_DUPLICATED_IN_REQUEST, report.getResults().get(3).getErrorCode());
+        assertEquals(3, report.getResults().get(3).getIndex());
+        assertNull(report.getResults().get(0).getAssignmentId());
+    }
+
+    @Test
+    public void createReturnRequestsChecksOwnershipAndState() throws Exception {
+        when(assignmentRepository.findStateRowsByAssignmentIds(any())).thenReturn(List.of(
+                new Object[] { 1L, "SD0002", State.ACCEPTED, 1L },
+                new Object[] { 2L, "SD0003", State.ACCEPTED, 0L },
+                new Object[] { 3L, "SD0002", State.WAITING_FOR_ACCEPTANCE, 0L }));
+
+        BulkTransitionReportDTO report = (BulkTransitionReportDTO) bulkAssignmentService
+                .createReturnRequests(List.of(1L, 2L, 3L, 4L, 3L), "SD0002").getData();
+
+        assertEquals(5, report.getTotal());
+        assertEquals(0, report.getSucceeded());
+        assertEquals(ErrorCode.ERR_REQUEST_ALREADY_WAITING, report.getResults().get(0).getErrorCode());
+        assertEquals(ErrorCode.ERR_ASSIGNMENT_NOT_YOUR, report.getResults().get(1).getErrorCode());
+        assertEquals(ErrorCode.ERR_REQUEST_ASSIGNMENT_NOT_ACCEPT, report.getResults().get(2).getErrorCode());
+        assertEquals(ErrorCode.ERR_ASSIGNMENT_ID_NOT_FOUND, report.getResults().get(3).getErrorCode());
+        assertEquals(ErrorCode.ERR_ASSIGNMENT_DUPLICATED_IN_REQUEST, report.getResults().get(4).getErrorCode());
+    }
+
+    @Test
+    public void acceptAssignmentsRejectsAnsweredAssignments() throws Exception {
+        when(assignmentRepository.findStateRowsByAssignmentIds(any())).thenReturn(List.of(
+                new Object[] { 1L, "SD0002", State.ACCEPTED, 0L },
+                new Object[] { 2L, "SD0002", State.DECLINED, 0L }));
+
+        BulkTransitionReportDTO report = (BulkTransitionReportDTO) bulkAssignmentService
+                .acceptAssignments(List.of(1L, 2L), "SD0002").getData();
+
+        assertEquals(2, report.getFailed());
+        assertEquals(ErrorCode.ERR_ASSIGNMENT_ALREADY_ACCEPTED_OR_DECLINED, report.getResults().get(0).getErrorCode());
+        assertEquals(ErrorCode.ERR_ASSIGNMENT_ALREADY_ACCEPTED_OR_DECLINED, report.getResults().get(1).getErrorCode());
+    }
+}
@@ -0,0 +1,77 @@
+package com.nashtech.rootkies.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.nashtech.rootkies.model.Category;
+import com.nashtech.rootkies.repository.CategoryRepository;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+public class ReferenceDataServiceTest {
+
+    @MockBean
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ReferenceDataService referenceDataService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Category category;
+
+    @Before
+    public void setUp() {
+        // drop what the startup warm up put in
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        category = new Category();
+        category.setCategoryCode("TE");
+        category.setCategoryName("test");
+        when(categoryRepository.findAll(any(Sort.class))).thenReturn(List.of(category));
+        when(categoryRepository.findById("TE")).thenReturn(Optional.of(category));
+        when(categoryRepository.save(category)).thenReturn(category);
+    }
+
+    @Test
+    public void categoriesAreLoadedOnceUntilSaveCategory() throws Exception {
+        referenceDataService.getCategories();
+        referenceDataService.getCategories();
+        verify(categoryRepository, times(1)).findAll(any(Sort.class));
+
+        categoryService.saveCategory(category);
+        referenceDataService.getCategories();
+        verify(categoryRepository, times(2)).findAll(any(Sort.class));
+    }
+
+    @Test
+    public void categoryMissIsNotCached() {
+        assertTrue(referenceDataService.findCategory("XX").isEmpty());
+        assertTrue(referenceDataService.findCategory("XX").isEmpty());
+        verify(categoryRepository, times(2)).findById("XX");
+
+        assertEquals("test", referenceDataService.findCategory("TE").get().getCategoryName());
+        referenceDataService.findCategory("TE");
+        verify(categoryRepository, times(1)).findById("TE");
+    }
+}